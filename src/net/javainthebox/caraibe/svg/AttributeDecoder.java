@@ -0,0 +1,134 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * Decodes the attributes of one element at a time into an {@link AttributeTable}.<br>
+ * Each attribute name is resolved to its {@link SVGAttribute} once, while reading it.
+ * The decoder is reused for all elements of a document, so it is not thread safe.
+ */
+class AttributeDecoder
+{
+	private static final SVGAttribute[] KEYS = SVGAttribute.values();
+
+	static
+	{
+		if ( KEYS.length > 64 ) throw new AssertionError("AttributeTable masks support up to 64 known attributes");
+	}
+
+	private final String[] values = new String[KEYS.length];
+	private final double[] numbers = new double[KEYS.length];
+	private long mask;
+	private long number_mask;
+	private final ArrayList<String> other_names = new ArrayList<>();
+	private final ArrayList<String> other_values = new ArrayList<>();
+
+	/**
+	 * Add an attribute of the current element.
+	 *
+	 * @param	name String the local name
+	 * @param	value String the value
+	 */
+	void add(String name, String value)
+	{
+		SVGAttribute attribute = SVGAttribute.forString(name);
+		if ( attribute != null )
+		{
+			add(attribute, value);
+		}
+		else
+		{
+			other_names.add(name);
+			other_values.add(value);
+		}
+	}
+
+	/**
+	 * Add a known attribute of the current element.
+	 *
+	 * @param	attribute SVGAttribute the attribute
+	 * @param	value String the value
+	 */
+	void add(SVGAttribute attribute, String value)
+	{
+		values[attribute.ordinal()] = value;
+		mask |= 1L << attribute.ordinal();
+		number_mask &= ~( 1L << attribute.ordinal() );
+	}
+
+	/**
+	 * Add a known attribute of the current element, whose value has been read as number.
+	 *
+	 * @param	attribute SVGAttribute the attribute, should be a {@link SVGAttribute#isNumber() number attribute}
+	 * @param	number double the value
+	 */
+	void add(SVGAttribute attribute, double number)
+	{
+		values[attribute.ordinal()] = null;
+		numbers[attribute.ordinal()] = number;
+		mask |= 1L << attribute.ordinal();
+		number_mask |= 1L << attribute.ordinal();
+	}
+
+	/**
+	 * Get the value of a known attribute of the current element, before decoding it.
+	 *
+	 * @param	attribute SVGAttribute the attribute
+	 * @return	String the value or null, if the attribute is not set or has been read as number
+	 */
+	String peek(SVGAttribute attribute)
+	{
+		return ( mask & 1L << attribute.ordinal() ) == 0 ? null : values[attribute.ordinal()];
+	}
+
+	/**
+	 * Remove a known attribute of the current element.
+	 *
+	 * @param	attribute SVGAttribute the attribute
+	 */
+	void remove(SVGAttribute attribute)
+	{
+		values[attribute.ordinal()] = null;
+		mask &= ~( 1L << attribute.ordinal() );
+		number_mask &= ~( 1L << attribute.ordinal() );
+	}
+
+	/**
+	 * Create the table of the current element and reset the decoder for the next one.
+	 *
+	 * @return	AttributeTable
+	 */
+	AttributeTable decode()
+	{
+		if ( mask == 0 && other_names.isEmpty() ) return AttributeTable.EMPTY;
+
+		String[] dense = new String[Long.bitCount(mask)];
+		double[] dense_numbers = number_mask == 0 ? null : new double[dense.length];
+		int n = 0;
+		for ( long remaining = mask; remaining != 0; remaining &= remaining - 1 )
+		{
+			int ordinal = Long.numberOfTrailingZeros(remaining);
+			if ( dense_numbers != null ) dense_numbers[n] = numbers[ordinal];
+			dense[n++] = values[ordinal];
+			values[ordinal] = null;
+		}
+
+		AttributeTable table = new AttributeTable(
+					mask,
+					dense,
+					number_mask,
+					dense_numbers,
+					other_names.toArray(new String[other_names.size()]),
+					other_values.toArray(new String[other_values.size()])
+				);
+
+		mask = 0;
+		number_mask = 0;
+		other_names.clear();
+		other_values.clear();
+
+		return table;
+	}
+}
@@ -0,0 +1,175 @@
+package net.javainthebox.caraibe.svg;
+
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * The immutable attributes of a parsed element.<br>
+ * Known attributes are stored densely, ordered by {@link SVGAttribute} ordinal, and found
+ * through a bit mask of the present ones: a lookup is a mask test and a bit count, without allocation.
+ * Values of {@link SVGAttribute#isNumber() number attributes} may be stored as numbers,
+ * their strings are only created on request.
+ * Unknown attributes are kept by name.
+ */
+final class AttributeTable
+{
+	static final AttributeTable EMPTY = new AttributeTable(0L, new String[0], 0L, null, new String[0], new String[0]);
+
+	private final long mask;
+	private final String[] values;
+	private final long number_mask;
+	private final double[] numbers;
+	private final String[] other_names;
+	private final String[] other_values;
+
+	/**
+	 * An attribute table.
+	 *
+	 * @param	mask long a bit per present known attribute, indexed by ordinal
+	 * @param	values String[] the values of the present known attributes, ordered by ordinal, null for numbers
+	 * @param	number_mask long a bit per known attribute stored as number, a subset of mask
+	 * @param	numbers double[] the numbers, indexed like values, or null if there are none
+	 * @param	other_names String[] the names of unknown attributes
+	 * @param	other_values String[] the values of unknown attributes
+	 */
+	AttributeTable(long mask, String[] values, long number_mask, double[] numbers, String[] other_names, String[] other_values)
+	{
+		this.mask = mask;
+		this.values = values;
+		this.number_mask = number_mask;
+		this.numbers = numbers;
+		this.other_names = other_names;
+		this.other_values = other_values;
+	}
+
+	/**
+	 * @param	attribute SVGAttribute the known attribute
+	 * @return	String the value or null
+	 */
+	String get(SVGAttribute attribute)
+	{
+		long bit = 1L << attribute.ordinal();
+		if ( ( mask & bit ) == 0 ) return null;
+
+		int index = Long.bitCount(mask & ( bit - 1 ));
+		if ( ( number_mask & bit ) != 0 ) return format(numbers[index]);
+
+		return values[index];
+	}
+
+	/**
+	 * @param	attribute SVGAttribute the known attribute
+	 * @param	default_value double the number if the attribute is not set
+	 * @return	double the value as number
+	 * @throws	NumberFormatException if the value is no number
+	 */
+	double getNumber(SVGAttribute attribute, double default_value)
+	{
+		long bit = 1L << attribute.ordinal();
+		if ( ( mask & bit ) == 0 ) return default_value;
+
+		int index = Long.bitCount(mask & ( bit - 1 ));
+		if ( ( number_mask & bit ) != 0 ) return numbers[index];
+
+		return Double.parseDouble(values[index]);
+	}
+
+	/**
+	 * @param	attribute SVGAttribute the known attribute
+	 * @return	boolean true, if the attribute is set
+	 */
+	boolean contains(SVGAttribute attribute)
+	{
+		return ( mask & ( 1L << attribute.ordinal() ) ) != 0;
+	}
+
+	/**
+	 * @param	name String any attribute name
+	 * @return	String the value or null
+	 */
+	String get(String name)
+	{
+		SVGAttribute attribute = SVGAttribute.forString(name);
+		if ( attribute != null ) return get(attribute);
+
+		for ( int i = 0; i < other_names.length; i++ )
+		{
+			if ( other_names[i].equals(name) ) return other_values[i];
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return	int the number of attributes, known and unknown
+	 */
+	int size()
+	{
+		return values.length + other_names.length;
+	}
+
+	/**
+	 * Get the known attribute at an index.
+	 *
+	 * @param	index int the index in [0, size())
+	 * @return	SVGAttribute the attribute or null, if it is an unknown one
+	 */
+	SVGAttribute getKey(int index)
+	{
+		if ( index >= values.length ) return null;
+
+		long remaining = mask;
+		for ( int i = 0; i < index; i++ )
+		{
+			remaining &= remaining - 1;
+		}
+
+		return SVGAttribute.values()[Long.numberOfTrailingZeros(remaining)];
+	}
+
+	String getName(int index)
+	{
+		if ( index >= values.length ) return other_names[index - values.length];
+
+		return getKey(index).toString();
+	}
+
+	String getValue(int index)
+	{
+		if ( index >= values.length ) return other_values[index - values.length];
+		if ( values[index] == null ) return format(numbers[index]);
+
+		return values[index];
+	}
+
+	/**
+	 * Render a stored number, integers without fraction.
+	 *
+	 * @param	number double
+	 * @return	String
+	 */
+	static String format(double number)
+	{
+		if ( number == Math.rint(number) && Math.abs(number) < 1e15 ) return Long.toString((long) number);
+
+		return Double.toString(number);
+	}
+
+	/**
+	 * @return	long the estimated memory size in bytes
+	 */
+	long estimateSize()
+	{
+		long size = 40 + 3 * 16 + 4L * ( values.length + 2 * other_names.length );
+		if ( numbers != null ) size += 16 + 8L * numbers.length;
+		for ( String value : values )
+		{
+			if ( value != null ) size += 40 + 2L * value.length();
+		}
+		for ( String value : other_values )
+		{
+			size += 40 + 2L * value.length();
+		}
+
+		return size;
+	}
+}
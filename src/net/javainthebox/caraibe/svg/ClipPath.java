@@ -4,16 +4,26 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
-import javax.xml.stream.XMLEventReader;
-
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import javafx.scene.transform.Transform;
 
 public class ClipPath
 {
 	private String id;
 	private Map<String, String> overflows; // overflow values of the nodes keyed by their node ids
 	private ArrayList<ClipPathElement> elements; // overflow values of the nodes keyed by their node ids
+	// the compiled geometry, one of them is set after the first instance
+	private Bounds rect; // a clip by an axis aligned rectangle
+	private Path path; // the union of the shapes, its path elements are shared by all instances
+	private Group group; // a clip by other nodes, copied per instance
+	private boolean compiled;
 	
 	/**
 	 * a <clipPath> class
@@ -82,22 +92,92 @@ public class ClipPath
 	}*/
 
 	/**
-	 * get a drawn instance of the clipping path
+	 * get a drawn instance of the clipping path<br>
+	 * The elements are compiled once into a rectangle or a single path, each instance is a cheap copy of it.
 	 * 
-	 * @return
+	 * @return	Node a new node to clip one node with
+	 */
+	public Node getInstance()
+	{
+		if ( !compiled ) compile();
+
+		if ( rect != null )
+		{
+			return new Rectangle(rect.getMinX(), rect.getMinY(), rect.getWidth(), rect.getHeight());
+		}
+		if ( path != null )
+		{
+			Path instance = new Path(path.getElements());
+			instance.setFillRule(path.getFillRule());
+			instance.setFill(Color.BLACK);
+			instance.setStroke(null);
+
+			return instance;
+		}
+
+		return UseTemplate.copy(group);
+	}
+
+	/**
+	 * Build the elements once and reduce them to the simplest geometry.
 	 */
-	public Group getInstance()
+	private void compile()
 	{
-		Group clip_path = new Group();
+		compiled = true;
 
+		ArrayList<Shape> shapes = new ArrayList<>(elements.size());
+		group = new Group();
 		for ( ClipPathElement el : elements )
 		{
 			Use use = el.use;
 			Node node = use.build();
-			clip_path.getChildren().add(node);
+			if ( node == null ) continue;
+
+			group.getChildren().add(node);
+			if ( node instanceof Shape && node.isVisible() ) shapes.add((Shape) node);
 		}
-		
-		return clip_path;
+		// other nodes, like groups or images, clip as they are
+		if ( shapes.size() != group.getChildren().size() ) return;
+
+		group = null;
+		if ( shapes.isEmpty() )
+		{
+			// nothing is visible through an empty clip path
+			rect = new BoundingBox(0, 0, 0, 0);
+			return;
+		}
+		if ( shapes.size() == 1 )
+		{
+			rect = toRect(shapes.get(0));
+			if ( rect != null ) return;
+		}
+
+		// the union is in the coordinates of the clipped node, the transforms of the shapes are applied
+		Shape union = Shape.union(shapes.get(0), new Path());
+		for ( int i = 1; i < shapes.size(); i++ )
+		{
+			union = Shape.union(union, shapes.get(i));
+		}
+		path = (Path) union;
+	}
+
+	/**
+	 * Get the area of an unstroked, axis aligned rectangle.
+	 * 
+	 * @param	shape Shape the shape
+	 * @return	Bounds the rectangle in the coordinates of the clipped node or null, if the shape is something else
+	 */
+	private static Bounds toRect(Shape shape)
+	{
+		if ( !( shape instanceof Rectangle ) || shape.getStroke() != null || shape.getFill() == null ) return null;
+
+		Rectangle rectangle = (Rectangle) shape;
+		if ( rectangle.getArcWidth() > 0 && rectangle.getArcHeight() > 0 ) return null;
+
+		Transform transform = rectangle.getLocalToParentTransform();
+		if ( transform.getMxy() != 0 || transform.getMyx() != 0 ) return null;
+
+		return transform.transform(new BoundingBox(rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight()));
 	}
 	
 	@Override
@@ -125,16 +205,13 @@ public class ClipPath
 class ClipPathElement
 {
 	public Use use; // the use params
-	public XMLEventReader reader; // xml reader event unsupported yet!!
 	
 	/**
 	 * 
 	 * @param use Use the use params
-	 * @param reader XMLEventReader xml reader event unsupported yet!!
 	 */
-	public ClipPathElement(Use use, XMLEventReader reader)
+	public ClipPathElement(Use use)
 	{
 		this.use = use;
-		this.reader = reader;
 	}
 }
\ No newline at end of file
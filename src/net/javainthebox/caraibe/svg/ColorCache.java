@@ -0,0 +1,215 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javafx.scene.paint.Color;
+
+/**
+ * An intern cache of parsed svg colors.<br>
+ * Maps a color value, like "#336699", "red" or "rgb(10,20,30)", combined with an opacity to a shared immutable {@link Color},
+ * so a color used by many shapes of many documents is parsed once and held once.
+ * Opacities are combined numerically and kept in the 8 bit resolution of a color channel.
+ * The cache is safe for concurrent use, lookups of cached colors don't allocate.
+ *
+ * <p>{@link SVGContentBuilder} resolves colors through the shared instance:</p>
+ *
+ * <pre>
+ * Color color = ColorCache.getShared().get("#336699", 0.5);
+ * </pre>
+ */
+public final class ColorCache
+{
+	/**
+	 * The default maximum number of cached color values.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 4096;
+
+	private static final ColorCache shared = new ColorCache(DEFAULT_MAX_SIZE);
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final int max_size;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * A color cache.
+	 *
+	 * @param	max_size int the maximum number of cached color values, further values are parsed on every lookup
+	 */
+	public ColorCache(int max_size)
+	{
+		this.max_size = max_size;
+	}
+
+	/**
+	 * Get the process wide cache used by {@link SVGContentBuilder}.
+	 *
+	 * @return	ColorCache
+	 */
+	public static ColorCache getShared()
+	{
+		return shared;
+	}
+
+	/**
+	 * Get the color of a value.
+	 *
+	 * @param	value String the color value
+	 * @return	Color
+	 * @throws	IllegalArgumentException if the value is no color
+	 */
+	public Color get(String value)
+	{
+		return get(value, 1.0);
+	}
+
+	/**
+	 * Get the color of a value with an opacity applied, like a fill with fill-opacity.<br>
+	 * The opacity is multiplied with the opacity of the value.
+	 *
+	 * @param	value String the color value
+	 * @param	opacity double the opacity in [0,1], clamped
+	 * @return	Color
+	 * @throws	IllegalArgumentException if the value is no color
+	 */
+	public Color get(String value, double opacity)
+	{
+		int alpha = (int) Math.round(Math.max(0.0, Math.min(1.0, opacity)) * 255);
+
+		Entry entry = entries.get(value);
+		if ( entry == null )
+		{
+			misses.increment();
+			entry = new Entry(Color.web(value));
+			if ( entries.size() < max_size )
+			{
+				Entry previous = entries.putIfAbsent(value, entry);
+				if ( previous != null ) entry = previous;
+			}
+
+			return entry.get(alpha);
+		}
+
+		Color color = entry.peek(alpha);
+		if ( color == null )
+		{
+			misses.increment();
+			return entry.get(alpha);
+		}
+
+		hits.increment();
+		return color;
+	}
+
+	/**
+	 * @return	int the number of cached color values
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Remove all cached colors.<br>
+	 * The counters are kept.
+	 */
+	public void clear()
+	{
+		entries.clear();
+	}
+
+	/**
+	 * @return	long the number of lookups served from the cache
+	 */
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * @return	long the number of lookups which had to parse or combine a color
+	 */
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * @return	double the share of lookups served from the cache in [0,1]
+	 */
+	public double getHitRate()
+	{
+		long hit_count = hits.sum();
+		long total = hit_count + misses.sum();
+
+		return total == 0 ? 0.0 : (double) hit_count / total;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ colors: ")
+			.append(entries.size())
+			.append(", max_size: ")
+			.append(max_size)
+			.append(", hits: ")
+			.append(hits.sum())
+			.append(", misses: ")
+			.append(misses.sum())
+			.append(" }");
+
+		return sb.toString();
+	}
+
+	/**
+	 * A parsed color value and its variants with reduced opacity, created on demand.
+	 */
+	private static class Entry
+	{
+		private final Color color;
+		private volatile Color[] alphas;
+
+		Entry(Color color)
+		{
+			this.color = color;
+		}
+
+		/**
+		 * @param	alpha int the opacity in [0,255]
+		 * @return	Color the cached color or null, if it has not been created yet
+		 */
+		Color peek(int alpha)
+		{
+			if ( alpha == 255 ) return color;
+
+			Color[] variants = alphas;
+			return variants == null ? null : variants[alpha];
+		}
+
+		/**
+		 * @param	alpha int the opacity in [0,255]
+		 * @return	Color the color, created and cached if needed
+		 */
+		synchronized Color get(int alpha)
+		{
+			if ( alpha == 255 ) return color;
+
+			Color[] variants = alphas;
+			if ( variants == null )
+			{
+				variants = new Color[255];
+				alphas = variants;
+			}
+			if ( variants[alpha] == null )
+			{
+				// colors are immutable, so unsynchronized readers seeing the reference see the whole color
+				variants[alpha] = new Color(color.getRed(), color.getGreen(), color.getBlue(), color.getOpacity() * alpha / 255.0);
+			}
+
+			return variants[alpha];
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read only list view of a double array.<br>
+ * Hands primitive coordinates to JavaFX lists in one bulk operation, like
+ * {@code polygon.getPoints().setAll(new DoubleList(points))}, instead of one boxed add and change event per value.
+ */
+final class DoubleList extends AbstractList<Double> implements RandomAccess
+{
+	private final double[] values;
+	private final int size;
+
+	/**
+	 * A view of all values.
+	 *
+	 * @param	values double[] the values
+	 */
+	DoubleList(double[] values)
+	{
+		this(values, values.length);
+	}
+
+	/**
+	 * A view of the first values.
+	 *
+	 * @param	values double[] the values
+	 * @param	size int the number of values to view
+	 */
+	DoubleList(double[] values, int size)
+	{
+		this.values = values;
+		this.size = size;
+	}
+
+	@Override
+	public Double get(int index)
+	{
+		if ( index >= size ) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		return values[index];
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public Object[] toArray()
+	{
+		Object[] array = new Object[size];
+		for ( int i = 0; i < size; i++ )
+		{
+			array[i] = values[i];
+		}
+
+		return array;
+	}
+}
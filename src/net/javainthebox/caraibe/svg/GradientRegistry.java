@@ -0,0 +1,387 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.paint.Stop;
+import javafx.scene.transform.Affine;
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * The gradients of a document, resolved to paints when a fill or stroke references them,
+ * wherever the gradient is placed in the document.<br>
+ * Attributes and stops missing on a gradient are taken from the gradients its {@code xlink:href} chain references.
+ * Gradients in {@code objectBoundingBox} units, the default, become proportional paints,
+ * which JavaFX maps onto the bounds of each shape they fill, so one paint serves all shapes.
+ * Equal paints are shared, also between gradients with different ids.
+ * A registry belongs to a {@link SVGDocument} and is safe for concurrent use.
+ */
+final class GradientRegistry
+{
+	// longer href chains are cut, this also stops reference cycles
+	private static final int MAX_HREF_DEPTH = 32;
+
+	private final SVGDocument document;
+	private final TransformParser transform_parser = new TransformParser();
+
+	private final Map<String, Paint> resolved = new HashMap<>(); // null for gradients which paint nothing
+	private final Map<Paint, Paint> paints = new HashMap<>();
+
+	/**
+	 * The gradients of a document.
+	 *
+	 * @param	document SVGDocument the document holding the gradient elements
+	 */
+	GradientRegistry(SVGDocument document)
+	{
+		this.document = document;
+	}
+
+	/**
+	 * Get the paint of a gradient.
+	 *
+	 * @param	id String the id of the gradient element
+	 * @return	Paint the shared paint, a color for a gradient with a single stop,
+	 * 			null if there is no such gradient or it paints nothing
+	 */
+	synchronized Paint get(String id)
+	{
+		if ( resolved.containsKey(id) ) return resolved.get(id);
+
+		Paint paint = resolve(id);
+		if ( paint != null )
+		{
+			Paint shared = paints.putIfAbsent(paint, paint);
+			if ( shared != null ) paint = shared;
+		}
+		resolved.put(id, paint);
+
+		return paint;
+	}
+
+	/**
+	 * @return	int the number of distinct paints resolved
+	 */
+	synchronized int getPaintCount()
+	{
+		return paints.size();
+	}
+
+	private Paint resolve(String id)
+	{
+		SVGElement element = document.getElementById(id);
+		if ( element == null || !isGradient(element) )
+		{
+			Logger.getLogger(GradientRegistry.class.getName()).log(Level.INFO, "Not found gradient: {0}", id);
+			return null;
+		}
+
+		try
+		{
+			// nearer gradients of the chain win
+			Gradient gradient = new Gradient();
+			SVGElement current = element;
+			for ( int depth = 0; current != null && depth < MAX_HREF_DEPTH; depth++ )
+			{
+				gradient.inherit(current);
+
+				String href = current.getAttribute(SVGAttribute.HREF);
+				if ( href == null || !href.startsWith("#") ) break;
+
+				current = document.getElementById(href.substring(1));
+				if ( current != null && !isGradient(current) ) current = null;
+			}
+
+			return element.getName().equals("linearGradient") ? gradient.toLinear() : gradient.toRadial();
+		}
+		catch ( IllegalArgumentException ex )
+		{
+			// also malformed numbers and transforms
+			Logger.getLogger(GradientRegistry.class.getName()).log(Level.INFO, "Illegal gradient: " + element, ex);
+			return null;
+		}
+	}
+
+	private static boolean isGradient(SVGElement element)
+	{
+		return element.getName().equals("linearGradient") || element.getName().equals("radialGradient");
+	}
+
+	/**
+	 * The attributes of a gradient collected along its href chain, NaN or null if not specified.
+	 */
+	private class Gradient
+	{
+		String units;
+		Affine transform;
+		CycleMethod cycle;
+		List<Stop> stops;
+		double x1 = Double.NaN;
+		double y1 = Double.NaN;
+		double x2 = Double.NaN;
+		double y2 = Double.NaN;
+		double cx = Double.NaN;
+		double cy = Double.NaN;
+		double r = Double.NaN;
+		double fx = Double.NaN;
+		double fy = Double.NaN;
+		boolean percentages;
+
+		/**
+		 * Take the attributes, which aren't specified yet, from a gradient element.
+		 *
+		 * @param	element SVGElement a linear or radial gradient
+		 */
+		void inherit(SVGElement element)
+		{
+			if ( units == null ) units = element.getAttribute(SVGAttribute.GRADIENT_UNITS);
+			if ( transform == null )
+			{
+				String value = element.getAttribute(SVGAttribute.GRADIENT_TRANSFORM);
+				if ( value != null ) transform = transform_parser.parse(value);
+			}
+			if ( cycle == null ) cycle = toCycleMethod(element.getAttribute(SVGAttribute.SPREAD_METHOD));
+			if ( stops == null && element.getChildCount() > 0 ) stops = toStops(element);
+
+			// coordinates are taken from gradients of the same kind only
+			if ( element.getName().equals("linearGradient") )
+			{
+				x1 = inherit(x1, element, SVGAttribute.X1);
+				y1 = inherit(y1, element, SVGAttribute.Y1);
+				x2 = inherit(x2, element, SVGAttribute.X2);
+				y2 = inherit(y2, element, SVGAttribute.Y2);
+			}
+			else
+			{
+				cx = inherit(cx, element, SVGAttribute.CX);
+				cy = inherit(cy, element, SVGAttribute.CY);
+				r = inherit(r, element, SVGAttribute.R);
+				fx = inherit(fx, element, SVGAttribute.FX);
+				fy = inherit(fy, element, SVGAttribute.FY);
+			}
+		}
+
+		private double inherit(double value, SVGElement element, SVGAttribute attribute)
+		{
+			if ( !Double.isNaN(value) || !element.hasAttribute(attribute) ) return value;
+
+			try
+			{
+				return element.getNumber(attribute, Double.NaN);
+			}
+			catch ( NumberFormatException ex )
+			{
+				// a percentage, like "50%"
+				percentages = true;
+				return toFraction(element.getAttribute(attribute));
+			}
+		}
+
+		/**
+		 * @return	boolean true, if the coordinates are fractions of the bounds of the filled shape
+		 */
+		boolean isProportional()
+		{
+			return !"userSpaceOnUse".equals(units);
+		}
+
+		Paint toLinear()
+		{
+			if ( stops == null || stops.isEmpty() ) return null;
+			if ( stops.size() == 1 ) return stops.get(0).getColor();
+
+			boolean proportional = isProportional();
+			if ( !proportional && ( percentages || Double.isNaN(x2) ) ) return unsupported();
+
+			// the defaults are 0%, 0%, 100%, 0%
+			double sx = Double.isNaN(x1) ? 0 : x1;
+			double sy = Double.isNaN(y1) ? 0 : y1;
+			double ex = Double.isNaN(x2) ? 1 : x2;
+			double ey = Double.isNaN(y2) ? 0 : y2;
+
+			if ( transform != null )
+			{
+				double tsx = transform.getMxx() * sx + transform.getMxy() * sy + transform.getTx();
+				double tsy = transform.getMyx() * sx + transform.getMyy() * sy + transform.getTy();
+				double tex = transform.getMxx() * ex + transform.getMxy() * ey + transform.getTx();
+				double tey = transform.getMyx() * ex + transform.getMyy() * ey + transform.getTy();
+				double dx = ex - sx;
+				double dy = ey - sy;
+				double length = dx * dx + dy * dy;
+				double determinant = transform.determinant();
+				if ( length > 0 && determinant != 0 )
+				{
+					// the stripes stay parallel, but only a similarity keeps them perpendicular to the mapped vector:
+					// their normal is mapped by the inverse transpose, the end is the foot of it on the stripe of offset 1
+					double gx = ( transform.getMyy() * dx - transform.getMyx() * dy ) / ( determinant * length );
+					double gy = ( transform.getMxx() * dy - transform.getMxy() * dx ) / ( determinant * length );
+					double g = gx * gx + gy * gy;
+					tex = tsx + gx / g;
+					tey = tsy + gy / g;
+				}
+				sx = tsx;
+				sy = tsy;
+				ex = tex;
+				ey = tey;
+			}
+
+			return new LinearGradient(sx, sy, ex, ey, proportional, cycle == null ? CycleMethod.NO_CYCLE : cycle, stops);
+		}
+
+		Paint toRadial()
+		{
+			if ( stops == null || stops.isEmpty() ) return null;
+			if ( stops.size() == 1 ) return stops.get(0).getColor();
+
+			boolean proportional = isProportional();
+			if ( !proportional && ( percentages || Double.isNaN(cx) || Double.isNaN(cy) || Double.isNaN(r) ) ) return unsupported();
+
+			// the defaults are 50%, 50%, 50% and the focus in the center
+			double center_x = Double.isNaN(cx) ? 0.5 : cx;
+			double center_y = Double.isNaN(cy) ? 0.5 : cy;
+			double radius = Double.isNaN(r) ? 0.5 : r;
+			double focus_x = Double.isNaN(fx) ? center_x : fx;
+			double focus_y = Double.isNaN(fy) ? center_y : fy;
+
+			if ( transform != null )
+			{
+				double tcx = transform.getMxx() * center_x + transform.getMxy() * center_y + transform.getTx();
+				double tcy = transform.getMyx() * center_x + transform.getMyy() * center_y + transform.getTy();
+				double tfx = transform.getMxx() * focus_x + transform.getMxy() * focus_y + transform.getTx();
+				double tfy = transform.getMyx() * focus_x + transform.getMyy() * focus_y + transform.getTy();
+				center_x = tcx;
+				center_y = tcy;
+				focus_x = tfx;
+				focus_y = tfy;
+				// a circle stays a circle, so a non uniform scale is averaged
+				radius *= Math.sqrt(Math.abs(transform.determinant()));
+			}
+
+			double focus_distance = 0;
+			double focus_angle = 0;
+			if ( radius > 0 && ( focus_x != center_x || focus_y != center_y ) )
+			{
+				focus_distance = Math.min(1.0, Math.hypot(focus_x - center_x, focus_y - center_y) / radius);
+				focus_angle = Math.toDegrees(Math.atan2(focus_y - center_y, focus_x - center_x));
+			}
+
+			return new RadialGradient(focus_angle, focus_distance, center_x, center_y, radius, proportional, cycle == null ? CycleMethod.NO_CYCLE : cycle, stops);
+		}
+
+		private Paint unsupported()
+		{
+			Logger.getLogger(GradientRegistry.class.getName()).log(Level.INFO, "Gradient supports userSpaceOnUse with absolute coordinates only: {0}", stops);
+			return null;
+		}
+	}
+
+	private static CycleMethod toCycleMethod(String spread_method)
+	{
+		if ( spread_method == null ) return null;
+
+		switch ( spread_method )
+		{
+			case "reflect":
+				return CycleMethod.REFLECT;
+			case "repeat":
+				return CycleMethod.REPEAT;
+			default:
+				return CycleMethod.NO_CYCLE;
+		}
+	}
+
+	/**
+	 * Read the {@code <stop>} children of a gradient.
+	 *
+	 * @param	gradient SVGElement the gradient
+	 * @return	List the stops, their offsets never decrease
+	 */
+	private static List<Stop> toStops(SVGElement gradient)
+	{
+		List<Stop> stops = new ArrayList<>();
+		double previous = 0;
+
+		int ln = gradient.getChildCount();
+		for ( int i = 0; i < ln; i++ )
+		{
+			SVGElement element = gradient.getChild(i);
+			if ( !element.getName().equals("stop") )
+			{
+				Logger.getLogger(GradientRegistry.class.getName()).log(Level.INFO, "Gradient doesn''t supports: {0}", element);
+				continue;
+			}
+
+			String color = element.getAttribute(SVGAttribute.STOP_COLOR);
+			String opacity = element.getAttribute(SVGAttribute.STOP_OPACITY);
+
+			String style = element.getAttribute(SVGAttribute.STYLE);
+			if ( style != null )
+			{
+				for ( String declaration : style.split(";") )
+				{
+					int colon = declaration.indexOf(':');
+					if ( colon < 0 ) continue;
+
+					String name = declaration.substring(0, colon).trim();
+					String value = declaration.substring(colon + 1).trim();
+					if ( name.equals("stop-color") ) color = value;
+					else if ( name.equals("stop-opacity") ) opacity = value;
+					else Logger.getLogger(GradientRegistry.class.getName()).log(Level.INFO, "Gradient Stop doesn''t supports: {0} [{1}]", new Object[] { declaration, element });
+				}
+			}
+
+			try
+			{
+				double offset = element.hasAttribute(SVGAttribute.OFFSET) ? toOffset(element) : 0;
+				// an offset less than the previous one is raised to it
+				offset = Math.max(previous, Math.min(1.0, Math.max(0.0, offset)));
+				previous = offset;
+
+				Color colour = ColorCache.getShared().get(color == null ? "black" : color,
+														opacity == null ? 1.0 : Double.parseDouble(opacity));
+				stops.add(new Stop(offset, colour));
+			}
+			catch ( IllegalArgumentException ex )
+			{
+				// also NumberFormatException
+				Logger.getLogger(GradientRegistry.class.getName()).log(Level.INFO, "Illegal Gradient Stop: {0}", element);
+			}
+		}
+
+		return stops;
+	}
+
+	private static double toOffset(SVGElement stop)
+	{
+		try
+		{
+			return stop.getNumber(SVGAttribute.OFFSET, 0);
+		}
+		catch ( NumberFormatException ex )
+		{
+			return toFraction(stop.getAttribute(SVGAttribute.OFFSET));
+		}
+	}
+
+	/**
+	 * @param	percentage String like "50%"
+	 * @return	double the fraction, like 0.5
+	 * @throws	NumberFormatException if the value is no percentage
+	 */
+	private static double toFraction(String percentage)
+	{
+		String value = percentage.trim();
+		if ( !value.endsWith("%") ) throw new NumberFormatException("No percentage: " + percentage);
+
+		return Double.parseDouble(value.substring(0, value.length() - 1)) / 100.0;
+	}
+}
@@ -0,0 +1,256 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import javafx.scene.Node;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.Shape;
+
+/**
+ * Simplified versions of the heavy polylines, polygons and paths of a content, swapped by the scale it is shown at.<br>
+ * For a scale below a threshold the geometry is simplified with a tolerance of half a pixel at that threshold,
+ * at or above the last threshold the full resolution is shown.
+ * Each version is computed from the parsed coordinates when it is first needed, so a content built
+ * for a small scale never computes nor builds its fine versions until it is zoomed in.
+ *
+ * <pre>
+ * LevelOfDetail level_of_detail = new LevelOfDetail(0.1);
+ * level_of_detail.add(polyline, points, points.length);
+ * level_of_detail.setScale(2.0);
+ * </pre>
+ */
+final class LevelOfDetail
+{
+	/**
+	 * The number of vertices a shape needs to be simplified.
+	 */
+	static final int MIN_POINTS = 64;
+
+	/**
+	 * The maximum distance in pixels of a dropped vertex from the simplified geometry.
+	 */
+	static final double TOLERANCE = 0.5;
+
+	/**
+	 * The scales, below which simplified versions are shown.
+	 */
+	static final double[] DEFAULT_THRESHOLDS = { 0.125, 0.25, 0.5, 1.0 };
+
+	private final ArrayList<Entry> entries = new ArrayList<>();
+	private double[] thresholds = DEFAULT_THRESHOLDS;
+	private double scale;
+	private int level;
+
+	/**
+	 * @param	scale double the initial scale
+	 */
+	LevelOfDetail(double scale)
+	{
+		this.scale = scale;
+		this.level = levelOf(scale);
+	}
+
+	/**
+	 * Get the level of a scale.
+	 *
+	 * @param	scale double the scale
+	 * @return	int the index of the first threshold above the scale, the number of thresholds for the full resolution
+	 */
+	int levelOf(double scale)
+	{
+		int i = 0;
+		while ( i < thresholds.length && scale >= thresholds[i] ) i++;
+
+		return i;
+	}
+
+	/**
+	 * Add a polyline or a polygon and set the points of the current level.
+	 *
+	 * @param	shape Shape a Polyline or a Polygon
+	 * @param	points double[] the full resolution coordinates, which must not be changed
+	 * @param	n int the number of coordinates
+	 */
+	void add(Shape shape, double[] points, int n)
+	{
+		Entry entry = new Entry(shape, points, n, null);
+		entries.add(entry);
+		apply(entry);
+	}
+
+	/**
+	 * Add a path and set the elements of the current level.
+	 *
+	 * @param	path Path the path
+	 * @param	data PathData the full resolution path data
+	 */
+	void add(Path path, PathData data)
+	{
+		Entry entry = new Entry(path, null, 0, data);
+		entries.add(entry);
+		apply(entry);
+	}
+
+	/**
+	 * Copy this level of detail for the copies of its shapes.<br>
+	 * The copy shares the versions computed so far.
+	 *
+	 * @param	copies Map<Node, Node> the copies of the shapes by their shapes
+	 * @return	LevelOfDetail the copy
+	 */
+	LevelOfDetail copy(Map<Node, Node> copies)
+	{
+		LevelOfDetail copy = new LevelOfDetail(scale);
+		copy.thresholds = thresholds;
+		copy.level = level;
+		for ( Entry entry : entries )
+		{
+			Shape shape = (Shape) copies.get(entry.shape);
+			if ( shape == null ) continue;
+
+			Entry entry_copy = new Entry(shape, entry.points, entry.n, entry.data);
+			entry_copy.versions = entry.versions;
+			copy.entries.add(entry_copy);
+		}
+
+		return copy;
+	}
+
+	/**
+	 * @return	int the number of shapes
+	 */
+	int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return	double the scale
+	 */
+	double getScale()
+	{
+		return scale;
+	}
+
+	/**
+	 * @return	int the current level, the number of thresholds for the full resolution
+	 */
+	int getLevel()
+	{
+		return level;
+	}
+
+	/**
+	 * Set the scale the content is shown at, swapping the versions of all shapes, if a threshold is crossed.
+	 *
+	 * @param	scale double the scale
+	 */
+	void setScale(double scale)
+	{
+		this.scale = scale;
+		setLevel(levelOf(scale));
+	}
+
+	/**
+	 * Set the scales, below which simplified versions are shown.<br>
+	 * The versions computed for the old thresholds are dropped.
+	 *
+	 * @param	thresholds double[] the scales
+	 */
+	void setThresholds(double... thresholds)
+	{
+		double[] sorted = thresholds.clone();
+		Arrays.sort(sorted);
+		this.thresholds = sorted;
+		for ( Entry entry : entries )
+		{
+			entry.versions = null;
+		}
+
+		level = -1;
+		setLevel(levelOf(scale));
+	}
+
+	private void setLevel(int level)
+	{
+		if ( level == this.level ) return;
+
+		this.level = level;
+		for ( Entry entry : entries )
+		{
+			apply(entry);
+		}
+	}
+
+	private void apply(Entry entry)
+	{
+		Object version = entry.getVersion(level, thresholds);
+		if ( entry.data != null )
+		{
+			((Path) entry.shape).getElements().setAll(((PathData) version).toElements());
+		}
+		else
+		{
+			double[] points = (double[]) version;
+			int n = version == entry.points ? entry.n : points.length;
+			DoubleList list = new DoubleList(points, n);
+			if ( entry.shape instanceof Polygon ) ((Polygon) entry.shape).getPoints().setAll(list);
+			else ((Polyline) entry.shape).getPoints().setAll(list);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ shapes: ")
+			.append(entries.size())
+			.append(", scale: ")
+			.append(scale)
+			.append(", level: ")
+			.append(level)
+			.append(", thresholds: ")
+			.append(Arrays.toString(thresholds))
+			.append(" }");
+
+		return sb.toString();
+	}
+
+	/**
+	 * A shape with its full resolution geometry and the versions computed so far.
+	 */
+	private static class Entry
+	{
+		final Shape shape;
+		final double[] points; // of a polyline or polygon
+		final int n;
+		final PathData data; // of a path
+		Object[] versions; // per level, double[] or PathData
+
+		Entry(Shape shape, double[] points, int n, PathData data)
+		{
+			this.shape = shape;
+			this.points = points;
+			this.n = n;
+			this.data = data;
+		}
+
+		Object getVersion(int level, double[] thresholds)
+		{
+			if ( level >= thresholds.length ) return data != null ? data : points;
+
+			if ( versions == null ) versions = new Object[thresholds.length];
+			if ( versions[level] == null )
+			{
+				double tolerance = TOLERANCE / thresholds[level];
+				versions[level] = data != null ? data.simplify(tolerance) : Simplifier.simplify(points, n, tolerance);
+			}
+
+			return versions[level];
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+
+/**
+ * Reads svg number lists, like the values of points, viewBox, stroke-dasharray or the arguments of a transform.<br>
+ * Supports the full svg number grammar: signs, fractions without leading digit, exponents,
+ * numbers separated by whitespace, a comma or both, and implicit separators like in "1e-3-2" or "0.5.5".<br>
+ * Numbers are converted without creating substrings or boxing.
+ * A scanner is reused for any number of lists, so it is not thread safe.
+ *
+ * <pre>
+ * NumberScanner scanner = new NumberScanner();
+ * double[] points = scanner.toDoubles("10,20 30,40");
+ * </pre>
+ */
+public final class NumberScanner
+{
+	private static final double[] POWERS_OF_TEN = {
+				1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+				1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+			};
+
+	private CharSequence text;
+	private int pos;
+	private int end;
+	private double[] scratch = new double[64];
+
+	/**
+	 * Start reading a list.
+	 *
+	 * @param	text CharSequence the list
+	 * @return	NumberScanner this scanner
+	 */
+	public NumberScanner reset(CharSequence text)
+	{
+		return reset(text, 0, text.length());
+	}
+
+	/**
+	 * Start reading a part of a text as list.
+	 *
+	 * @param	text CharSequence the text
+	 * @param	start int the index of the first char
+	 * @param	end int the index after the last char
+	 * @return	NumberScanner this scanner
+	 */
+	public NumberScanner reset(CharSequence text, int start, int end)
+	{
+		this.text = text;
+		this.pos = start;
+		this.end = end;
+		skipWhiteSpace();
+
+		return this;
+	}
+
+	/**
+	 * @return	boolean true, if another number follows
+	 */
+	public boolean hasNext()
+	{
+		return pos < end && isNumberStart(text.charAt(pos));
+	}
+
+	/**
+	 * @return	int the index of the next unread char
+	 */
+	public int getPosition()
+	{
+		return pos;
+	}
+
+	/**
+	 * Read the next number and the separator following it.
+	 *
+	 * @return	double
+	 * @throws	NumberFormatException if no number follows
+	 */
+	public double next()
+	{
+		int start = pos;
+		boolean negative = false;
+		char c = charAt(pos);
+		if ( c == '-' || c == '+' )
+		{
+			negative = c == '-';
+			c = charAt(++pos);
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean any = false;
+		boolean exact = true;
+		while ( c >= '0' && c <= '9' )
+		{
+			if ( digits < 18 )
+			{
+				mantissa = mantissa * 10 + ( c - '0' );
+				if ( mantissa != 0 ) digits++;
+			}
+			else
+			{
+				// too many significant digits for the mantissa
+				exact = false;
+			}
+			any = true;
+			c = charAt(++pos);
+		}
+		if ( c == '.' )
+		{
+			c = charAt(++pos);
+			while ( c >= '0' && c <= '9' )
+			{
+				if ( digits < 18 )
+				{
+					mantissa = mantissa * 10 + ( c - '0' );
+					if ( mantissa != 0 ) digits++;
+					exponent--;
+				}
+				else
+				{
+					exact = false;
+				}
+				any = true;
+				c = charAt(++pos);
+			}
+		}
+		if ( !any )
+		{
+			throw new NumberFormatException("Expected a number at " + start + ": " + text);
+		}
+
+		if ( c == 'e' || c == 'E' )
+		{
+			// an exponent, if digits follow, like in "1e-3", otherwise a unit like "em"
+			int mark = pos;
+			c = charAt(++pos);
+			boolean negative_exponent = false;
+			if ( c == '-' || c == '+' )
+			{
+				negative_exponent = c == '-';
+				c = charAt(++pos);
+			}
+			if ( c >= '0' && c <= '9' )
+			{
+				int e = 0;
+				while ( c >= '0' && c <= '9' )
+				{
+					if ( e < 10000 ) e = e * 10 + ( c - '0' );
+					c = charAt(++pos);
+				}
+				exponent += negative_exponent ? -e : e;
+			}
+			else
+			{
+				pos = mark;
+			}
+		}
+
+		double value = exact ? toDouble(mantissa, exponent) : Double.NaN;
+		if ( Double.isNaN(value) )
+		{
+			// rare: too many digits or a huge exponent, let the jdk round
+			value = Math.abs(Double.parseDouble(text.subSequence(start, pos).toString()));
+		}
+
+		skipSeparator();
+
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Read a single digit flag, like the large arc and sweep flags of a path arc,
+	 * and the separator following it.<br>
+	 * Flags need no separator, so "a1 1 0 011 2" reads the flags 0 and 1 followed by the number 1.
+	 *
+	 * @return	boolean true for "1", false for "0"
+	 * @throws	NumberFormatException if no flag follows
+	 */
+	boolean nextFlag()
+	{
+		char c = charAt(pos);
+		if ( c != '0' && c != '1' )
+		{
+			throw new NumberFormatException("Expected a flag at " + pos + ": " + text);
+		}
+		pos++;
+		skipSeparator();
+
+		return c == '1';
+	}
+
+	/**
+	 * Read all numbers of a list.
+	 *
+	 * @param	text CharSequence the list
+	 * @return	double[] the numbers
+	 * @throws	NumberFormatException if the list contains something else than numbers
+	 */
+	public double[] toDoubles(CharSequence text)
+	{
+		return Arrays.copyOf(scratch, scan(text));
+	}
+
+	/**
+	 * Read all numbers of a list as floats.
+	 *
+	 * @param	text CharSequence the list
+	 * @return	float[] the numbers
+	 * @throws	NumberFormatException if the list contains something else than numbers
+	 */
+	public float[] toFloats(CharSequence text)
+	{
+		int n = scan(text);
+		float[] floats = new float[n];
+		for ( int i = 0; i < n; i++ )
+		{
+			floats[i] = (float) scratch[i];
+		}
+
+		return floats;
+	}
+
+	/**
+	 * Read all numbers of a list into the scratch array.
+	 *
+	 * @return	int the count of numbers
+	 */
+	private int scan(CharSequence text)
+	{
+		reset(text);
+		int n = 0;
+		while ( pos < end )
+		{
+			if ( n == scratch.length ) scratch = Arrays.copyOf(scratch, n * 2);
+			scratch[n++] = next();
+		}
+
+		return n;
+	}
+
+	/**
+	 * Convert a decimal mantissa and exponent, if it is exact by a single multiplication or division.
+	 *
+	 * @param	mantissa long the digits without sign
+	 * @param	exponent int the power of ten
+	 * @return	double the value or NaN, if the jdk has to round it
+	 */
+	static double toDouble(long mantissa, int exponent)
+	{
+		// both the mantissa and the power of ten are exact doubles, so is the rounded result
+		if ( mantissa >= 1L << 53 || exponent < -22 || exponent > 22 ) return Double.NaN;
+
+		return exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+	}
+
+	/**
+	 * Skip whitespace, at most one comma and whitespace again.
+	 */
+	private void skipSeparator()
+	{
+		skipWhiteSpace();
+		if ( pos < end && text.charAt(pos) == ',' )
+		{
+			pos++;
+			skipWhiteSpace();
+		}
+	}
+
+	private void skipWhiteSpace()
+	{
+		while ( pos < end )
+		{
+			char c = text.charAt(pos);
+			if ( c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f' ) return;
+			pos++;
+		}
+	}
+
+	private char charAt(int index)
+	{
+		return index < end ? text.charAt(index) : 0;
+	}
+
+	private static boolean isNumberStart(char c)
+	{
+		return ( c >= '0' && c <= '9' ) || c == '-' || c == '+' || c == '.';
+	}
+}
@@ -0,0 +1,658 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.shape.ArcTo;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.QuadCurveTo;
+
+/**
+ * The compiled form of svg path data, the {@code d} attribute of a {@code <path>}.<br>
+ * The commands are normalized to absolute move, line, cubic, quadratic, arc and close commands
+ * and stored as one byte per command with their coordinates in a single double array:
+ * relative commands are resolved, H and V become lines, S and T become curves with reflected control points.
+ * An instance is immutable, so it may be shared between any number of nodes and threads.
+ *
+ * <p>Like the svg specification demands, path data with an error is compiled up to the error.</p>
+ *
+ * <pre>
+ * Path path = PathData.get("M10 10 h80 v80 h-80 z").toPath();
+ * </pre>
+ */
+public final class PathData
+{
+	public static final byte MOVE_TO = 'M';
+	public static final byte LINE_TO = 'L';
+	public static final byte CUBIC_TO = 'C';
+	public static final byte QUAD_TO = 'Q';
+	public static final byte ARC_TO = 'A';
+	public static final byte CLOSE = 'Z';
+
+	/**
+	 * The maximum number of compiled path data kept by {@link #get(String)}.
+	 */
+	public static final int MAX_CACHED = 4096;
+
+	private static final Map<String, PathData> cache = new LinkedHashMap<String, PathData>(256, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PathData> eldest)
+		{
+			return size() > MAX_CACHED;
+		}
+	};
+	private static long hits;
+	private static long misses;
+
+	private final byte[] commands;
+	private final double[] coordinates;
+
+	private PathData(byte[] commands, double[] coordinates)
+	{
+		this.commands = commands;
+		this.coordinates = coordinates;
+	}
+
+	/**
+	 * Get the compiled path data of a {@code d} attribute.<br>
+	 * Equal path data is compiled once and then served from a process wide cache,
+	 * so documents repeating the same outlines pay the compilation once.
+	 *
+	 * @param	d String the path data
+	 * @return	PathData
+	 */
+	public static PathData get(String d)
+	{
+		synchronized ( cache )
+		{
+			PathData data = cache.get(d);
+			if ( data != null )
+			{
+				hits++;
+				return data;
+			}
+			misses++;
+		}
+
+		// compile outside the lock, a concurrent compilation of the same data is harmless
+		PathData data = compile(d);
+		synchronized ( cache )
+		{
+			cache.put(d, data);
+		}
+
+		return data;
+	}
+
+	/**
+	 * Compile path data without caching it.
+	 *
+	 * @param	d String the path data
+	 * @return	PathData
+	 */
+	public static PathData compile(String d)
+	{
+		Compiler compiler = new Compiler();
+		compiler.compile(d);
+
+		return new PathData(Arrays.copyOf(compiler.commands, compiler.command_count),
+							Arrays.copyOf(compiler.coordinates, compiler.coordinate_count));
+	}
+
+	/**
+	 * @return	long the number of {@link #get(String)} calls served from the cache
+	 */
+	public static long getCacheHitCount()
+	{
+		synchronized ( cache )
+		{
+			return hits;
+		}
+	}
+
+	/**
+	 * @return	long the number of {@link #get(String)} calls which had to compile
+	 */
+	public static long getCacheMissCount()
+	{
+		synchronized ( cache )
+		{
+			return misses;
+		}
+	}
+
+	/**
+	 * Remove all cached path data.<br>
+	 * The counters are kept.
+	 */
+	public static void clearCache()
+	{
+		synchronized ( cache )
+		{
+			cache.clear();
+		}
+	}
+
+	/**
+	 * @return	int the number of commands
+	 */
+	public int getCommandCount()
+	{
+		return commands.length;
+	}
+
+	/**
+	 * @param	index int the command index
+	 * @return	byte the command at index, one of {@link #MOVE_TO}, {@link #LINE_TO}, {@link #CUBIC_TO},
+	 * 			{@link #QUAD_TO}, {@link #ARC_TO} or {@link #CLOSE}
+	 */
+	public byte getCommand(int index)
+	{
+		return commands[index];
+	}
+
+	/**
+	 * Get the coordinates of all commands in order.<br>
+	 * A move and a line take x, y, a cubic x1, y1, x2, y2, x, y, a quadratic x1, y1, x, y
+	 * and an arc rx, ry, x-axis-rotation, large-arc-flag, sweep-flag, x, y with flags as 0 or 1.
+	 *
+	 * @return	double[] a copy of the coordinates
+	 */
+	public double[] getCoordinates()
+	{
+		return coordinates.clone();
+	}
+
+	/**
+	 * Feed all commands to a visitor, like a renderer or a geometry transformation.
+	 *
+	 * @param	visitor Visitor the visitor
+	 */
+	public void accept(Visitor visitor)
+	{
+		double[] c = coordinates;
+		int j = 0;
+		for ( byte command : commands )
+		{
+			switch ( command )
+			{
+				case MOVE_TO:
+					visitor.moveTo(c[j], c[j + 1]);
+					j += 2;
+					break;
+				case LINE_TO:
+					visitor.lineTo(c[j], c[j + 1]);
+					j += 2;
+					break;
+				case CUBIC_TO:
+					visitor.cubicTo(c[j], c[j + 1], c[j + 2], c[j + 3], c[j + 4], c[j + 5]);
+					j += 6;
+					break;
+				case QUAD_TO:
+					visitor.quadTo(c[j], c[j + 1], c[j + 2], c[j + 3]);
+					j += 4;
+					break;
+				case ARC_TO:
+					visitor.arcTo(c[j], c[j + 1], c[j + 2], c[j + 3] != 0, c[j + 4] != 0, c[j + 5], c[j + 6]);
+					j += 7;
+					break;
+				default:
+					visitor.close();
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Build a new JavaFX path of the commands.<br>
+	 * Its elements are added in one change. Like any new path, it is not filled.
+	 *
+	 * @return	Path
+	 */
+	public Path toPath()
+	{
+		return new Path(toElements());
+	}
+
+	/**
+	 * Build new JavaFX path elements of the commands, to replace the elements of a path in one change.
+	 *
+	 * @return	PathElement[]
+	 */
+	PathElement[] toElements()
+	{
+		PathElement[] elements = new PathElement[commands.length];
+		double[] c = coordinates;
+		int j = 0;
+		for ( int i = 0; i < commands.length; i++ )
+		{
+			switch ( commands[i] )
+			{
+				case MOVE_TO:
+					elements[i] = new MoveTo(c[j], c[j + 1]);
+					j += 2;
+					break;
+				case LINE_TO:
+					elements[i] = new LineTo(c[j], c[j + 1]);
+					j += 2;
+					break;
+				case CUBIC_TO:
+					elements[i] = new CubicCurveTo(c[j], c[j + 1], c[j + 2], c[j + 3], c[j + 4], c[j + 5]);
+					j += 6;
+					break;
+				case QUAD_TO:
+					elements[i] = new QuadCurveTo(c[j], c[j + 1], c[j + 2], c[j + 3]);
+					j += 4;
+					break;
+				case ARC_TO:
+					elements[i] = new ArcTo(c[j], c[j + 1], c[j + 2], c[j + 5], c[j + 6], c[j + 3] != 0, c[j + 4] != 0);
+					j += 7;
+					break;
+				default:
+					elements[i] = new ClosePath();
+					break;
+			}
+		}
+
+		return elements;
+	}
+
+	/**
+	 * Simplify the straight parts of the path with {@link Simplifier}: runs of lines drop the vertices,
+	 * which are closer than a tolerance to the simplified line. Curves and arcs are kept as they are.
+	 *
+	 * @param	tolerance double the maximum distance of a dropped vertex from the simplified line
+	 * @return	PathData the simplified path data, or this, if no vertex is dropped
+	 */
+	public PathData simplify(double tolerance)
+	{
+		byte[] simple_commands = new byte[commands.length];
+		double[] simple = new double[coordinates.length];
+		int command_count = 0;
+		int coordinate_count = 0;
+
+		// the current point followed by the points of consecutive lines
+		double[] run = new double[64];
+		int run_count = 0;
+		double x = 0;
+		double y = 0;
+		double start_x = 0;
+		double start_y = 0;
+		double[] c = coordinates;
+		int j = 0;
+		for ( int i = 0; i <= commands.length; i++ )
+		{
+			byte command = i < commands.length ? commands[i] : CLOSE;
+			if ( i < commands.length && command == LINE_TO )
+			{
+				if ( run_count + 4 > run.length ) run = Arrays.copyOf(run, run.length * 2);
+				if ( run_count == 0 )
+				{
+					run[run_count++] = x;
+					run[run_count++] = y;
+				}
+				x = c[j];
+				y = c[j + 1];
+				run[run_count++] = x;
+				run[run_count++] = y;
+				j += 2;
+				continue;
+			}
+
+			if ( run_count > 0 )
+			{
+				double[] kept = Simplifier.simplify(run, run_count, tolerance);
+				// the current point has been emitted already
+				for ( int k = 2; k < kept.length; k += 2 )
+				{
+					simple_commands[command_count++] = LINE_TO;
+					simple[coordinate_count++] = kept[k];
+					simple[coordinate_count++] = kept[k + 1];
+				}
+				run_count = 0;
+			}
+			if ( i == commands.length ) break;
+
+			int ln;
+			switch ( command )
+			{
+				case MOVE_TO:
+					ln = 2;
+					start_x = c[j];
+					start_y = c[j + 1];
+					break;
+				case CUBIC_TO:
+					ln = 6;
+					break;
+				case QUAD_TO:
+					ln = 4;
+					break;
+				case ARC_TO:
+					ln = 7;
+					break;
+				default:
+					ln = 0;
+					break;
+			}
+			simple_commands[command_count++] = command;
+			System.arraycopy(c, j, simple, coordinate_count, ln);
+			coordinate_count += ln;
+			j += ln;
+			if ( ln > 0 )
+			{
+				x = c[j - 2];
+				y = c[j - 1];
+			}
+			else
+			{
+				x = start_x;
+				y = start_y;
+			}
+		}
+
+		if ( command_count == commands.length ) return this;
+
+		return new PathData(Arrays.copyOf(simple_commands, command_count), Arrays.copyOf(simple, coordinate_count));
+	}
+
+	/**
+	 * Get the normalized path data, like "M10 10 L90 10 Z".
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		int j = 0;
+		for ( byte command : commands )
+		{
+			if ( sb.length() > 0 ) sb.append(' ');
+			sb.append((char) command);
+
+			int n = command == MOVE_TO || command == LINE_TO ? 2
+					: command == CUBIC_TO ? 6
+					: command == QUAD_TO ? 4
+					: command == ARC_TO ? 7
+					: 0;
+			for ( int k = 0; k < n; k++ )
+			{
+				if ( k > 0 ) sb.append(' ');
+				sb.append(AttributeTable.format(coordinates[j++]));
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Receives the commands of path data with absolute coordinates.
+	 */
+	public interface Visitor
+	{
+		void moveTo(double x, double y);
+
+		void lineTo(double x, double y);
+
+		void cubicTo(double x1, double y1, double x2, double y2, double x, double y);
+
+		void quadTo(double x1, double y1, double x, double y);
+
+		void arcTo(double rx, double ry, double x_axis_rotation, boolean large_arc, boolean sweep, double x, double y);
+
+		void close();
+	}
+
+	/**
+	 * Compiles the path data grammar into growing command and coordinate arrays,
+	 * tracking the current point to resolve relative commands.
+	 */
+	private static class Compiler
+	{
+		byte[] commands = new byte[16];
+		int command_count;
+		double[] coordinates = new double[64];
+		int coordinate_count;
+
+		private final NumberScanner numbers = new NumberScanner();
+
+		// current point, start of the subpath and the last control point for S and T
+		private double x;
+		private double y;
+		private double start_x;
+		private double start_y;
+		private double control_x;
+		private double control_y;
+
+		void compile(String d)
+		{
+			if ( d == null ) return;
+
+			int end = d.length();
+			int pos = numbers.reset(d).getPosition();
+			char last = 0;
+			try
+			{
+				while ( pos < end )
+				{
+					char command = d.charAt(pos);
+					// path data has to start with a move
+					if ( command_count == 0 && command != 'M' && command != 'm' ) return;
+
+					numbers.reset(d, pos + 1, end);
+					if ( !segment(command, last) ) return;
+					last = command;
+					pos = numbers.getPosition();
+				}
+			}
+			catch ( NumberFormatException e )
+			{
+				// an error ends the path, what has been compiled so far is kept
+			}
+		}
+
+		/**
+		 * Compile a command with all its argument sets.
+		 *
+		 * @param	command char the command letter
+		 * @param	last char the previous command letter
+		 * @return	boolean false, if the command is unknown
+		 */
+		private boolean segment(char command, char last)
+		{
+			boolean relative = Character.isLowerCase(command);
+			double dx = relative ? x : 0;
+			double dy = relative ? y : 0;
+
+			switch ( Character.toUpperCase(command) )
+			{
+				case 'Z':
+					add(CLOSE);
+					x = start_x;
+					y = start_y;
+					return true;
+				case 'M':
+					x = numbers.next() + dx;
+					y = numbers.next() + dy;
+					start_x = x;
+					start_y = y;
+					add(MOVE_TO);
+					add(x, y);
+					// further pairs are implicit lines
+					while ( numbers.hasNext() )
+					{
+						lineTo(numbers.next() + ( relative ? x : 0 ), numbers.next() + ( relative ? y : 0 ));
+					}
+					return true;
+				case 'L':
+					do
+					{
+						lineTo(numbers.next() + ( relative ? x : 0 ), numbers.next() + ( relative ? y : 0 ));
+					}
+					while ( numbers.hasNext() );
+					return true;
+				case 'H':
+					do
+					{
+						lineTo(numbers.next() + ( relative ? x : 0 ), y);
+					}
+					while ( numbers.hasNext() );
+					return true;
+				case 'V':
+					do
+					{
+						lineTo(x, numbers.next() + ( relative ? y : 0 ));
+					}
+					while ( numbers.hasNext() );
+					return true;
+				case 'C':
+					do
+					{
+						dx = relative ? x : 0;
+						dy = relative ? y : 0;
+						double x1 = numbers.next() + dx;
+						double y1 = numbers.next() + dy;
+						cubicTo(x1, y1, numbers.next() + dx, numbers.next() + dy, numbers.next() + dx, numbers.next() + dy);
+					}
+					while ( numbers.hasNext() );
+					return true;
+				case 'S':
+					do
+					{
+						dx = relative ? x : 0;
+						dy = relative ? y : 0;
+						// the first control point reflects the last one of a previous cubic
+						boolean smooth = isCubic(last);
+						double x1 = smooth ? 2 * x - control_x : x;
+						double y1 = smooth ? 2 * y - control_y : y;
+						cubicTo(x1, y1, numbers.next() + dx, numbers.next() + dy, numbers.next() + dx, numbers.next() + dy);
+						last = 'S';
+					}
+					while ( numbers.hasNext() );
+					return true;
+				case 'Q':
+					do
+					{
+						dx = relative ? x : 0;
+						dy = relative ? y : 0;
+						double x1 = numbers.next() + dx;
+						double y1 = numbers.next() + dy;
+						quadTo(x1, y1, numbers.next() + dx, numbers.next() + dy);
+					}
+					while ( numbers.hasNext() );
+					return true;
+				case 'T':
+					do
+					{
+						boolean smooth = isQuad(last);
+						double x1 = smooth ? 2 * x - control_x : x;
+						double y1 = smooth ? 2 * y - control_y : y;
+						quadTo(x1, y1, numbers.next() + ( relative ? x : 0 ), numbers.next() + ( relative ? y : 0 ));
+						last = 'T';
+					}
+					while ( numbers.hasNext() );
+					return true;
+				case 'A':
+					do
+					{
+						double rx = Math.abs(numbers.next());
+						double ry = Math.abs(numbers.next());
+						double rotation = numbers.next();
+						boolean large_arc = numbers.nextFlag();
+						boolean sweep = numbers.nextFlag();
+						arcTo(rx, ry, rotation, large_arc, sweep, numbers.next() + ( relative ? x : 0 ), numbers.next() + ( relative ? y : 0 ));
+					}
+					while ( numbers.hasNext() );
+					return true;
+				default:
+					return false;
+			}
+		}
+
+		private static boolean isCubic(char command)
+		{
+			return command == 'C' || command == 'c' || command == 'S' || command == 's';
+		}
+
+		private static boolean isQuad(char command)
+		{
+			return command == 'Q' || command == 'q' || command == 'T' || command == 't';
+		}
+
+		private void lineTo(double x, double y)
+		{
+			add(LINE_TO);
+			add(x, y);
+			this.x = x;
+			this.y = y;
+		}
+
+		private void cubicTo(double x1, double y1, double x2, double y2, double x, double y)
+		{
+			add(CUBIC_TO);
+			add(x1, y1);
+			add(x2, y2);
+			add(x, y);
+			control_x = x2;
+			control_y = y2;
+			this.x = x;
+			this.y = y;
+		}
+
+		private void quadTo(double x1, double y1, double x, double y)
+		{
+			add(QUAD_TO);
+			add(x1, y1);
+			add(x, y);
+			control_x = x1;
+			control_y = y1;
+			this.x = x;
+			this.y = y;
+		}
+
+		private void arcTo(double rx, double ry, double rotation, boolean large_arc, boolean sweep, double x, double y)
+		{
+			// an arc to the current point is omitted, one without radius is a line
+			if ( x == this.x && y == this.y ) return;
+			if ( rx == 0 || ry == 0 )
+			{
+				lineTo(x, y);
+				return;
+			}
+
+			add(ARC_TO);
+			add(rx, ry);
+			add(rotation, large_arc ? 1 : 0);
+			add(sweep ? 1 : 0, x);
+			add(y);
+			this.x = x;
+			this.y = y;
+		}
+
+		private void add(byte command)
+		{
+			if ( command_count == commands.length ) commands = Arrays.copyOf(commands, command_count * 2);
+			commands[command_count++] = command;
+		}
+
+		private void add(double a)
+		{
+			if ( coordinate_count == coordinates.length ) coordinates = Arrays.copyOf(coordinates, coordinate_count * 2);
+			coordinates[coordinate_count++] = a;
+		}
+
+		private void add(double a, double b)
+		{
+			if ( coordinate_count + 2 > coordinates.length ) coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+			coordinates[coordinate_count++] = a;
+			coordinates[coordinate_count++] = b;
+		}
+	}
+}
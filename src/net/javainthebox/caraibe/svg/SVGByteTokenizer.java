@@ -0,0 +1,809 @@
+package net.javainthebox.caraibe.svg;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * A hand written tokenizer for the subset of xml svg files use.<br>
+ * Reads UTF-8 or ISO-8859-1 bytes straight from a {@link ByteBuffer} and feeds a {@link SVGDocumentHandler}.
+ * Recognises elements, attributes, text, CDATA sections, comments and the predefined and character entities.
+ * Processing instructions and DTDs are skipped, only the entities the internal subset declares with a literal value are kept,
+ * like the namespace entities of Illustrator files.<br>
+ * Prefixes of names are dropped like the StAX backends do, "xlink:href" is reported as "href".<br>
+ * Meant for trusted inputs: well-formedness is only checked as far as needed to read the document.
+ */
+class SVGByteTokenizer
+{
+	private static final int NAME_CACHE_SIZE = 512; // power of 2
+	private static final byte[] QUOT = { 'q', 'u', 'o', 't' };
+	private static final byte[] APOS = { 'a', 'p', 'o', 's' };
+
+	private final SVGDocumentHandler handler;
+	private final AttributeDecoder attributes;
+
+	// names are decoded and resolved to attributes once, then looked up by their bytes
+	private final byte[][] name_keys = new byte[NAME_CACHE_SIZE][];
+	private final String[] name_values = new String[NAME_CACHE_SIZE];
+	private final SVGAttribute[] name_attributes = new SVGAttribute[NAME_CACHE_SIZE];
+
+	private char[] chars = new char[256];
+	private int chars_ln;
+	private byte[] bytes = new byte[256];
+	private byte[] source;
+	private int source_offset;
+	private double number; // the result of decodeNumber
+	private Map<String, String> entities; // declared in the internal subset, null if none
+
+	private ByteBuffer buffer;
+	private ByteBuffer view; // for bulk reads of buffers without array
+	private int pos;
+	private int limit;
+	private boolean latin1;
+
+	/**
+	 * A tokenizer.
+	 *
+	 * @param	handler SVGDocumentHandler the element handling to feed
+	 */
+	SVGByteTokenizer(SVGDocumentHandler handler)
+	{
+		this.handler = handler;
+		this.attributes = handler.getAttributeDecoder();
+	}
+
+	/**
+	 * Read the document from position to limit of the buffer.<br>
+	 * The position of the buffer is not changed.
+	 *
+	 * @param	buffer ByteBuffer the bytes of the document
+	 * @throws	XMLStreamException if the document can't be read
+	 */
+	void tokenize(ByteBuffer buffer) throws XMLStreamException
+	{
+		this.buffer = buffer;
+		this.view = buffer.duplicate();
+		this.pos = buffer.position();
+		this.limit = buffer.limit();
+		this.latin1 = false;
+		this.entities = null;
+
+		skipByteOrderMark();
+
+		while ( pos < limit && !handler.isDone() )
+		{
+			if ( buffer.get(pos) == '<' ) readMarkup();
+			else readText();
+		}
+
+		if ( handler.getElementName() != null )
+		{
+			throw error("Unexpected end of document in <" + handler.getElementName() + ">");
+		}
+	}
+
+	private void skipByteOrderMark() throws XMLStreamException
+	{
+		if ( limit - pos >= 3
+				&& ( buffer.get(pos) & 0xFF ) == 0xEF
+				&& ( buffer.get(pos + 1) & 0xFF ) == 0xBB
+				&& ( buffer.get(pos + 2) & 0xFF ) == 0xBF )
+		{
+			pos += 3;
+		}
+		else if ( limit - pos >= 2
+				&& ( ( buffer.get(pos) & 0xFF ) == 0xFE || ( buffer.get(pos) & 0xFF ) == 0xFF ) )
+		{
+			throw error("Unsupported encoding: UTF-16");
+		}
+	}
+
+	private void readMarkup() throws XMLStreamException
+	{
+		byte next = byteAt(pos + 1);
+		if ( next == '/' )
+		{
+			readEndTag();
+		}
+		else if ( next == '?' )
+		{
+			readProcessingInstruction();
+		}
+		else if ( next == '!' )
+		{
+			if ( startsWith("<!--") ) pos = indexOf("-->", pos + 4) + 3;
+			else if ( startsWith("<![CDATA[") ) readCData();
+			else if ( startsWith("<!DOCTYPE") ) skipDoctype();
+			else throw error("Unexpected markup");
+		}
+		else
+		{
+			readStartTag();
+		}
+	}
+
+	private void readStartTag() throws XMLStreamException
+	{
+		pos++;
+		String name = name_values[readName()];
+		if ( handler.skipsEmptyElements() && skipEmptyElement(name) ) return;
+
+		while ( true )
+		{
+			skipWhiteSpace();
+			byte b = byteAt(pos);
+			if ( b == '>' )
+			{
+				pos++;
+				handler.startElement(name);
+				return;
+			}
+			if ( b == '/' )
+			{
+				if ( byteAt(pos + 1) != '>' ) throw error("Expected '>'");
+				pos += 2;
+				handler.startElement(name);
+				handler.endElement();
+				return;
+			}
+
+			int slot = readName();
+			String attribute = name_values[slot];
+			SVGAttribute key = name_attributes[slot];
+			skipWhiteSpace();
+			if ( byteAt(pos) != '=' ) throw error("Expected '=' after " + attribute);
+			pos++;
+			skipWhiteSpace();
+
+			byte quote = byteAt(pos);
+			if ( quote != '"' && quote != '\'' ) throw error("Expected quoted value of " + attribute);
+			readValue(quote, key, attribute);
+		}
+	}
+
+	/**
+	 * Skip an empty element the handler doesn't keep, reading only its id.<br>
+	 * Values are scanned for their closing quote, without creating strings or numbers.
+	 *
+	 * @param	name String the local name of the element
+	 * @return	boolean true, if the element has been reported without attributes,
+	 * 			false to read it, the position is unchanged then
+	 */
+	private boolean skipEmptyElement(String name) throws XMLStreamException
+	{
+		int start = pos;
+		while ( true )
+		{
+			skipWhiteSpace();
+			byte b = byteAt(pos);
+			if ( b == '>' ) break;
+			if ( b == '/' )
+			{
+				if ( byteAt(pos + 1) != '>' ) throw error("Expected '>'");
+				if ( handler.keepsElement(name) ) break;
+
+				pos += 2;
+				handler.startElement(name);
+				handler.endElement();
+				return true;
+			}
+
+			int slot = readName();
+			skipWhiteSpace();
+			if ( byteAt(pos) != '=' ) throw error("Expected '=' after " + name_values[slot]);
+			pos++;
+			skipWhiteSpace();
+
+			byte quote = byteAt(pos);
+			if ( quote != '"' && quote != '\'' ) throw error("Expected quoted value of " + name_values[slot]);
+			if ( name_attributes[slot] == SVGAttribute.ID )
+			{
+				readValue(quote, SVGAttribute.ID, name_values[slot]);
+				continue;
+			}
+
+			pos++;
+			while ( pos < limit && buffer.get(pos) != quote ) pos++;
+			if ( pos == limit ) throw error("Unterminated attribute value");
+			pos++;
+		}
+
+		// the id is read again with the other attributes
+		pos = start;
+
+		return false;
+	}
+
+	/**
+	 * Read an attribute value up to the closing quote and add it to the attribute decoder.<br>
+	 * Plain numbers of number attributes are added as number, without creating a string.
+	 *
+	 * @param	quote byte the quote the value is enclosed in
+	 * @param	key SVGAttribute the known attribute or null
+	 * @param	attribute String the local name of the attribute
+	 */
+	private void readValue(byte quote, SVGAttribute key, String attribute) throws XMLStreamException
+	{
+		int start = ++pos;
+		boolean plain = true;
+		while ( pos < limit )
+		{
+			byte b = buffer.get(pos);
+			if ( b == quote ) break;
+			// control characters, entities and anything not ascii need decoding
+			if ( b < 0x20 || b == '&' ) plain = false;
+			pos++;
+		}
+		if ( pos == limit ) throw error("Unterminated attribute value");
+		int end = pos++;
+
+		String value;
+		if ( plain )
+		{
+			if ( key != null && key.isNumber() && decodeNumber(start, end) )
+			{
+				attributes.add(key, number);
+				return;
+			}
+
+			// ascii is latin1 as well, strings are created from the bytes directly
+			source(start, end);
+			value = new String(source, source_offset + start, end - start, StandardCharsets.ISO_8859_1);
+		}
+		else
+		{
+			chars_ln = 0;
+			decode(start, end, true);
+			value = new String(chars, 0, chars_ln);
+		}
+
+		if ( key != null ) attributes.add(key, value);
+		else attributes.add(attribute, value);
+	}
+
+	/**
+	 * Decode a plain number like "-12.5e3" from the bytes into {@link #number}.<br>
+	 * Only numbers which are converted exactly by a single multiplication or division are decoded,
+	 * for others the caller falls back to a string.
+	 *
+	 * @param	start int the first byte
+	 * @param	end int the byte after the last one
+	 * @return	boolean true, if the bytes are a number and it has been decoded
+	 */
+	private boolean decodeNumber(int start, int end)
+	{
+		int i = start;
+		boolean negative = false;
+		if ( i < end && ( buffer.get(i) == '-' || buffer.get(i) == '+' ) )
+		{
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean any = false;
+		while ( i < end && isDigit(buffer.get(i)) )
+		{
+			if ( digits == 18 ) return false;
+			mantissa = mantissa * 10 + ( buffer.get(i++) - '0' );
+			if ( mantissa != 0 ) digits++;
+			any = true;
+		}
+		if ( i < end && buffer.get(i) == '.' )
+		{
+			i++;
+			while ( i < end && isDigit(buffer.get(i)) )
+			{
+				if ( digits == 18 ) return false;
+				mantissa = mantissa * 10 + ( buffer.get(i++) - '0' );
+				if ( mantissa != 0 ) digits++;
+				exponent--;
+				any = true;
+			}
+		}
+		if ( !any ) return false;
+
+		if ( i < end && ( buffer.get(i) == 'e' || buffer.get(i) == 'E' ) )
+		{
+			i++;
+			boolean negative_exponent = false;
+			if ( i < end && ( buffer.get(i) == '-' || buffer.get(i) == '+' ) )
+			{
+				negative_exponent = buffer.get(i) == '-';
+				i++;
+			}
+			if ( i == end ) return false;
+			int e = 0;
+			while ( i < end && isDigit(buffer.get(i)) )
+			{
+				if ( e > 1000 ) return false;
+				e = e * 10 + ( buffer.get(i++) - '0' );
+			}
+			exponent += negative_exponent ? -e : e;
+		}
+		if ( i != end ) return false;
+
+		double value = NumberScanner.toDouble(mantissa, exponent);
+		if ( Double.isNaN(value) ) return false;
+		number = negative ? -value : value;
+
+		return true;
+	}
+
+	private static boolean isDigit(byte b)
+	{
+		return b >= '0' && b <= '9';
+	}
+
+	private void readEndTag() throws XMLStreamException
+	{
+		pos += 2;
+		String name = name_values[readName()];
+		skipWhiteSpace();
+		if ( byteAt(pos) != '>' ) throw error("Expected '>'");
+		pos++;
+
+		if ( !name.equals(handler.getElementName()) )
+		{
+			throw error("Unexpected </" + name + ">");
+		}
+		handler.endElement();
+	}
+
+	private void readText() throws XMLStreamException
+	{
+		int start = pos;
+		boolean white_space = true;
+		while ( pos < limit )
+		{
+			byte b = buffer.get(pos);
+			if ( b == '<' ) break;
+			if ( white_space && b != ' ' && b != '\n' && b != '\r' && b != '\t' ) white_space = false;
+			pos++;
+		}
+
+		// the handler ignores whitespace only data anyway
+		if ( white_space ) return;
+
+		chars_ln = 0;
+		decode(start, pos, false);
+		handler.characters(chars, 0, chars_ln);
+	}
+
+	private void readCData() throws XMLStreamException
+	{
+		int start = pos + 9;
+		int end = indexOf("]]>", start);
+		pos = end + 3;
+
+		chars_ln = 0;
+		for ( int i = start; i < end; )
+		{
+			i = decodeChar(i, end, false);
+		}
+		handler.characters(chars, 0, chars_ln);
+	}
+
+	/**
+	 * Skip a processing instruction, reading the encoding of the xml declaration.
+	 */
+	private void readProcessingInstruction() throws XMLStreamException
+	{
+		int start = pos + 2;
+		int end = indexOf("?>", start);
+		pos = end + 2;
+
+		if ( end - start < 3 || buffer.get(start) != 'x' || buffer.get(start + 1) != 'm' || buffer.get(start + 2) != 'l' ) return;
+
+		StringBuilder declaration = new StringBuilder(end - start);
+		for ( int i = start; i < end; i++ )
+		{
+			declaration.append((char) ( buffer.get(i) & 0xFF ));
+		}
+
+		int index = declaration.indexOf("encoding");
+		if ( index == -1 ) return;
+
+		index = declaration.indexOf("=", index) + 1;
+		while ( Character.isWhitespace(declaration.charAt(index)) ) index++;
+		char quote = declaration.charAt(index);
+		String encoding = declaration.substring(index + 1, declaration.indexOf(String.valueOf(quote), index + 1));
+
+		if ( encoding.equalsIgnoreCase("UTF-8") || encoding.equalsIgnoreCase("US-ASCII") )
+		{
+			latin1 = false;
+		}
+		else if ( encoding.equalsIgnoreCase("ISO-8859-1") || encoding.equalsIgnoreCase("latin1") )
+		{
+			latin1 = true;
+		}
+		else
+		{
+			throw error("Unsupported encoding: " + encoding);
+		}
+	}
+
+	/**
+	 * Skip a document type declaration including its internal subset, but keep the entities declared there.
+	 */
+	private void skipDoctype() throws XMLStreamException
+	{
+		pos += 9;
+		int brackets = 0;
+		byte quote = 0;
+		while ( true )
+		{
+			byte b = byteAt(pos++);
+			if ( quote != 0 )
+			{
+				if ( b == quote ) quote = 0;
+			}
+			else if ( b == '"' || b == '\'' ) quote = b;
+			else if ( b == '[' ) brackets++;
+			else if ( b == ']' ) brackets--;
+			else if ( b == '>' && brackets == 0 ) return;
+			else if ( b == '<' && brackets > 0 && startsWith("!ENTITY") ) readEntityDeclaration();
+		}
+	}
+
+	/**
+	 * Read an entity declaration like {@code <!ENTITY ns_svg "http://www.w3.org/2000/svg">} up to its value.<br>
+	 * Parameter entities and external entities are left to {@link #skipDoctype()}.
+	 * Like in xml, the first declaration of a name is used.
+	 */
+	private void readEntityDeclaration() throws XMLStreamException
+	{
+		pos += 7;
+		skipWhitespace();
+		if ( byteAt(pos) == '%' ) return;
+
+		int start = pos;
+		while ( !isWhitespace(byteAt(pos)) ) pos++;
+		String name = latin1(start, pos);
+		skipWhitespace();
+
+		byte quote = byteAt(pos);
+		if ( quote != '"' && quote != '\'' ) return;
+
+		start = ++pos;
+		while ( byteAt(pos) != quote ) pos++;
+		chars_ln = 0;
+		decode(start, pos++, false);
+		if ( entities == null ) entities = new HashMap<>();
+		entities.putIfAbsent(name, new String(chars, 0, chars_ln));
+	}
+
+	private void skipWhitespace() throws XMLStreamException
+	{
+		while ( isWhitespace(byteAt(pos)) ) pos++;
+	}
+
+	private String latin1(int start, int end)
+	{
+		char[] name = new char[end - start];
+		for ( int i = 0; i < name.length; i++ )
+		{
+			name[i] = (char) ( buffer.get(start + i) & 0xFF );
+		}
+
+		return new String(name);
+	}
+
+	private static boolean isWhitespace(byte b)
+	{
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+
+	/**
+	 * Read a name.
+	 *
+	 * @return	int the slot of the name cache holding its local part and attribute
+	 */
+	private int readName() throws XMLStreamException
+	{
+		int start = pos;
+		int hash = 0;
+		while ( pos < limit )
+		{
+			byte b = buffer.get(pos);
+			if ( b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '=' || b == '/' || b == '>' ) break;
+			hash = 31 * hash + b;
+			pos++;
+		}
+		if ( pos == start ) throw error("Expected a name");
+
+		int slot = ( hash ^ ( hash >>> 16 ) ) & ( NAME_CACHE_SIZE - 1 );
+		byte[] key = name_keys[slot];
+		if ( key != null && matches(key, start, pos) ) return slot;
+
+		int local = start;
+		for ( int i = start; i < pos; i++ )
+		{
+			if ( buffer.get(i) == ':' )
+			{
+				local = i + 1;
+				break;
+			}
+		}
+
+		chars_ln = 0;
+		decode(local, pos, false);
+		String name = new String(chars, 0, chars_ln);
+
+		key = new byte[pos - start];
+		for ( int i = 0; i < key.length; i++ )
+		{
+			key[i] = buffer.get(start + i);
+		}
+		name_keys[slot] = key;
+		name_values[slot] = name;
+		name_attributes[slot] = SVGAttribute.forString(name);
+
+		return slot;
+	}
+
+	private boolean matches(byte[] key, int start, int end)
+	{
+		if ( key.length != end - start ) return false;
+		for ( int i = 0; i < key.length; i++ )
+		{
+			if ( key[i] != buffer.get(start + i) ) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Decode bytes into the char buffer, replacing entities and normalizing line ends.
+	 *
+	 * @param	start int the first byte
+	 * @param	end int the byte after the last one
+	 * @param	attribute boolean true to normalize whitespace like in attribute values
+	 */
+	private void decode(int start, int end, boolean attribute) throws XMLStreamException
+	{
+		// decoding never yields more chars than bytes
+		if ( chars_ln + end - start > chars.length ) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, chars_ln + end - start));
+
+		source(start, end);
+		byte[] source = this.source;
+		int offset = this.source_offset;
+
+		int i = start;
+		while ( i < end )
+		{
+			byte b = source[offset + i];
+			if ( b >= 0x20 && b != '&' )
+			{
+				// printable ascii
+				chars[chars_ln++] = (char) b;
+				i++;
+			}
+			else if ( b == '\n' || b == '\t' )
+			{
+				chars[chars_ln++] = attribute ? ' ' : (char) b;
+				i++;
+			}
+			else if ( b == '\r' )
+			{
+				// \r\n and \r are line ends
+				if ( i + 1 < end && source[offset + i + 1] == '\n' ) i++;
+				chars[chars_ln++] = attribute ? ' ' : '\n';
+				i++;
+			}
+			else if ( b == '&' )
+			{
+				int semicolon = i + 1;
+				while ( semicolon < end && buffer.get(semicolon) != ';' ) semicolon++;
+				if ( semicolon == end ) throw error("Unterminated entity");
+
+				appendEntity(i + 1, semicolon);
+				i = semicolon + 1;
+				// a declared entity may yield more chars than its bytes
+				if ( chars_ln + end - i > chars.length ) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, chars_ln + end - i));
+			}
+			else
+			{
+				i = decodeChar(i, end, attribute);
+			}
+		}
+	}
+
+	/**
+	 * Make the bytes from start to end readable as {@code source[source_offset + index]}.<br>
+	 * Buffers with an array are read in place, others are copied in bulk.
+	 *
+	 * @param	start int the first byte
+	 * @param	end int the byte after the last one
+	 */
+	private void source(int start, int end)
+	{
+		if ( buffer.hasArray() )
+		{
+			source = buffer.array();
+			source_offset = buffer.arrayOffset();
+			return;
+		}
+
+		if ( end - start > bytes.length ) bytes = new byte[Math.max(bytes.length * 2, end - start)];
+		view.position(start);
+		view.get(bytes, 0, end - start);
+		source = bytes;
+		source_offset = -start;
+	}
+
+	/**
+	 * Decode the character at a byte into the char buffer.
+	 *
+	 * @param	i int the first byte of the character
+	 * @param	end int the byte after the last one to decode
+	 * @param	attribute boolean true to normalize whitespace like in attribute values
+	 * @return	int the byte after the character
+	 */
+	private int decodeChar(int i, int end, boolean attribute) throws XMLStreamException
+	{
+		int b = buffer.get(i++) & 0xFF;
+
+		if ( b == '\r' )
+		{
+			// \r\n and \r are line ends
+			if ( i < end && buffer.get(i) == '\n' ) i++;
+			b = '\n';
+		}
+
+		if ( b < 0x80 || latin1 )
+		{
+			if ( attribute && ( b == '\n' || b == '\t' ) ) b = ' ';
+			append((char) b);
+			return i;
+		}
+
+		int code_point;
+		int following;
+		if ( ( b & 0xE0 ) == 0xC0 )
+		{
+			code_point = b & 0x1F;
+			following = 1;
+		}
+		else if ( ( b & 0xF0 ) == 0xE0 )
+		{
+			code_point = b & 0x0F;
+			following = 2;
+		}
+		else if ( ( b & 0xF8 ) == 0xF0 )
+		{
+			code_point = b & 0x07;
+			following = 3;
+		}
+		else
+		{
+			throw error("Invalid UTF-8");
+		}
+
+		if ( i + following > end ) throw error("Invalid UTF-8");
+		for ( int n = 0; n < following; n++ )
+		{
+			code_point = ( code_point << 6 ) | ( buffer.get(i++) & 0x3F );
+		}
+		appendCodePoint(code_point);
+
+		return i;
+	}
+
+	private void appendEntity(int start, int end) throws XMLStreamException
+	{
+		int ln = end - start;
+		byte first = ln > 0 ? buffer.get(start) : 0;
+
+		if ( first == '#' )
+		{
+			int code_point = 0;
+			int radix = 10;
+			int i = start + 1;
+			if ( i < end && buffer.get(i) == 'x' )
+			{
+				radix = 16;
+				i++;
+			}
+			if ( i == end ) throw error("Invalid character reference");
+			for ( ; i < end; i++ )
+			{
+				int digit = Character.digit(buffer.get(i), radix);
+				if ( digit < 0 ) throw error("Invalid character reference");
+				code_point = code_point * radix + digit;
+			}
+			appendCodePoint(code_point);
+		}
+		else if ( ln == 2 && first == 'l' && buffer.get(start + 1) == 't' ) append('<');
+		else if ( ln == 2 && first == 'g' && buffer.get(start + 1) == 't' ) append('>');
+		else if ( ln == 3 && first == 'a' && buffer.get(start + 1) == 'm' && buffer.get(start + 2) == 'p' ) append('&');
+		else if ( ln == 4 && first == 'q' && matches(QUOT, start, end) ) append('"');
+		else if ( ln == 4 && first == 'a' && matches(APOS, start, end) ) append('\'');
+		else
+		{
+			// read from the buffer, the bytes of source may be in use by decode
+			String value = entities == null ? null : entities.get(latin1(start, end));
+			if ( value == null ) throw error("Unsupported entity");
+
+			for ( int i = 0; i < value.length(); i++ )
+			{
+				append(value.charAt(i));
+			}
+		}
+	}
+
+	private void appendCodePoint(int code_point) throws XMLStreamException
+	{
+		if ( !Character.isValidCodePoint(code_point) ) throw error("Invalid character");
+
+		if ( Character.isBmpCodePoint(code_point) )
+		{
+			append((char) code_point);
+		}
+		else
+		{
+			append(Character.highSurrogate(code_point));
+			append(Character.lowSurrogate(code_point));
+		}
+	}
+
+	private void append(char c)
+	{
+		if ( chars_ln == chars.length ) chars = Arrays.copyOf(chars, chars_ln * 2);
+		chars[chars_ln++] = c;
+	}
+
+	private void skipWhiteSpace()
+	{
+		while ( pos < limit )
+		{
+			byte b = buffer.get(pos);
+			if ( b != ' ' && b != '\n' && b != '\r' && b != '\t' ) return;
+			pos++;
+		}
+	}
+
+	private boolean startsWith(String s)
+	{
+		if ( pos + s.length() > limit ) return false;
+		for ( int i = 0; i < s.length(); i++ )
+		{
+			if ( buffer.get(pos + i) != s.charAt(i) ) return false;
+		}
+
+		return true;
+	}
+
+	private int indexOf(String s, int from) throws XMLStreamException
+	{
+		int last = limit - s.length();
+		for ( int i = from; i <= last; i++ )
+		{
+			int n = 0;
+			while ( n < s.length() && buffer.get(i + n) == s.charAt(n) ) n++;
+			if ( n == s.length() ) return i;
+		}
+
+		throw error("Missing " + s);
+	}
+
+	private byte byteAt(int index) throws XMLStreamException
+	{
+		if ( index >= limit ) throw error("Unexpected end of document");
+
+		return buffer.get(index);
+	}
+
+	private XMLStreamException error(String message)
+	{
+		return new XMLStreamException(message + " at byte " + pos);
+	}
+}
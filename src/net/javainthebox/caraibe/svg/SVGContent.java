@@ -1,9 +1,18 @@
 package net.javainthebox.caraibe.svg;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.xml.stream.XMLStreamException;
+
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Bounds;
 import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Shape;
@@ -74,16 +83,196 @@ import javafx.scene.shape.Shape;
  * - switched Group to Pane because of layout/sizing errors:<br>
  * 		Group seems to set the layout bounds to the minX element<br>
  * - group id map is filled<br>
+ * - copy() clones the built content without reading the svg file again<br>
+ * - transforms can be flattened into the geometry, see {@link SVGContentBuilder#setFlattenTransforms(boolean)}<br>
+ * - fill and stroke of groups are inherited by their children, style attributes override presentation attributes<br>
+ * - rules of {@code <style>} elements with id, class and tag selectors are applied<br>
+ * - gradients are resolved when referenced, follow xlink:href and support objectBoundingBox units<br>
+ * - {@code <use>} and clip-path resolve elements defined later in the document, also outside of {@code <defs>}<br>
+ * - {@code <use>} stamps out instances of its reference compiled once, also of {@code <g>} and {@code <symbol>}, and applies x and y<br>
+ * - clip paths are compiled once into a rectangle or a single path, each clipped node gets a copy sharing its geometry<br>
+ * - nodesAt() and nodesIntersecting() find shapes through a spatial index instead of picking<br>
+ * - setViewport() keeps only the subtrees near the visible region in the scene graph<br>
+ * - heavy polylines, polygons and paths can be simplified for the scale they are shown at, see {@link #setDetailScale(double)}<br>
+ * - nodes can be built on demand by getGroup(), getNode() and attaching the content, see {@link SVGContentBuilder#setLazy(boolean)}<br>
+ * - a single element of a file can be loaded, skipping the rest of it, see {@link SVGLoader#loadFragment(String, String)}<br>
  */
 public class SVGContent extends Pane
 {
 	private Map<String, Node> nodes = new HashMap<>();
 	private Map<String, Pane> groups = new HashMap<>();
+	private SVGDocument document;
+	private boolean flatten_transforms;
+	private SpatialIndex spatial_index;
+	private ViewportCuller culler;
+	private LevelOfDetail level_of_detail;
+	private Bounds viewport;
+	private boolean lazy;
+	private SVGContentBuilder builder; // builds the nodes on demand, until all are built
+	private final ChangeListener<Parent> attach_listener = (observable, old_parent, parent) -> {
+		if ( parent != null ) materialize();
+	};
 
 	public SVGContent()
 	{
 		this.setManaged(false);
 	}
+
+	/**
+	 * Let a lazy builder build the nodes on demand.<br>
+	 * All nodes are built, when the content is added to a parent.
+	 * 
+	 * @param	builder SVGContentBuilder the builder holding the parsed document
+	 */
+	void setBuilder(SVGContentBuilder builder)
+	{
+		this.builder = builder;
+		this.lazy = true;
+		parentProperty().addListener(attach_listener);
+	}
+
+	/**
+	 * Build all nodes, which have not been built yet, if the content is lazy.
+	 */
+	private void materialize()
+	{
+		if ( builder == null ) return;
+
+		SVGContentBuilder builder = this.builder;
+		// the builder adds to the children
+		this.builder = null;
+		parentProperty().removeListener(attach_listener);
+		builder.materializeAll();
+	}
+
+	/**
+	 * @return	boolean true, if all nodes have been built, false if the content is lazy and not attached yet
+	 * @see		SVGContentBuilder#setLazy(boolean)
+	 */
+	public boolean isMaterialized()
+	{
+		return builder == null;
+	}
+
+	/**
+	 * Get the children, building all nodes of a lazy content first.
+	 * 
+	 * @return	ObservableList<Node>
+	 */
+	@Override
+	public ObservableList<Node> getChildren()
+	{
+		materialize();
+
+		return super.getChildren();
+	}
+
+	/**
+	 * Set the parsed document this content has been built of.
+	 * 
+	 * @param	document SVGDocument the document
+	 */
+	void setDocument(SVGDocument document)
+	{
+		this.document = document;
+	}
+
+	/**
+	 * Remember, that the content has been built with flattened transforms, so a copy is built the same way.
+	 * 
+	 * @param	flatten_transforms boolean
+	 */
+	void setFlattenTransforms(boolean flatten_transforms)
+	{
+		this.flatten_transforms = flatten_transforms;
+	}
+
+	/**
+	 * Remember the simplified shapes, if the content has been built for a scale.
+	 * 
+	 * @param	level_of_detail LevelOfDetail
+	 */
+	void setLevelOfDetail(LevelOfDetail level_of_detail)
+	{
+		this.level_of_detail = level_of_detail;
+	}
+
+	/**
+	 * Get the parsed document this content has been built of.
+	 * 
+	 * @return	SVGDocument the document or null, if the content has not been loaded
+	 */
+	public SVGDocument getDocument()
+	{
+		return document;
+	}
+
+	/**
+	 * Create an independent copy of this content.<br>
+	 * The built node tree is cloned and the node and group maps point to the clones,
+	 * the svg file is neither read nor parsed again and no element is built again.
+	 * The copy looks like this content does now, changes like {@link #setFill(String, Color)} are copied.
+	 * Paths get copies of their path elements, unlike instances of {@code <use>}, which share them.
+	 * The viewport isn't copied, all nodes of the copy are attached.
+	 * A lazy content, which isn't attached yet, is copied as lazy content built from the document.<br>
+	 * Use it to put the same svg into several places of the scene graph, like table cells.
+	 * 
+	 * @return	SVGContent the copy
+	 */
+	public SVGContent copy()
+	{
+		if ( document == null )
+		{
+			throw new IllegalStateException("SVGContent has not been loaded from a document");
+		}
+
+		if ( builder != null ) return rebuild();
+
+		SVGContent copy = new SVGContent();
+		copy.document = document;
+		copy.flatten_transforms = flatten_transforms;
+
+		Map<Node, Node> copies = new IdentityHashMap<>(nodes.size() + groups.size());
+		copy.getChildren().setAll(UseTemplate.copyChildren(this, this, copies));
+		if ( getClip() != null ) copy.setClip(UseTemplate.copy(getClip()));
+		copy.nodes = new HashMap<>(nodes.size() * 4 / 3 + 1);
+		for ( Map.Entry<String, Node> entry : nodes.entrySet() )
+		{
+			Node node = copies.get(entry.getValue());
+			if ( node != null ) copy.nodes.put(entry.getKey(), node);
+		}
+		for ( Map.Entry<String, Pane> entry : groups.entrySet() )
+		{
+			Node group = copies.get(entry.getValue());
+			if ( group != null ) copy.groups.put(entry.getKey(), (Pane) group);
+		}
+		if ( level_of_detail != null ) copy.level_of_detail = level_of_detail.copy(copies);
+
+		return copy;
+	}
+
+	/**
+	 * Build a lazy copy from the document.
+	 * 
+	 * @return	SVGContent the copy
+	 */
+	private SVGContent rebuild()
+	{
+		try
+		{
+			SVGContentBuilder builder = new SVGContentBuilder(document);
+			builder.setFlattenTransforms(flatten_transforms);
+			builder.setLazy(lazy);
+			if ( level_of_detail != null ) builder.setDetailScale(level_of_detail.getScale());
+
+			return builder.build();
+		}
+		catch ( IOException | XMLStreamException ex )
+		{
+			// the document has been built before
+			throw new IllegalStateException(ex);
+		}
+	}
 	
 	void putNode(String id, Node node)
 	{
@@ -91,23 +280,44 @@ public class SVGContent extends Pane
 	}
 
 	/**
-	 * Gets node object indicated by id. When there is no node indicated by id, return null.
+	 * @return	int the number of nodes built so far
+	 */
+	int getNodeCount()
+	{
+		return nodes.size();
+	}
+
+	/**
+	 * Gets node object indicated by id. When there is no node indicated by id, return null.<br>
+	 * A lazy content builds the node with its subtree on the first call.
 	 * 
 	 * @param id the name of node
 	 * @return node represented by id
 	 */
 	public Node getNode(String id)
 	{
-		return nodes.get(id);
+		Node node = nodes.get(id);
+		if ( node == null && builder != null )
+		{
+			// nodes without id are numbered in the order they are built
+			if ( id.startsWith(SVGContentBuilder.ANONYMOUS_ID_PREFIX) ) materialize();
+			else builder.materialize(id);
+			node = nodes.get(id);
+		}
+
+		return node;
 	}
 	
 	/**
-	 * Get all the nodes of the svg content.
+	 * Get all the nodes of the svg content.<br>
+	 * All nodes of a lazy content are built.
 	 * 
 	 * @return	Map<String, Node>
 	 */
 	public Map<String, Node> getNodes()
 	{
+		materialize();
+
 		return nodes;
 	}
 	
@@ -123,14 +333,163 @@ public class SVGContent extends Pane
 	}
 
 	/**
-	 * Gets group object indicated by id. When there is no group indicated by id, return null.
+	 * Gets group object indicated by id. When there is no group indicated by id, return null.<br>
+	 * A lazy content builds the group with its subtree on the first call.
 	 * 
 	 * @param id the name of group
 	 * @return group represented by id
 	 */
 	public Pane getGroup(String id)
 	{
-		return groups.get(id);
+		Pane group = groups.get(id);
+		if ( group == null && builder != null )
+		{
+			builder.materialize(id);
+			group = groups.get(id);
+		}
+
+		return group;
+	}
+
+	/**
+	 * Find the shapes and images under a point, like the cursor, through a spatial index of their bounds.<br>
+	 * The index is built on the first query and follows changes of the geometry and transforms of the nodes.
+	 * Nodes added or removed after the first query are not found.
+	 * 
+	 * <pre>
+	 * content.setOnMouseMoved(e -&gt; highlight(content.nodesAt(e.getX(), e.getY())));
+	 * </pre>
+	 * 
+	 * @param	x double x in the coordinates of the content
+	 * @param	y double y in the coordinates of the content
+	 * @return	List<Node> the visible nodes containing the point, the topmost first
+	 */
+	public List<Node> nodesAt(double x, double y)
+	{
+		return getSpatialIndex().nodesAt(x, y);
+	}
+
+	/**
+	 * Find the shapes and images in a region through a spatial index of their bounds.
+	 * 
+	 * @param	region Bounds the region in the coordinates of the content
+	 * @return	List<Node> the visible nodes, whose bounds intersect the region, in document order
+	 * @see		#nodesAt(double, double)
+	 */
+	public List<Node> nodesIntersecting(Bounds region)
+	{
+		return getSpatialIndex().nodesIntersecting(region);
+	}
+
+	private SpatialIndex getSpatialIndex()
+	{
+		if ( spatial_index == null )
+		{
+			materialize();
+			spatial_index = new SpatialIndex(this);
+		}
+
+		return spatial_index;
+	}
+
+	/**
+	 * Virtualize a large content: keep only the subtrees, whose bounds intersect the visible region, in the scene graph.<br>
+	 * The bounds of all groups and nodes are recorded on the first call, later calls attach and detach subtrees,
+	 * so the cost of a frame depends on what is visible instead of the size of the document.
+	 * Subtrees near the viewport are attached ahead and kept a while, so panning doesn't attach and detach them every frame.
+	 * Changes of the geometry or structure made after the first call are not followed.
+	 * Detached nodes are still found by {@link #getNode(String)} and {@link #nodesIntersecting(Bounds)}.
+	 * 
+	 * <pre>
+	 * scroll_pane.viewportBoundsProperty().addListener(o -&gt; content.setViewport(content.sceneToLocal(visibleInScene())));
+	 * </pre>
+	 * 
+	 * @param	viewport Bounds the visible region in the coordinates of the content, null to attach all nodes again
+	 */
+	public void setViewport(Bounds viewport)
+	{
+		this.viewport = viewport;
+		if ( viewport == null )
+		{
+			if ( culler != null ) culler.restore();
+			culler = null;
+			return;
+		}
+
+		if ( culler == null )
+		{
+			materialize();
+			culler = new ViewportCuller(this);
+		}
+		culler.update(viewport);
+	}
+
+	/**
+	 * @return	Bounds the visible region set by {@link #setViewport(Bounds)} or null, if all nodes are attached
+	 */
+	public Bounds getViewport()
+	{
+		return viewport;
+	}
+
+	/**
+	 * Set the scale this content is shown at, like the zoom of a map.<br>
+	 * If the content has been built with {@link SVGContentBuilder#setDetailScale(double)},
+	 * the heavy shapes swap their geometry to a version simplified for the scale, when it crosses a threshold.
+	 * Versions are computed when first needed and kept.
+	 * 
+	 * @param	scale double the effective scale from the content to the screen
+	 */
+	public void setDetailScale(double scale)
+	{
+		if ( level_of_detail != null ) level_of_detail.setScale(scale);
+	}
+
+	/**
+	 * @return	double the scale set by {@link #setDetailScale(double)} or NaN, if the content is shown at full resolution
+	 */
+	public double getDetailScale()
+	{
+		return level_of_detail == null ? Double.NaN : level_of_detail.getScale();
+	}
+
+	/**
+	 * Set the scales, below which simplified versions of heavy shapes are shown.<br>
+	 * Below the first scale the coarsest version is shown, at or above the last one the full resolution.
+	 * The default is 0.125, 0.25, 0.5 and 1.
+	 * 
+	 * @param	thresholds double[] the scales
+	 */
+	public void setDetailThresholds(double... thresholds)
+	{
+		if ( level_of_detail != null ) level_of_detail.setThresholds(thresholds);
+	}
+
+	/**
+	 * Get all children of a group of this content, including the ones detached for the viewport.
+	 * 
+	 * @param	parent Parent the group
+	 * @return	List<Node> the children
+	 */
+	List<Node> getContentChildren(Parent parent)
+	{
+		List<Node> children = culler == null ? null : culler.getAllChildren(parent);
+
+		return children == null ? parent.getChildrenUnmodifiable() : children;
+	}
+
+	/**
+	 * Get the group of a node of this content, also if it has been detached for the viewport.
+	 * 
+	 * @param	node Node the node
+	 * @return	Parent the group or null, if the node is not part of the content
+	 */
+	Parent getContentParent(Node node)
+	{
+		Parent parent = node.getParent();
+		if ( parent == null && culler != null ) parent = culler.getDetachedParent(node);
+
+		return parent;
 	}
 
 	/**
@@ -141,7 +500,7 @@ public class SVGContent extends Pane
 	 */
 	public void setFill(String id, String color)
 	{
-		setFill(id, Color.web(color));
+		setFill(id, ColorCache.getShared().get(color));
 	}
 
 	/**
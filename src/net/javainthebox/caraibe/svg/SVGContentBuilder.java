@@ -1,27 +1,20 @@
 package net.javainthebox.caraibe.svg;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.Characters;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
 
 import javafx.geometry.Bounds;
 import javafx.scene.Node;
@@ -29,38 +22,53 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.CycleMethod;
-import javafx.scene.paint.LinearGradient;
 import javafx.scene.paint.Paint;
-import javafx.scene.paint.RadialGradient;
-import javafx.scene.paint.Stop;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Ellipse;
 import javafx.scene.shape.Line;
+import javafx.scene.shape.Path;
 import javafx.scene.shape.Polygon;
 import javafx.scene.shape.Polyline;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.shape.SVGPath;
 import javafx.scene.shape.Shape;
-import javafx.scene.shape.StrokeLineCap;
-import javafx.scene.shape.StrokeLineJoin;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.scene.transform.Affine;
 import javafx.scene.transform.Transform;
-import net.javainthebox.caraibe.svg.attributes.Attributes;
 import net.javainthebox.caraibe.svg.attributes.Display;
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
 
+/**
+ * The materialize stage of the loader.<br>
+ * Turns a parsed {@link SVGDocument} into an {@link SVGContent} of JavaFX nodes.
+ */
 public class SVGContentBuilder
 {
+	/**
+	 * The prefix of the ids given to nodes of elements without id.
+	 */
+	static final String ANONYMOUS_ID_PREFIX = "SVGNode.#";
+
 	private URL url;
+	private SVGDocument document;
 	private SVGContent root;
 	private SVGDocumentData doc_data;
-	private XMLEventReader reader;
 	
-	private Map<String, Paint> gradients;
-	private Map<String, Defs> defs_map;
+	private GradientRegistry gradients;
 	private Map<String, ClipPath> clip_path_map;
+	private Map<SVGElement, Map<SVGStyle, UseTemplate>> templates; // the compiled references of <use> by their inherited style
+	private Set<SVGElement> compiling; // the references being compiled, to break cycles
+	private int template_depth; // > 0 while building the prototype of a template
+
+	private final NumberScanner numbers = new NumberScanner();
+	private final TransformParser transform_parser = new TransformParser();
+	private final StyleResolver style_resolver = new StyleResolver();
+	private boolean flatten_transforms;
+	private double detail_scale = Double.NaN;
+	private LevelOfDetail level_of_detail;
+	private boolean lazy;
+	private Map<SVGElement, Node> materialized; // the nodes built on demand, which are not part of their group yet
+	private Map<SVGElement, SVGElement> parents; // of the elements built into the content, indexed on demand
 
 	private ShapeBuilderCallback createRectCb;
 	private ShapeBuilderCallback createCircleCb;
@@ -69,25 +77,43 @@ public class SVGContentBuilder
 	private ShapeBuilderCallback createPolygonCb;
 	private ShapeBuilderCallback createLineCb;
 	private ShapeBuilderCallback createPolylineCb;
-//	private ShapeBuilderCallback createTextCb;
+	private ShapeBuilderCallback createTextCb;
 	private ShapeBuilderCallback createImageCb;
 //	private ShapeBuilderCallback createGroupCb;
 //	private ShapeBuilderCallback createLinearGradientCb;
 //	private ShapeBuilderCallback createRadialGradientCb;
 
 	/**
-	 * An SVG builder.
+	 * An SVG builder.<br>
+	 * The svg file is parsed when calling {@link #build()}.
 	 * 
 	 * @param	url URL the url of the svg file
 	 */
 	public SVGContentBuilder(URL url)
+	{
+		this(url, null);
+	}
+
+	/**
+	 * An SVG builder of an already parsed document.
+	 * 
+	 * @param	document SVGDocument the parsed document
+	 */
+	public SVGContentBuilder(SVGDocument document)
+	{
+		this(document.getUrl(), document);
+	}
+
+	private SVGContentBuilder(URL url, SVGDocument document)
 	{
 		this.url = url;
+		this.document = document;
 		this.root = new SVGContent();
 
-		gradients = new HashMap<>();
-		defs_map = new HashMap<>();
 		clip_path_map = new HashMap<>();
+		templates = new HashMap<>();
+		compiling = new HashSet<>();
+		materialized = new IdentityHashMap<>();
 		
 		initCallbacks();
 	}
@@ -98,48 +124,288 @@ public class SVGContentBuilder
 	 */
 	private void initCallbacks()
 	{
-		createRectCb = (XMLEventReader reader, StartElement element)-> buildRect(element);
-		createCircleCb = (XMLEventReader reader, StartElement element)-> buildCircle(element);
-		createEllipseCb = (XMLEventReader reader, StartElement element)-> buildEllipse(element);
-		createPathCb = (XMLEventReader reader, StartElement element)-> buildPath(element);
-		createPolygonCb = (XMLEventReader reader, StartElement element)-> buildPolygon(element);
-		createLineCb = (XMLEventReader reader, StartElement element)-> buildLine(element);
-		createPolylineCb = (XMLEventReader reader, StartElement element)-> buildPolyline(element);
-//		createTextCb = (XMLEventReader reader, StartElement element)-> buildText(reader, element);
-		createImageCb = (XMLEventReader reader, StartElement element)-> buildImage(reader, element);
-//		createGroupCb = (XMLEventReader reader, StartElement element)-> buildGroup(reader, element);
-//		createLinearGradientCb = (XMLEventReader reader, StartElement element)-> buildLinearGradient(reader, element);
-//		createRadialGradientCb = (XMLEventReader reader, StartElement element)-> buildRadialGradient(reader, element);
+		createRectCb = (SVGElement element)-> buildRect(element);
+		createCircleCb = (SVGElement element)-> buildCircle(element);
+		createEllipseCb = (SVGElement element)-> buildEllipse(element);
+		createPathCb = (SVGElement element)-> buildPath(element);
+		createPolygonCb = (SVGElement element)-> buildPolygon(element);
+		createLineCb = (SVGElement element)-> buildLine(element);
+		createPolylineCb = (SVGElement element)-> buildPolyline(element);
+		createTextCb = (SVGElement element)-> buildText(element);
+		createImageCb = (SVGElement element)-> buildImage(element);
+//		createGroupCb = (SVGElement element)-> buildGroup(element);
+//		createLinearGradientCb = (SVGElement element)-> buildLinearGradient(element);
+//		createRadialGradientCb = (SVGElement element)-> buildRadialGradient(element);
 	}
 
 	/**
-	 * Build the svg.
+	 * Bake static transforms into the geometry of rects, polygons, polylines, lines and paths while building,
+	 * instead of attaching a transform to each of them.<br>
+	 * Results in a smaller scene graph and cheaper bounds updates for large static drawings.
+	 * Rects which don't stay axis aligned become paths.
+	 * Shapes with a clip path or gradient paints and stroked shapes which would be distorted keep their transform.
+	 * Instances of {@code <use>} keep their transform too, they share the geometry of the referenced element.
+	 * 
+	 * <pre>
+	 * SVGContentBuilder builder = new SVGContentBuilder(SVGLoader.parse(path));
+	 * builder.setFlattenTransforms(true);
+	 * SVGContent content = builder.build();
+	 * </pre>
+	 * 
+	 * @param	flatten_transforms boolean true to flatten, false by default
+	 */
+	public void setFlattenTransforms(boolean flatten_transforms)
+	{
+		this.flatten_transforms = flatten_transforms;
+	}
+
+	/**
+	 * @return	boolean true, if static transforms are baked into the geometry
+	 */
+	public boolean isFlattenTransforms()
+	{
+		return flatten_transforms;
+	}
+
+	/**
+	 * Simplify heavy polylines, polygons and paths for the scale the content is shown at.<br>
+	 * Shapes with many vertices are built from a version simplified for the scale, and swapped by
+	 * {@link SVGContent#setDetailScale(double)}. The full resolution geometry is only built, when the content is zoomed in.
+	 * Shapes whose transform is baked into their geometry are not simplified.
+	 * 
+	 * <pre>
+	 * SVGContentBuilder builder = new SVGContentBuilder(SVGLoader.parse(path));
+	 * builder.setDetailScale(0.1);
+	 * SVGContent content = builder.build();
+	 * // zooming in
+	 * content.setDetailScale(2.0);
+	 * </pre>
+	 * 
+	 * @param	scale double the scale the content is shown at first, NaN to keep the full resolution, by default
+	 */
+	public void setDetailScale(double scale)
+	{
+		this.detail_scale = scale;
+	}
+
+	/**
+	 * @return	double the scale the content is built for, NaN if heavy shapes are not simplified
+	 */
+	public double getDetailScale()
+	{
+		return detail_scale;
+	}
+
+	/**
+	 * Build the nodes of the content on demand, instead of all of them in {@link #build()}.<br>
+	 * The content holds the parsed document, {@link SVGContent#getGroup(String)} and {@link SVGContent#getNode(String)}
+	 * build only the subtree of the requested element.
+	 * All other nodes are built, when the content is added to a parent or its children are requested.
+	 * So showing one symbol of a large sprite sheet costs about one symbol.
+	 * Nodes without id are numbered in the order they are built, so their ids may differ from the ones of an eager build.
+	 * 
+	 * <pre>
+	 * SVGContentBuilder builder = new SVGContentBuilder(SVGLoader.parse(path));
+	 * builder.setLazy(true);
+	 * Pane icon = builder.build().getGroup("icon_42");
+	 * </pre>
+	 * 
+	 * @param	lazy boolean true to build on demand, false by default
+	 */
+	public void setLazy(boolean lazy)
+	{
+		this.lazy = lazy;
+	}
+
+	/**
+	 * @return	boolean true, if the nodes are built on demand
+	 */
+	public boolean isLazy()
+	{
+		return lazy;
+	}
+
+	/**
+	 * Build the svg.<br>
+	 * In lazy mode only the content is created, its nodes are built on demand.
 	 * 
 	 * @return	SVGContent
 	 * @throws	IOException
 	 * @throws	XMLStreamException
 	 */
-	protected SVGContent build() throws IOException, XMLStreamException
+	public SVGContent build() throws IOException, XMLStreamException
 	{
-		XMLInputFactory factory = XMLInputFactory.newInstance();
-		factory.setProperty("javax.xml.stream.isValidating", false);
-		factory.setProperty("javax.xml.stream.isNamespaceAware", false);
-		factory.setProperty("javax.xml.stream.supportDTD", false);
-
-		try ( BufferedInputStream bufferedStream = new BufferedInputStream(url.openStream()) )
+		if ( document == null )
+		{
+			document = new SVGDocumentParser(url).parse();
+		}
+		root.setDocument(document);
+		gradients = document.getGradients();
+		style_resolver.setStyleSheet(document.getStyleSheet());
+		root.setFlattenTransforms(flatten_transforms);
+		if ( !Double.isNaN(detail_scale) )
 		{
-			reader = factory.createXMLEventReader(bufferedStream);
+			level_of_detail = new LevelOfDetail(detail_scale);
+			root.setLevelOfDetail(level_of_detail);
+		}
 
-			// build svg
-			eventLoop(reader, root);
-			reader.close();
+		if ( lazy )
+		{
+			root.setBuilder(this);
+			return root;
 		}
 
+		// build svg
+		buildElement(document.getRoot(), root.getChildren(), SVGStyle.NONE);
+
 		applyDocData();
 		
 		return root;
 	}
 
+	/**
+	 * Build the node of an element by its id, with the style and the clip paths it has in the content,
+	 * and put it and the nodes of its subtree into the node and group maps.<br>
+	 * The node is added to its group, when the group is built.
+	 * Elements which are not part of the content, like the ones in {@code <defs>}, are not built.
+	 * 
+	 * @param	id String the id of the element
+	 */
+	void materialize(String id)
+	{
+		SVGElement element = document.getElementById(id);
+		if ( element == null || !isNode(element.getName()) || materialized.containsKey(element) ) return;
+
+		List<SVGElement> path = getPath(element);
+		if ( path == null ) return;
+
+		SVGStyle style = SVGStyle.NONE;
+		for ( SVGElement ancestor : path )
+		{
+			style = style_resolver.compute(style, ancestor);
+		}
+
+		ArrayList<Node> built = new ArrayList<>(1);
+		try
+		{
+			buildElement(element, built, style);
+		}
+		catch ( IOException | XMLStreamException ex )
+		{
+			Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.SEVERE, null, ex);
+		}
+		if ( !built.isEmpty() ) materialized.put(element, built.get(0));
+	}
+
+	/**
+	 * Build all nodes of the content, which have not been built on demand, and add them to the content.
+	 */
+	void materializeAll()
+	{
+		try
+		{
+			buildElement(document.getRoot(), root.getChildren(), SVGStyle.NONE);
+		}
+		catch ( IOException | XMLStreamException ex )
+		{
+			Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		applyDocData();
+		materialized.clear();
+		parents = null;
+	}
+
+	/**
+	 * Get the ancestors of an element in the content.
+	 * 
+	 * @param	element SVGElement the element
+	 * @return	List<SVGElement> the ancestors from the document element on or null, if the element is not part of the content
+	 */
+	private List<SVGElement> getPath(SVGElement element)
+	{
+		if ( parents == null )
+		{
+			parents = new IdentityHashMap<>();
+			putParents(document.getRoot());
+		}
+		if ( element != document.getRoot() && !parents.containsKey(element) ) return null;
+
+		ArrayList<SVGElement> path = new ArrayList<>();
+		for ( SVGElement parent = parents.get(element); parent != null; parent = parents.get(parent) )
+		{
+			path.add(parent);
+		}
+		Collections.reverse(path);
+
+		return path;
+	}
+
+	private void putParents(SVGElement parent)
+	{
+		int ln = parent.getChildCount();
+		for ( int i = 0; i < ln; i++ )
+		{
+			SVGElement child = parent.getChild(i);
+			parents.put(child, parent);
+			if ( hasContentChildren(child.getName()) ) putParents(child);
+		}
+	}
+
+	/**
+	 * Tell, if an element is built into a node, see {@link #buildElement(SVGElement, List, SVGStyle)}.
+	 * 
+	 * @param	name String the element name
+	 * @return	boolean
+	 */
+	private static boolean isNode(String name)
+	{
+		switch ( name )
+		{
+			case "rect":
+			case "circle":
+			case "ellipse":
+			case "path":
+			case "polygon":
+			case "line":
+			case "polyline":
+			case "text":
+			case "image":
+			case "svg":
+			case "g":
+			case "use":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Tell, if the children of an element are built into the content, see {@link #buildElement(SVGElement, List, SVGStyle)}.
+	 * 
+	 * @param	name String the element name
+	 * @return	boolean
+	 */
+	private static boolean hasContentChildren(String name)
+	{
+		switch ( name )
+		{
+			case "svg":
+			case "g":
+				return true;
+			case "linearGradient":
+			case "radialGradient":
+			case "defs":
+			case "clipPath":
+			case "symbol":
+			case "style":
+				return false;
+			default:
+				// the children of unsupported elements are added to their group
+				return !isNode(name);
+		}
+	}
+
 	private void applyDocData()
 	{
 		if ( doc_data != null )
@@ -180,109 +446,123 @@ public class SVGContentBuilder
 	}
 
 	/**
-	 * Iterate through the svg and build its contents.
+	 * Iterate through the children of an element and build its contents.
 	 * 
-	 * @param	reader XMLEventReader the xml event reader to loop through
-	 * @param	group Pane the instance to hold the shapes
+	 * @param	parent SVGElement the element holding the children
+	 * @param	children List<Node> the children of the group to hold the shapes
+	 * @param	parent_style SVGStyle the computed style of the parent
 	 * @throws	IOException
 	 * @throws	XMLStreamException
 	 */
-	private void eventLoop(XMLEventReader reader, Pane group) throws IOException, XMLStreamException
+	private void buildChildren(SVGElement parent, List<Node> children, SVGStyle parent_style) throws IOException, XMLStreamException
 	{
-		if ( group == null )
+		int ln = parent.getChildCount();
+		for ( int i = 0; i < ln; i++ )
 		{
-			group = new Pane();
+			buildElement(parent.getChild(i), children, parent_style);
 		}
+	}
 
-		while ( reader.hasNext() )
+	/**
+	 * Build an element and add it to a group.<br>
+	 * Children of unsupported elements are added to the group directly.
+	 * An element already built on demand by {@link #materialize(String)} is added as it is.
+	 * 
+	 * @param	element SVGElement the element to build
+	 * @param	children List<Node> the children of the group to hold the shapes
+	 * @param	parent_style SVGStyle the computed style of the parent
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	private void buildElement(SVGElement element, List<Node> children, SVGStyle parent_style) throws IOException, XMLStreamException
+	{
+		// a template gets its own nodes
+		Node materialized_node = template_depth > 0 || materialized.isEmpty() ? null : materialized.remove(element);
+		if ( materialized_node != null )
 		{
-			XMLEvent event = reader.nextEvent();
-			
-			if ( event.isStartElement() )
+			children.add(materialized_node);
+			return;
+		}
+
+		SVGStyle style = style_resolver.compute(parent_style, element);
+		boolean styled = false;
+		Node node = null;
+		switch ( element.getName() )
+		{
+			case "rect":
+				node = buildRect(element);
+				break;
+			case "circle":
+				node = buildCircle(element);
+				break;
+			case "ellipse":
+				node = buildEllipse(element);
+				break;
+			case "path":
+				node = buildPath(element);
+				break;
+			case "polygon":
+				node = buildPolygon(element);
+				break;
+			case "line":
+				node = buildLine(element);
+				break;
+			case "polyline":
+				node = buildPolyline(element);
+				break;
+			case "text":
+				node = buildText(element);
+				break;
+			case "image":
+				node = buildImage(element);
+				break;
+			case "svg":
+				doc_data = getSVGData(element);
+				node = buildGroup(element, style);
+				break;
+			case "g":
+				node = buildGroup(element, style);
+				break;
+			case "linearGradient":
+			case "radialGradient":
+				// resolved when referenced, see GradientRegistry
+				break;
+			case "defs":
+			case "clipPath":
+			case "symbol":
+				// referenced by id, see getClipPath and buildUse
+				break;
+			case "style":
+				// the rules are read with the document, see SVGDocument.getStyleSheet
+				break;
+			case "use":
+				Use use = buildUse(element, style);
+				if ( use != null ) node = useUse(use);
+				// the use has applied the styles, the opacity and the transform of both elements
+				styled = true;
+				break;
+			default:
+				Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Non Support Element: {1}", new Object[] { url, element} );
+				buildChildren(element, children, style);
+				break;
+		}
+		if ( node != null )
+		{
+			if ( node instanceof Shape && !styled )
 			{
-				StartElement element = (StartElement) event;
-
-				Node node = null;
-				switch ( element.getName().toString() )
-				{
-					case "rect":
-						node = buildRect(element);
-						break;
-					case "circle":
-						node = buildCircle(element);
-						break;
-					case "ellipse":
-						node = buildEllipse(element);
-						break;
-					case "path":
-						node = buildPath(element);
-						break;
-					case "polygon":
-						node = buildPolygon(element);
-						break;
-					case "line":
-						node = buildLine(element);
-						break;
-					case "polyline":
-						node = buildPolyline(element);
-						break;
-					case "text":
-						node = buildText(reader, element);
-						break;
-					case "image":
-						node = buildImage(reader, element);
-						break;
-					case "svg":
-						doc_data = getSVGData(element);
-						node = buildGroup(reader, element);
-						break;
-					case "g":
-						node = buildGroup(reader, element);
-						break;
-					case "linearGradient":
-						buildLinearGradient(reader, element);
-						break;
-					case "radialGradient":
-						buildRadialGradient(reader, element);
-						break;
-					case "defs":
-						buildDefs(reader, element);
-						break;
-					case "clipPath":
-						buildClipPath(reader, element);
-						break;
-					case "use":
-						Use use = buildUse(reader, element);
-						node = useUse(use);
-						break;
-					default:
-						Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Non Support Element: {1}", new Object[] { url, element} );
-						break;
-				}
-				if ( node != null )
-				{
-					if ( node instanceof Shape )
-					{
-						setShapeStyle((Shape) node, element);
-					}
-
-					setDisplay(node, element);
-					setOpacity(node, element);
-					setTransform(node, element);
-					setClipPath(node, element);
-					setNodeId(node, element);
-					
-					group.getChildren().add(node);
-				}
+				setShapeStyle((Shape) node, style);
 			}
-			else if ( event.isEndElement() )
+
+			setDisplay(node, element);
+			if ( !styled )
 			{
-				EndElement element = (EndElement) event;
-				if ( element.getName().toString().equals("g") )
-				{
-					return;
-				}
+				setOpacity(node, style);
+				node = transform(node, element);
 			}
+			setClipPath(node, element);
+			setNodeId(node, element);
+			
+			children.add(node);
 		}
 	}
 
@@ -292,53 +572,55 @@ public class SVGContentBuilder
 	 *  {@code<svg version="1.1" id="Ebene_1" xmlns="http://www.w3.org/2000/svg" xmlns:xlink="http://www.w3.org/1999/xlink" x="0px" y="0px"
 	 * width="587px" height="441px" viewBox="0 0 587 441" enable-background="new 0 0 587 441" xml:space="preserve">}.
 	 * 
-	 * @param	element StartElement the {@code <svg>} element
+	 * @param	element SVGElement the {@code <svg>} element
 	 * @return	SVGDocumentData
 	 */
-	private SVGDocumentData getSVGData(StartElement element)
+	private SVGDocumentData getSVGData(SVGElement element)
 	{
 //		System.out.println("SVGContentBuilder.getSVGData("+element+")");
 		SVGDocumentData doc_data = new SVGDocumentData();
 		
-		@SuppressWarnings("unchecked")
-		Iterator<Attribute> it = element.getAttributes();
-		while ( it.hasNext() )
+		int ln = element.getAttributeCount();
+		for ( int i = 0; i < ln; i++ )
 		{
-			Attribute attribute = it.next();
-			switch ( attribute.getName().getLocalPart() )
+			SVGAttribute attribute = element.getAttributeKey(i);
+			if ( attribute == null ) continue;
+
+			String value = element.getAttributeValue(i);
+			switch ( attribute )
 			{
-				case "id":
-					doc_data.id = attribute.getValue();
+				case ID:
+					doc_data.id = value;
 					break;
-				case "version":
-					doc_data.version = attribute.getValue();
+				case VERSION:
+					doc_data.version = value;
 					break;
-				case "xmlns":
-					doc_data.xmlns = attribute.getValue();
+				case XMLNS:
+					doc_data.xmlns = value;
 					break;
-				case "xlink":
-					doc_data.xlink = attribute.getValue();
+				case XLINK:
+					doc_data.xlink = value;
 					break;
-				case "x":
-					doc_data.setX( attribute.getValue() );
+				case X:
+					doc_data.setX( value );
 					break;
-				case "y":
-					doc_data.setY( attribute.getValue() );
+				case Y:
+					doc_data.setY( value );
 					break;
-				case "width":
-					doc_data.setWidth( attribute.getValue() );
+				case WIDTH:
+					doc_data.setWidth( value );
 					break;
-				case "height":
-					doc_data.setHeight( attribute.getValue() );
+				case HEIGHT:
+					doc_data.setHeight( value );
 					break;
-				case "viewBox":
-					doc_data.setViewBox( attribute.getValue() );
+				case VIEW_BOX:
+					doc_data.setViewBox( value );
 					break;
-				case "enable-background":
-					doc_data.setEnableBackground( attribute.getValue() );
+				case ENABLE_BACKGROUND:
+					doc_data.setEnableBackground( value );
 					break;
-				case "space":
-					doc_data.space = attribute.getValue();
+				case SPACE:
+					doc_data.space = value;
 					break;
 				default:
 					break;
@@ -352,369 +634,112 @@ public class SVGContentBuilder
 	 * Build a group.<br>
 	 * Called for {@code <svg>} and {@code <g>} elements.
 	 * 
-	 * @param reader
 	 * @param element
+	 * @param style SVGStyle the computed style of the group, inherited by its children
 	 * @return
 	 * @throws IOException
 	 * @throws XMLStreamException
 	 */
-	private Pane buildGroup(XMLEventReader reader, StartElement element) throws IOException, XMLStreamException
+	private Pane buildGroup(SVGElement element, SVGStyle style) throws IOException, XMLStreamException
 	{
-//		System.out.printf("SVGContentBuilder.buildGroup(%s, %s)\n",reader.toString(), element.toString());
+//		System.out.printf("SVGContentBuilder.buildGroup(%s)\n", element.toString());
 		
 		Pane group = new Pane();
-		eventLoop(reader, group);
+		buildChildren(element, group.getChildren(), style);
 
-		Attribute id_attribute = element.getAttributeByName(new QName("id"));
-		if ( id_attribute != null )
+		String id = element.getAttribute(SVGAttribute.ID);
+		// groups of a template are not part of the content
+		if ( id != null && template_depth == 0 )
 		{
-			root.putGroup(id_attribute.getValue(), group);
+			root.putGroup(id, group);
 		}
 		
 		return group;
 	}
 
-	private Node buildRadialGradient(XMLEventReader reader, StartElement element) throws IOException, XMLStreamException
-	{
-		String id = null;
-		Double fx = null;
-		Double fy = null;
-		Double cx = null;
-		Double cy = null;
-		Double r = null;
-		Transform transform = null;
-
-		@SuppressWarnings("unchecked")
-		Iterator<Attribute> it = element.getAttributes();
-		while ( it.hasNext() )
-		{
-			Attribute attribute = it.next();
-			switch ( attribute.getName().getLocalPart() )
-			{
-				case "id":
-					id = attribute.getValue();
-					break;
-				case "gradientUnits":
-					String gradientUnits = attribute.getValue();
-					if ( !gradientUnits.equals("userSpaceOnUse") )
-					{
-						Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "LinearGradient supports only userSpaceOnUse: {0}", element);
-						return root;
-					}
-					break;
-				case "fx":
-					fx = Double.valueOf(attribute.getValue());
-					break;
-				case "fy":
-					fy = Double.valueOf(attribute.getValue());
-					break;
-				case "cx":
-					cx = Double.valueOf(attribute.getValue());
-					break;
-				case "cy":
-					cy = Double.valueOf(attribute.getValue());
-					break;
-				case "r":
-					r = Double.valueOf(attribute.getValue());
-					break;
-				case "gradientTransform":
-					transform = extractTransform(attribute.getValue());
-					break;
-				default:
-					Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "RadialGradient doesn''t supports: {0}", element);
-					break;
-			}
-		}
-
-		// Stop の読み込み
-		List<Stop> stops = buildStops(reader, "radialGradient");
-
-		if ( id != null && cx != null && cy != null && r != null )
-		{
-			double fDistance = 0.0;
-			double fAngle = 0.0;
-
-			if ( transform != null && transform instanceof Affine )
-			{
-				double tempCx = cx;
-				double tempCy = cy;
-				double tempR = r;
-
-				Affine affine = (Affine) transform;
-				cx = tempCx * affine.getMxx() + tempCy * affine.getMxy() + affine.getTx();
-				cy = tempCx * affine.getMyx() + tempCy * affine.getMyy() + affine.getTy();
-
-				// これは多分違う
-				r = Math.sqrt(tempR * affine.getMxx() * tempR * affine.getMxx() + tempR * affine.getMyx() * tempR * affine.getMyx());
-
-				if ( fx != null && fy != null )
-				{
-					double tempFx = fx;
-					double tempFy = fy;
-					fx = tempFx * affine.getMxx() + tempFy * affine.getMxy() + affine.getTx();
-					fy = tempFx * affine.getMyx() + tempFy * affine.getMyy() + affine.getTy();
-				}
-				else
-				{
-					fAngle = Math.asin(affine.getMyx()) * 180.0 / Math.PI;
-					// これもかなり怪しい
-					fDistance = Math.sqrt((cx - tempCx) * (cx - tempCx) + (cy - tempCy) * (cy - tempCy));
-				}
-			}
-
-			if ( fx != null && fy != null )
-			{
-				fDistance = Math.sqrt((fx - cx) * (fx - cx) + (fy - cy) * (fy - cy)) / r;
-				fAngle = Math.atan2(cy - fy, cx - fx) * 180.0 / Math.PI;
-			}
-
-			RadialGradient gradient = new RadialGradient(fAngle, fDistance, cx, cy, r, false, CycleMethod.NO_CYCLE, stops);
-			gradients.put(id, gradient);
-		}
-		
-		return root;
-	}
-
-	private Node buildLinearGradient(XMLEventReader reader, StartElement element) throws IOException, XMLStreamException
-	{
-		String id = null;
-		double x1 = Double.NaN;
-		double y1 = Double.NaN;
-		double x2 = Double.NaN;
-		double y2 = Double.NaN;
-		Transform transform = null;
-
-		@SuppressWarnings("unchecked")
-		Iterator<Attribute> it = element.getAttributes();
-		while ( it.hasNext() )
-		{
-			Attribute attribute = it.next();
-			switch ( attribute.getName().getLocalPart() )
-			{
-				case "id":
-					id = attribute.getValue();
-					break;
-				case "gradientUnits":
-					String gradientUnits = attribute.getValue();
-					if ( !gradientUnits.equals("userSpaceOnUse") )
-					{
-						Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "LinearGradient supports only userSpaceOnUse: {0}", element);
-						return root;
-					}
-					break;
-				case "x1":
-					x1 = Double.parseDouble(attribute.getValue());
-					break;
-				case "y1":
-					y1 = Double.parseDouble(attribute.getValue());
-					break;
-				case "x2":
-					x2 = Double.parseDouble(attribute.getValue());
-					break;
-				case "y2":
-					y2 = Double.parseDouble(attribute.getValue());
-					break;
-				case "gradientTransform":
-					transform = extractTransform(attribute.getValue());
-					break;
-				default:
-					Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "LinearGradient doesn''t supports: {0}:{1}", new Object[] { attribute, element });
-					break;
-			}
-		}
-
-		// Stop の読み込み
-		List<Stop> stops = buildStops(reader, "linearGradient");
-
-		if ( id != null && x1 != Double.NaN && y1 != Double.NaN && x2 != Double.NaN && y2 != Double.NaN )
-		{
-			if ( transform != null && transform instanceof Affine )
-			{
-				double x1d = x1;
-				double y1d = y1;
-				double x2d = x2;
-				double y2d = y2;
-				Affine affine = (Affine) transform;
-				x1 = x1d * affine.getMxx() + y1d * affine.getMxy() + affine.getTx();
-				y1 = x1d * affine.getMyx() + y1d * affine.getMyy() + affine.getTy();
-				x2 = x2d * affine.getMxx() + y2d * affine.getMxy() + affine.getTx();
-				y2 = x2d * affine.getMyx() + y2d * affine.getMyy() + affine.getTy();
-			}
-
-			LinearGradient gradient = new LinearGradient(x1, y1, x2, y2, false, CycleMethod.NO_CYCLE, stops);
-			gradients.put(id, gradient);
-		}
-		
-		return root;
-	}
-
-	private List<Stop> buildStops(XMLEventReader reader, String kindOfGradient) throws XMLStreamException
-	{
-		List<Stop> stops = new ArrayList<>();
-
-		while ( true )
-		{
-			XMLEvent event = reader.nextEvent();
-			if ( event.isEndElement() && event.asEndElement().getName().getLocalPart().equals(kindOfGradient) )
-			{
-				break;
-			}
-			else if ( event.isStartElement() )
-			{
-				StartElement element = event.asStartElement();
-				if ( !element.getName().getLocalPart().equals("stop") )
-				{
-					Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "LinearGradient doesn''t supports: {0}", element);
-					continue;
-				}
-
-				double offset = Double.NaN;
-				String color = null;
-				double opacity = 1.0;
-
-				@SuppressWarnings("unchecked")
-				Iterator<Attribute> it = element.getAttributes();
-				while ( it.hasNext() )
-				{
-
-					Attribute attribute = it.next();
-					switch ( attribute.getName().getLocalPart() )
-					{
-						case "offset":
-							offset = Double.parseDouble(attribute.getValue());
-							break;
-						case "style":
-							String style = attribute.getValue();
-							StringTokenizer tokenizer = new StringTokenizer(style, ";");
-							while ( tokenizer.hasMoreTokens() )
-							{
-								String item = tokenizer.nextToken().trim();
-								if ( item.startsWith("stop-color") )
-								{
-									color = item.substring(11);
-								}
-								else if ( item.startsWith("stop-opacity") )
-								{
-									opacity = Double.parseDouble(item.substring(13));
-								}
-								else
-								{
-									Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "LinearGradient Stop doesn''t supports: {0} [{1}] ''{2}''", new Object[] { attribute, element, item });
-								}
-							}
-							break;
-						default:
-							Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "LinearGradient Stop doesn''t supports: {0} [{1}]", new Object[] { attribute, element });
-							break;
-					}
-				}
-
-				if ( offset != Double.NaN && color != null )
-				{
-					Color colour = Color.web(color, opacity);
-					Stop stop = new Stop(offset, colour);
-					stops.add(stop);
-				}
-			}
-		}
-
-		return stops;
-	}
-
-	private Shape buildRect(StartElement element)
+	private Shape buildRect(SVGElement element)
 	{
 //		System.out.println("SVGContentBuilder.buildRect("+element+")");
-		Attribute xAttribute = element.getAttributeByName(new QName("x"));
-		Attribute yAttribute = element.getAttributeByName(new QName("y"));
-		Attribute widthAttribute = element.getAttributeByName(new QName("width"));
-		Attribute heightAttribute = element.getAttributeByName(new QName("height"));
-		
-		double x = 0.0;
-		double y = 0.0;
+		double x = element.getNumber(SVGAttribute.X, 0.0);
+		double y = element.getNumber(SVGAttribute.Y, 0.0);
+		double width = element.getNumber(SVGAttribute.WIDTH, 0.0);
+		double height = element.getNumber(SVGAttribute.HEIGHT, 0.0);
 
-		if ( xAttribute != null )
-		{
-			x = Double.parseDouble(xAttribute.getValue());
-		}
-		if ( yAttribute != null )
-		{
-			y = Double.parseDouble(yAttribute.getValue());
-		}
-		Rectangle rect = new Rectangle(x, y, Double.parseDouble(widthAttribute.getValue()), Double.parseDouble(heightAttribute.getValue()));
+		Rectangle rect = new Rectangle(x, y, width, height);
 
 		return rect;
 	}
 
-	private Shape buildCircle(StartElement element)
+	private Shape buildCircle(SVGElement element)
 	{
-		Attribute cxAttribute = element.getAttributeByName(new QName("cx"));
-		Attribute cyAttribute = element.getAttributeByName(new QName("cy"));
-		Attribute radiusAttribute = element.getAttributeByName(new QName("r"));
+		double cx = element.getNumber(SVGAttribute.CX, 0.0);
+		double cy = element.getNumber(SVGAttribute.CY, 0.0);
+		double radius = element.getNumber(SVGAttribute.R, 0.0);
 
-		Circle circle = new Circle(Double.parseDouble(cxAttribute.getValue()), Double.parseDouble(cyAttribute.getValue()), Double.parseDouble(radiusAttribute.getValue()));
+		Circle circle = new Circle(cx, cy, radius);
 
 		return circle;
 	}
 
-	private Shape buildEllipse(StartElement element)
+	private Shape buildEllipse(SVGElement element)
 	{
-		Attribute cxAttribute = element.getAttributeByName(new QName("cx"));
-		Attribute cyAttribute = element.getAttributeByName(new QName("cy"));
-		Attribute radiusXAttribute = element.getAttributeByName(new QName("rx"));
-		Attribute radiusYAttribute = element.getAttributeByName(new QName("ry"));
+		double cx = element.getNumber(SVGAttribute.CX, 0.0);
+		double cy = element.getNumber(SVGAttribute.CY, 0.0);
+		double radiusX = element.getNumber(SVGAttribute.RX, 0.0);
+		double radiusY = element.getNumber(SVGAttribute.RY, 0.0);
 
-		Ellipse ellipse = new Ellipse(Double.parseDouble(cxAttribute.getValue()), Double.parseDouble(cyAttribute.getValue()), Double.parseDouble(radiusXAttribute.getValue()), Double.parseDouble(radiusYAttribute.getValue()));
+		Ellipse ellipse = new Ellipse(cx, cy, radiusX, radiusY);
 
 		return ellipse;
 	}
 
-	private Shape buildPath(StartElement element)
+	private Shape buildPath(SVGElement element)
 	{
-		Attribute dAttribute = element.getAttributeByName(new QName("d"));
+		String dAttribute = element.getAttribute(SVGAttribute.D);
 
-		SVGPath path = new SVGPath();
-		path.setContent(dAttribute.getValue());
+		// compiled once per distinct path data, instead of parsing the string per node
+		PathData data = PathData.get(dAttribute);
+		Path path;
+		if ( isDetailed(element, data.getCommandCount()) )
+		{
+			path = new Path();
+			level_of_detail.add(path, data);
+		}
+		else
+		{
+			path = data.toPath();
+		}
+		// svg paths are filled black by default
+		path.setFill(Color.BLACK);
 
 		return path;
 	}
 
-	private Shape buildPolygon(StartElement element)
+	private Shape buildPolygon(SVGElement element)
 	{
-		Attribute pointsAttribute = element.getAttributeByName(new QName("points"));
+		String pointsAttribute = element.getAttribute(SVGAttribute.POINTS);
 		Polygon polygon = new Polygon();
 
-		StringTokenizer tokenizer = new StringTokenizer(pointsAttribute.getValue(), " ");
-		while ( tokenizer.hasMoreTokens() )
-		{
-			String point = tokenizer.nextToken();
-
-			StringTokenizer tokenizer2 = new StringTokenizer(point, ",");
-			Double x = Double.valueOf(tokenizer2.nextToken());
-			Double y = Double.valueOf(tokenizer2.nextToken());
-
-			polygon.getPoints().add(x);
-			polygon.getPoints().add(y);
-		}
+		double[] points = numbers.toDoubles(pointsAttribute);
+		// an odd coordinate is dropped, all points are set in one change
+		int n = points.length & ~1;
+		if ( isDetailed(element, n / 2) ) level_of_detail.add(polygon, points, n);
+		else polygon.getPoints().setAll(new DoubleList(points, n));
 
 		return polygon;
 	}
 
-	private Shape buildLine(StartElement element)
+	private Shape buildLine(SVGElement element)
 	{
-		Attribute x1Attribute = element.getAttributeByName(new QName("x1"));
-		Attribute y1Attribute = element.getAttributeByName(new QName("y1"));
-		Attribute x2Attribute = element.getAttributeByName(new QName("x2"));
-		Attribute y2Attribute = element.getAttributeByName(new QName("y2"));
-
-		if ( x1Attribute != null && y1Attribute != null && x2Attribute != null && y2Attribute != null )
+		if ( element.hasAttribute(SVGAttribute.X1) && element.hasAttribute(SVGAttribute.Y1)
+				&& element.hasAttribute(SVGAttribute.X2) && element.hasAttribute(SVGAttribute.Y2) )
 		{
-			double x1 = Double.parseDouble(x1Attribute.getValue());
-			double y1 = Double.parseDouble(y1Attribute.getValue());
-			double x2 = Double.parseDouble(x2Attribute.getValue());
-			double y2 = Double.parseDouble(y2Attribute.getValue());
+			double x1 = element.getNumber(SVGAttribute.X1, 0.0);
+			double y1 = element.getNumber(SVGAttribute.Y1, 0.0);
+			double x2 = element.getNumber(SVGAttribute.X2, 0.0);
+			double y2 = element.getNumber(SVGAttribute.Y2, 0.0);
 
 			Line line = new Line(x1, y1, x2, y2);
-			setDashStyle(line, element);
 			
 			return line;
 		}
@@ -724,69 +749,49 @@ public class SVGContentBuilder
 		}
 	}
 
-	private Shape buildPolyline(StartElement element)
+	private Shape buildPolyline(SVGElement element)
 	{
 //		System.out.println("SVGContentBuilder.buildPolyline("+ element+")");
 		Polyline polyline = new Polyline();
-		Attribute pointsAttribute = element.getAttributeByName(new QName("points"));
-
-		StringTokenizer tokenizer = new StringTokenizer(pointsAttribute.getValue(), " ");
-		while ( tokenizer.hasMoreTokens() )
-		{
-			String points = tokenizer.nextToken();
-			StringTokenizer tokenizer2 = new StringTokenizer(points, ",");
-			double x = Double.parseDouble(tokenizer2.nextToken());
-			double y = Double.parseDouble(tokenizer2.nextToken());
-			polyline.getPoints().add(x);
-			polyline.getPoints().add(y);
-		}
+		String pointsAttribute = element.getAttribute(SVGAttribute.POINTS);
 
-		setDashStyle(polyline, element);
+		double[] points = numbers.toDoubles(pointsAttribute);
+		// an odd coordinate is dropped, all points are set in one change
+		int n = points.length & ~1;
+		if ( isDetailed(element, n / 2) ) level_of_detail.add(polyline, points, n);
+		else polyline.getPoints().setAll(new DoubleList(points, n));
 		
 		return polyline;
 	}
 	
-	private void setDashStyle(Shape line, StartElement element)
+	/**
+	 * Tell, if the geometry of a shape is simplified by the level of detail.
+	 * 
+	 * @param	element SVGElement the shape element
+	 * @param	vertices int the number of vertices or commands of the shape
+	 * @return	boolean
+	 */
+	private boolean isDetailed(SVGElement element, int vertices)
 	{
-//		System.out.printf("SVGContentBuilder.setDashStyle(%s, %s)\n", line.toString(), element.toString());
-		Attribute dash_array_attribute = element.getAttributeByName(new QName("stroke-dasharray"));
-		if ( dash_array_attribute != null )
-		{
-			StringTokenizer tokenizer = new StringTokenizer(dash_array_attribute.getValue(), ",");
-			while ( tokenizer.hasMoreTokens() )
-			{
-				String dash = tokenizer.nextToken();
-				line.getStrokeDashArray().add( Double.valueOf(dash) );
-			}
-		}
-		else
-		{
-			return;
-		}
-			
-		Attribute dash_offset_attribute = element.getAttributeByName(new QName("stroke-dashoffset"));
-		if ( dash_offset_attribute != null )
-		{
-			line.setStrokeDashOffset( Double.valueOf(dash_offset_attribute.getValue()) );
-		}
+		return level_of_detail != null && vertices >= LevelOfDetail.MIN_POINTS
+				// templates are copied, a baked transform would be lost by swapping
+				&& template_depth == 0 && !( flatten_transforms && element.hasAttribute(SVGAttribute.TRANSFORM) );
 	}
 
-	private Shape buildText(XMLEventReader reader, StartElement element) throws XMLStreamException
+	private Shape buildText(SVGElement element) throws XMLStreamException
 	{
-		Attribute fontFamilyAttribute = element.getAttributeByName(new QName("font-family"));
-		Attribute fontSizeAttribute = element.getAttributeByName(new QName("font-size"));
+		String fontFamilyAttribute = element.getAttribute(SVGAttribute.FONT_FAMILY);
 
 		// TODO styleにfontの指定がある場合
 		Font font = null;
-		if ( fontFamilyAttribute != null && fontSizeAttribute != null )
+		if ( fontFamilyAttribute != null && element.hasAttribute(SVGAttribute.FONT_SIZE) )
 		{
-			font = Font.font(fontFamilyAttribute.getValue().replace("'", ""), Double.parseDouble(fontSizeAttribute.getValue()));
+			font = Font.font(fontFamilyAttribute.replace("'", ""), element.getNumber(SVGAttribute.FONT_SIZE, 0.0));
 		}
 
-		XMLEvent event = reader.nextEvent();
-		if ( event.isCharacters() )
+		if ( element.getText() != null )
 		{
-			Text text = new Text(((Characters) event).getData());
+			Text text = new Text(element.getText());
 			if ( font != null )
 			{
 				text.setFont(font);
@@ -796,28 +801,26 @@ public class SVGContentBuilder
 		}
 		else
 		{
-			throw new XMLStreamException("Illegal Element: " + event);
+			throw new XMLStreamException("Illegal Element: " + element);
 		}
 	}
 
-	private ImageView buildImage(XMLEventReader reader, StartElement element) throws IOException
+	private ImageView buildImage(SVGElement element) throws IOException
 	{
-		Attribute widthAttribute = element.getAttributeByName(new QName("width"));
-		double width = Double.parseDouble(widthAttribute.getValue());
-		Attribute heightAttribute = element.getAttributeByName(new QName("height"));
-		double height = Double.parseDouble(heightAttribute.getValue());
-		Attribute hrefAttribute = element.getAttributeByName(new QName("href"));
+		double width = element.getNumber(SVGAttribute.WIDTH, 0.0);
+		double height = element.getNumber(SVGAttribute.HEIGHT, 0.0);
+		String hrefAttribute = element.getAttribute(SVGAttribute.HREF);
 
 		URL imageUrl = null;
 		try
 		{
-			imageUrl = new URL(hrefAttribute.getValue());
+			imageUrl = new URL(hrefAttribute);
 		}
 		catch ( MalformedURLException ex )
 		{
 			try
 			{
-				imageUrl = new URL(url, hrefAttribute.getValue());
+				imageUrl = new URL(url, hrefAttribute);
 			}
 			catch ( MalformedURLException ex1 )
 			{
@@ -830,207 +833,229 @@ public class SVGContentBuilder
 	}
 	
 	/**
-	 * Build def element, like:
-	 * {@code <defs>
-	 * 		<rect id="SVGID_1_" x="-40.7" y="-57" width="668.4" height="618"/>
-	 * </defs>}.<br>
-	 * Put data into map to draw in a {@code <use>} case, cloning of Shapes is not possible.
+	 * Get a clip path by its id, like:<br>
+	 * {@code clip-path="url(#SVGID_2_)"}.<br>
+	 * The clip path is built on its first reference, wherever it is defined.
 	 * 
-	 * @param	reader XMLEventReader
-	 * @throws	XMLStreamException 
-	 * @throws	IOException 
+	 * @param	clip_id String the id of the {@code <clipPath>} element
+	 * @return	ClipPath the clip path or null, if there is none with the id
 	 */
-	private void buildDefs(XMLEventReader reader, StartElement defs_el) throws XMLStreamException, IOException
+	private ClipPath getClipPath(String clip_id)
 	{
-//		System.out.printf("SVGContentBuilder.buildDefs(%s, %s, )\n", reader.toString(), defs_el.toString());
+		if ( clip_path_map.containsKey(clip_id) ) return clip_path_map.get(clip_id);
 
-		while ( reader.hasNext() )
+		ClipPath clip_path = null;
+		SVGElement clip_path_el = document.getElementById(clip_id);
+		if ( clip_path_el != null && clip_path_el.getName().equals("clipPath") )
 		{
-//			System.out.println(" - - has next: ");
-			XMLEvent event = reader.nextEvent();
-
-			// check for closing </defs>
-			if ( event.isEndElement() )
-			{
-				EndElement end_element = (EndElement) event;
-				String end_element_name = end_element.getName().getLocalPart();
-				if ( end_element_name.equals("defs") ) return;
-				else continue;
-			}
-			
-			if ( event.isStartElement() )
-			{
-				StartElement element = (StartElement) event;
-
-				String defs_id = element.getAttributeByName(new QName("id")).getValue();
-				Defs defs = new Defs(defs_id, element);
-				defs_map.put(defs_id, defs);
-			}
+			clip_path = buildClipPath(clip_path_el);
+		}
+		else
+		{
+			Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Not found clip path: {1}", new Object[] { url, clip_id });
 		}
+		clip_path_map.put(clip_id, clip_path);
 
-		return;
+		return clip_path;
 	}
-	
+
 	/**
 	 * build clip path, like:<br>
-	 * StartElement<clipPath id="SVGID_2_">
+	 * {@code <clipPath id="SVGID_2_">
 	 * 		<use xlink:href="#SVGID_1_"  overflow="visible"/>
-	 * </clipPath>\.
+	 * </clipPath>}.
 	 * 
-	 * @param	reader XMLEventReader
-	 * @param	clip_path_el StartElement
-	 * @throws	XMLStreamException
-	 * @throws	IOException
+	 * @param	clip_path_el SVGElement
+	 * @return	ClipPath
 	 */
-	private void buildClipPath(XMLEventReader reader, StartElement clip_path_el) throws XMLStreamException, IOException
+	private ClipPath buildClipPath(SVGElement clip_path_el)
 	{
-//		System.out.printf("buildClipPath.buildClipPath(%s, %s, )\n", reader.toString(), clip_path_el.toString());
-		Attribute clip_id = clip_path_el.getAttributeByName(new QName("id"));
+//		System.out.printf("buildClipPath.buildClipPath(%s)\n", clip_path_el.toString());
+		String clip_id = clip_path_el.getAttribute(SVGAttribute.ID);
 //		System.out.println(" - clip_id: "+clip_id);
 		
-		ClipPath clip_path = new ClipPath(clip_id.getValue());
-		clip_path_map.put(clip_id.getValue(), clip_path);
+		ClipPath clip_path = new ClipPath(clip_id);
 		
-		while ( reader.hasNext() )
+		int ln = clip_path_el.getChildCount();
+		for ( int i = 0; i < ln; i++ )
 		{
-			XMLEvent event = reader.nextEvent();
-//			System.out.println(" - reader has next");
-//			System.out.println(" - event: "+event);
+			SVGElement element = clip_path_el.getChild(i);
 
-			// check for closing </clipPath>
-			if ( event.isEndElement() )
+//			System.out.println(" - - name: "+element.getName());
+			switch ( element.getName() )
 			{
-				EndElement end_element = (EndElement) event;
-				String end_element_name = end_element.getName().getLocalPart();
-				if ( end_element_name.equals("clipPath") ) return;
-				else continue;
-			}
-			
-			if ( event.isStartElement() )
-			{
-//				System.out.println(" - - is starting element");
-				StartElement element = (StartElement) event;
-
-//				System.out.println(" - - name: "+element.getName().toString());
-				switch ( element.getName().toString() )
-				{
-//					TODO: check other cases with inline content too
-					case "use":
-						Use use = buildUse(reader, element);
-						ClipPathElement el = new ClipPathElement(use, null);
-						clip_path.addElement(el);
-						break;
-					default:
-						Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Non Support Element: {1}", new Object[] { url, element });
-						break;
-				}
+//				TODO: check other cases with inline content too
+				case "use":
+					Use use = buildUse(element, style_resolver.compute(SVGStyle.NONE, element));
+					if ( use == null ) break;
+					ClipPathElement el = new ClipPathElement(use);
+					clip_path.addElement(el);
+					break;
+				default:
+					Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Non Support Element: {1}", new Object[] { url, element });
+					break;
 			}
 		}
-		
-		return;
+
+		return clip_path;
 	}
 	
 	/**
 	 * Handle a {@code <use>} element like:<br>
 	 * {@code <use xlink:href="#SVGID_1_"  overflow="visible"/>}<br>
-	 * Clone the node referenced by {@code href="id"} and put into clip_path
+	 * Stamp out the node referenced by {@code href="id"}, wherever it is defined, and put into clip_path
 	 * 
-	 * @param	reader XMLEventReader xml event reader
-	 * @param	used_element StartElement the use node
+	 * @param	used_element SVGElement the use node
+	 * @param	style SVGStyle the computed style of the use node
 	 * @return	Use
-	 * @throws	XMLStreamException 
-	 * @throws	IOException 
 	 */
-	private Use buildUse(XMLEventReader reader, StartElement used_element) throws XMLStreamException, IOException
+	private Use buildUse(SVGElement used_element, SVGStyle style)
 	{
 //		System.out.println("SVGContentBuilder.buildUse("+used_element+")");
 		
-		Attribute x_link = used_element.getAttributeByName(new QName("href"));
-//		System.out.printf(" - x_link: %s : %s\n",x_link.getName(), x_link.getValue());
+		String x_link = used_element.getAttribute(SVGAttribute.HREF);
+//		System.out.printf(" - x_link: %s\n", x_link);
 		
 		// get id of used node
 		// cut off starting "#"
-		String used_id = x_link.getValue().substring(1);
-		Defs used_defs = defs_map.get(used_id);
-//		System.out.println(" - used_defs: "+used_defs);
-		if ( used_defs == null )
+		SVGElement href_element = null;
+		if ( x_link != null && x_link.startsWith("#") )
+		{
+			href_element = document.getElementById(x_link.substring(1));
+		}
+		if ( href_element == null )
 		{
 			Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Not found used Element: {1}", new Object[] { url, used_element} );
 			return null;
 		}
-		StartElement href_element = used_defs.getElement();
-//		Node node = null;
+
+		UseTemplate template = getTemplate(href_element, style);
+		Use use = null;
+		if ( template != null )
+		{
+			use = new Use(used_element, href_element, template, this, style);
+//			System.out.println(" - use: "+use);
+		}
+		
+		return use;
+	}
+
+	/**
+	 * Get the template of a referenced element in the context of a {@code <use>}.<br>
+	 * The element is built and styled once per distinct inherited style, all uses stamp out instances of it.
+	 * 
+	 * @param	href_element SVGElement the referenced element
+	 * @param	style SVGStyle the computed style of the use node
+	 * @return	UseTemplate the template or null, if the element is not supported
+	 */
+	private UseTemplate getTemplate(SVGElement href_element, SVGStyle style)
+	{
+		// the opacity of the use is applied to the instance, not inherited
+		SVGStyle inherited = style.inherit();
+		Map<SVGStyle, UseTemplate> by_style = templates.get(href_element);
+		if ( by_style == null )
+		{
+			by_style = new HashMap<>(2);
+			templates.put(href_element, by_style);
+		}
+		else if ( by_style.containsKey(inherited) )
+		{
+			return by_style.get(inherited);
+		}
+
+		if ( !compiling.add(href_element) )
+		{
+			Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Circular reference: {1}", new Object[] { url, href_element} );
+			return null;
+		}
+		UseTemplate template = null;
+		template_depth++;
+		try
+		{
+			Node prototype = buildPrototype(href_element, inherited);
+			if ( prototype != null ) template = new UseTemplate(prototype);
+		}
+		catch ( Exception e )
+		{
+			Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: {1}", new Object[] { url, e.getMessage() });
+		}
+		finally
+		{
+			template_depth--;
+			compiling.remove(href_element);
+		}
+		by_style.put(inherited, template);
+
+		return template;
+	}
+
+	/**
+	 * Build the styled node of a referenced element.
+	 * 
+	 * @param	href_element SVGElement the referenced element
+	 * @param	style SVGStyle the style inherited from the use node
+	 * @return	Node the node or null, if the element is not supported
+	 * @throws	Exception
+	 */
+	private Node buildPrototype(SVGElement href_element, SVGStyle style) throws Exception
+	{
+		SVGStyle href_style = style_resolver.compute(style, href_element);
+		Node node = null;
 		ShapeBuilderCallback callback = null;
-//		System.out.println(" - element: "+element);
-//		System.out.println(" - element.getName: "+element.getName().toString());
 		
-		switch ( href_element.getName().toString() )
+		switch ( href_element.getName() )
 		{
 			case "rect":
 				callback = createRectCb;
-//				node = buildRect(element);
 				break;
 			case "circle":
 				callback = createCircleCb;
-//				node = buildCircle(element);
 				break;
 			case "ellipse":
 				callback = createEllipseCb;
-//				node = buildEllipse(element);
 				break;
 			case "path":
 				callback = createPathCb;
-//				node = buildPath(element);
 				break;
 			case "polygon":
 				callback = createPolygonCb;
-//				node = buildPolygon(element);
 				break;
 			case "line":
 				callback = createLineCb;
-//				node = buildLine(element);
 				break;
 			case "polyline":
 				callback = createPolylineCb;
-//				node = buildPolyline(element);
 				break;
 			case "text":
-				System.err.println(" - not implemented yet");
-//				callback = createTextCb;
-//				node = buildText(reader, element);
+				callback = createTextCb;
 				break;
 			case "image":
 				callback = createImageCb;
-//				node = buildImage(reader, element);
 				break;
 			case "svg":
 			case "g":
-				System.err.println(" - not implemented yet");
-//				callback = createGroupCb;
-//				node = buildGroup(reader, element);
-				break;
-			case "linearGradient":
-				System.err.println(" - not implemented yet");
-//				callback = createLinearGradientCb;
-//				buildLinearGradient(reader, element);
-				break;
-			case "radialGradient":
-				System.err.println(" - not implemented yet");
-//				callback = createRadialGradientCb;
-//				buildRadialGradient(reader, element);
+			case "symbol":
+				Pane group = new Pane();
+				buildChildren(href_element, group.getChildren(), href_style);
+				node = group;
 				break;
 			default:
 				Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: Non Support Element: {1}", new Object[] { url, href_element} );
 				break;
 		}
-		Use use = null;
 		if ( callback != null )
 		{
-			use = new Use(used_element, href_element, callback, this);
-//			System.out.println(" - use: "+use);
+			node = callback.build(href_element);
+			if ( node instanceof Shape ) setShapeStyle((Shape) node, href_style);
 		}
-		
-		return use;
+
+		if ( node != null )
+		{
+			setOpacity(node, href_style);
+			setTransform(node, href_element);
+		}
+
+		return node;
 	}
 
 	/**
@@ -1047,86 +1072,121 @@ public class SVGContentBuilder
 	}
 	
 	/**
-	 * Set the transform of a node.
+	 * Apply the transform of an element to its node.<br>
+	 * If enabled, the transform is baked into the geometry of the node.
 	 * 
-	 * @param node Node the node to transform
-	 * @param element StartElement the xml element with transform infos
+	 * @param	node Node the node to transform
+	 * @param	element SVGElement the xml element with transform infos
+	 * @return	Node the transformed node, which may replace the given one
 	 */
-	void setTransform(Node node, StartElement element)
+	private Node transform(Node node, SVGElement element)
 	{
-		Attribute transformAttribute = element.getAttributeByName(new QName(Attributes.TRANSFORM));
-		if ( transformAttribute != null )
+		String transformAttribute = element.getAttribute(SVGAttribute.TRANSFORM);
+		// the clip path lives in the transformed space of the node
+		if ( flatten_transforms && transformAttribute != null && node instanceof Shape && !element.hasAttribute(SVGAttribute.CLIP_PATH) )
 		{
-			String transforms = transformAttribute.getValue();
+			Affine transform = extractTransform(transformAttribute);
+			if ( transform == null || transform.isIdentity() ) return node;
+
+			Shape flat = TransformFlattener.flatten((Shape) node, transform);
+			if ( flat != null ) return flat;
 
-			Transform transform = extractTransform(transforms);
 			node.getTransforms().add(transform);
+			return node;
 		}
+
+		setTransform(node, element);
+		return node;
 	}
 
-	private Transform extractTransform(String transforms)
+	/**
+	 * Set the transform of a node.<br>
+	 * The transform list is composed into a single affine. A node already holding an affine, like a used element,
+	 * gets the transform appended to it instead of a second one.
+	 * 
+	 * @param node Node the node to transform
+	 * @param element SVGElement the xml element with transform infos
+	 */
+	void setTransform(Node node, SVGElement element)
 	{
-		Transform transform = null;
-
-		StringTokenizer tokenizer = new StringTokenizer(transforms, ")");
-
-		while ( tokenizer.hasMoreTokens() )
+		String transformAttribute = element.getAttribute(SVGAttribute.TRANSFORM);
+		if ( transformAttribute != null )
 		{
-			String transformTxt = tokenizer.nextToken();
-			if ( transformTxt.startsWith("translate(") )
-			{
-				throw new UnsupportedOperationException("Transform:Translate");
-			}
-			else if ( transformTxt.startsWith("scale(") )
-			{
-				throw new UnsupportedOperationException("Transform:Scale");
-			}
-			else if ( transformTxt.startsWith("rotate(") )
-			{
-				throw new UnsupportedOperationException("Transform:Rotate");
-			}
-			else if ( transformTxt.startsWith("skewX(") )
-			{
-				throw new UnsupportedOperationException("Transform:SkewX");
-			}
-			else if ( transformTxt.startsWith("skewY(") )
+			Affine transform = extractTransform(transformAttribute);
+			if ( transform == null || transform.isIdentity() ) return;
+
+			List<Transform> transforms = node.getTransforms();
+			if ( transforms.size() == 1 && transforms.get(0) instanceof Affine )
 			{
-				throw new UnsupportedOperationException("Transform:SkewY");
+				((Affine) transforms.get(0)).append(transform);
 			}
-			else if ( transformTxt.startsWith("matrix(") )
+			else
 			{
-				transformTxt = transformTxt.substring(7);
-				StringTokenizer tokenizer2 = new StringTokenizer(transformTxt, " ");
-				double mxx = Double.parseDouble(tokenizer2.nextToken());
-				double myx = Double.parseDouble(tokenizer2.nextToken());
-				double mxy = Double.parseDouble(tokenizer2.nextToken());
-				double myy = Double.parseDouble(tokenizer2.nextToken());
-				double tx = Double.parseDouble(tokenizer2.nextToken());
-				double ty = Double.parseDouble(tokenizer2.nextToken());
-
-				transform = Transform.affine(mxx, myx, mxy, myy, tx, ty);
+				transforms.add(transform);
 			}
 		}
+	}
+
+	/**
+	 * Apply the transform and the {@code x}, {@code y} position of a {@code <use>} element to an instance,
+	 * before the transform of the referenced element.
+	 * 
+	 * @param	node Node the instance
+	 * @param	use_element SVGElement the {@code <use>} element
+	 */
+	void setUseTransform(Node node, SVGElement use_element)
+	{
+		Affine transform = null;
+		String transformAttribute = use_element.getAttribute(SVGAttribute.TRANSFORM);
+		if ( transformAttribute != null ) transform = extractTransform(transformAttribute);
+
+		double x = use_element.getNumber(SVGAttribute.X, 0.0);
+		double y = use_element.getNumber(SVGAttribute.Y, 0.0);
+		if ( x != 0.0 || y != 0.0 )
+		{
+			if ( transform == null ) transform = new Affine();
+			transform.appendTranslation(x, y);
+		}
+		if ( transform == null || transform.isIdentity() ) return;
 
-		return transform;
+		node.getTransforms().add(0, transform);
+	}
+
+	/**
+	 * Parse a transform list.
+	 * 
+	 * @param	transforms String the transform list, like "translate(10,20) rotate(45)"
+	 * @return	Affine the composed transform or null, if the list is malformed
+	 */
+	private Affine extractTransform(String transforms)
+	{
+		try
+		{
+			return transform_parser.parse(transforms);
+		}
+		catch ( IllegalArgumentException e )
+		{
+			Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "In {0}: {1}", new Object[] { url, e.getMessage() });
+			return null;
+		}
 	}
 	
 	/**
 	 * Set the display status of a node.
 	 * 
 	 * @param	node Node the to set the opacity
-	 * @param	element StartElement the xml element with opacity infos
+	 * @param	element SVGElement the xml element with opacity infos
 	 */
-	void setDisplay(Node node, StartElement element)
+	void setDisplay(Node node, SVGElement element)
 	{
-		Attribute displayAttribute = element.getAttributeByName(new QName(Attributes.DISPPLAY));
+		String displayAttribute = element.getAttribute(SVGAttribute.DISPLAY);
 		if ( displayAttribute != null )
 		{
 			// possible values:
 			// inline | block | list-item | run-in | compact | marker | table | inline-table | table-row-group | table-header-group | table-footer-group | table-row | table-column-group | table-column | table-cell | table-caption | none | inherit
 			// handled:
 			// none |
-			Display display = Display.forString(displayAttribute.getValue());
+			Display display = Display.forString(displayAttribute);
 			
 			if ( Display.NONE == display ) node.setVisible(false);
 		}
@@ -1136,31 +1196,41 @@ public class SVGContentBuilder
 	 * Set the opacity of a node.
 	 * 
 	 * @param	node Node the to set the opacity
-	 * @param	element StartElement the xml element with opacity infos
+	 * @param	style SVGStyle the computed style of the element
 	 */
-	void setOpacity(Node node, StartElement element)
+	void setOpacity(Node node, SVGStyle style)
 	{
-		Attribute opacityAttribute = element.getAttributeByName(new QName(Attributes.OPACITY));
-		if ( opacityAttribute != null )
+		if ( !Double.isNaN(style.opacity) )
 		{
-			double opacity = Double.parseDouble(opacityAttribute.getValue());
-			node.setOpacity(opacity);
+			node.setOpacity(style.opacity);
 		}
 	}
 
-	private Paint expressPaint(String value)
+	/**
+	 * Get the paint of a fill or stroke value.<br>
+	 * Colors are shared through {@link ColorCache#getShared()}.
+	 * 
+	 * @param	value String "none", a color or a gradient reference like "url(#id)", optionally followed by a fallback color
+	 * @param	opacity double the opacity applied to a color, like fill-opacity, NaN for none
+	 * @return	Paint the paint or null for "none" and unknown gradients without fallback
+	 */
+	private Paint expressPaint(String value, double opacity)
 	{
 		Paint paint = null;
 		if ( !value.equals("none") )
 		{
 			if ( value.startsWith("url(#") )
 			{
-				String id = value.substring(5, value.length() - 1);
-				paint = gradients.get(id);
+				int close = value.indexOf(')');
+				if ( close < 0 ) close = value.length();
+				paint = gradients.get(value.substring(5, close));
+
+				String fallback = close + 1 < value.length() ? value.substring(close + 1).trim() : "";
+				if ( paint == null && !fallback.isEmpty() ) paint = expressPaint(fallback, opacity);
 			}
 			else
 			{
-				paint = Color.web(value);
+				paint = ColorCache.getShared().get(value, Double.isNaN(opacity) ? 1.0 : opacity);
 			}
 		}
 
@@ -1169,120 +1239,34 @@ public class SVGContentBuilder
 
 	/**
 	 * Set the style of a shape: color and border.<br>
-	 * Use their xml attributes or applied css styles.
+	 * Properties specified nowhere keep the defaults of the shape, except the stroke, which svg doesn't paint by default.
 	 * 
 	 * @param shape	Shape the shape to style
-	 * @param element StartElement the shape xml element to get the style infos of
+	 * @param style SVGStyle the computed style of the shape element
 	 */
-	void setShapeStyle(Shape shape, StartElement element)
+	void setShapeStyle(Shape shape, SVGStyle style)
 	{
-		Attribute fillAttribute = element.getAttributeByName(new QName(Attributes.FILL));
-		if ( fillAttribute != null )
+		if ( style.fill != null )
 		{
-			Attribute fillOpacityAttribute = element.getAttributeByName(new QName(Attributes.FILL_OPACITY));
-			String value = fillAttribute.getValue();
-			if ( fillOpacityAttribute != null )
-			{
-				// fillOpacityAttribute.getValue() \in [0,1]
-				int fillOpacityValue = (int) Math.round(Double.valueOf(fillOpacityAttribute.getValue())*255);
-				StringBuilder hexOpacity = new StringBuilder();
-				hexOpacity.append( Integer.toHexString(fillOpacityValue) );
-				if ( hexOpacity.length() == 1 ) hexOpacity.insert(0, "0");
-				value += hexOpacity.toString();
-			}
-			shape.setFill(expressPaint(value));
-		}
-
-		Attribute strokeAttribute = element.getAttributeByName(new QName(Attributes.STROKE));
-		if ( strokeAttribute != null )
-		{
-			shape.setStroke(expressPaint(strokeAttribute.getValue()));
+			shape.setFill(expressPaint(style.fill, style.fill_opacity));
 		}
-		else
+		else if ( !Double.isNaN(style.fill_opacity) && shape.getFill() != null )
 		{
-			shape.setStroke(null);
+			// the default black fill
+			shape.setFill(expressPaint("black", style.fill_opacity));
 		}
 
-		Attribute strokeWidthAttribute = element.getAttributeByName(new QName(Attributes.STROKE_WIDTH));
-		if ( strokeWidthAttribute != null )
-		{
-			double strokeWidth = Double.parseDouble(strokeWidthAttribute.getValue());
-//			System.out.println(" - stroke_width: "+strokeWidth);
-			shape.setStrokeWidth(strokeWidth);
-		}
+		shape.setStroke(style.stroke != null ? expressPaint(style.stroke, style.stroke_opacity) : null);
+
+		if ( !Double.isNaN(style.stroke_width) ) shape.setStrokeWidth(style.stroke_width);
+		if ( style.stroke_linecap != null ) shape.setStrokeLineCap(style.stroke_linecap);
+		if ( style.stroke_linejoin != null ) shape.setStrokeLineJoin(style.stroke_linejoin);
+		if ( !Double.isNaN(style.stroke_miterlimit) ) shape.setStrokeMiterLimit(style.stroke_miterlimit);
 
-		Attribute styleAttribute = element.getAttributeByName(new QName(Attributes.STYLE));
-		if ( styleAttribute != null )
+		if ( style.stroke_dasharray != null && style.stroke_dasharray.length > 0 )
 		{
-			String styles = styleAttribute.getValue();
-			StringTokenizer tokenizer = new StringTokenizer(styles, ";");
-			while ( tokenizer.hasMoreTokens() )
-			{
-				String style = tokenizer.nextToken();
-
-				StringTokenizer tokenizer2 = new StringTokenizer(style, ":");
-				String styleName = tokenizer2.nextToken();
-				String styleValue = tokenizer2.nextToken();
-
-				switch ( styleName )
-				{
-					case "fill":
-						shape.setFill(expressPaint(styleValue));
-						break;
-					case "stroke":
-						shape.setStroke(expressPaint(styleValue));
-						break;
-					case "stroke-width":
-						double strokeWidth = Double.parseDouble(styleValue);
-						shape.setStrokeWidth(strokeWidth);
-						break;
-					case "stroke-linecap":
-						StrokeLineCap linecap = StrokeLineCap.BUTT;
-						if ( styleValue.equals("round") )
-						{
-							linecap = StrokeLineCap.ROUND;
-						}
-						else if ( styleValue.equals("square") )
-						{
-							linecap = StrokeLineCap.SQUARE;
-						}
-						else if ( !styleValue.equals("butt") )
-						{
-							Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "No Support Style: {0} {1}", new Object[] { style, element });
-						}
-
-						shape.setStrokeLineCap(linecap);
-						break;
-					case "stroke-miterlimit":
-						double miterLimit = Double.parseDouble(styleValue);
-						shape.setStrokeMiterLimit(miterLimit);
-						break;
-					case "stroke-linejoin":
-						StrokeLineJoin linejoin = StrokeLineJoin.MITER;
-						if ( styleValue.equals("bevel") )
-						{
-							linejoin = StrokeLineJoin.BEVEL;
-						}
-						else if ( styleValue.equals("round") )
-						{
-							linejoin = StrokeLineJoin.ROUND;
-						}
-						else if ( !styleValue.equals("miter") )
-						{
-							Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "No Support Style: {0} {1}", new Object[] { style, element });
-						}
-
-						shape.setStrokeLineJoin(linejoin);
-						break;
-					case "opacity":
-						double opacity = Double.parseDouble(styleValue);
-						shape.setOpacity(opacity);
-						break;
-					default:
-						Logger.getLogger(SVGContentBuilder.class.getName()).log(Level.INFO, "No Support Style: {0} {1}", new Object[] { style, element });
-						break;
-				}
-			}
+			shape.getStrokeDashArray().setAll(new DoubleList(style.stroke_dasharray));
+			if ( !Double.isNaN(style.stroke_dashoffset) ) shape.setStrokeDashOffset(style.stroke_dashoffset);
 		}
 	}
 
@@ -1290,21 +1274,21 @@ public class SVGContentBuilder
 	 * Set the clip path of an element, if any.
 	 * 
 	 * @param	node Node the node to clip
-	 * @param	element StartElement the xml element with clip path id
+	 * @param	element SVGElement the xml element with clip path id
 	 */
-	private void setClipPath(Node node, StartElement element)
+	private void setClipPath(Node node, SVGElement element)
 	{
-		Attribute clip_path_attribute = element.getAttributeByName(new QName(Attributes.CLIP_PATH));
+		String clip_path_attribute = element.getAttribute(SVGAttribute.CLIP_PATH);
 		
 		if ( clip_path_attribute == null ) return;
 //		System.out.printf("SVGContentBuilder.setClipPath(%s, %s)\n", node.toString(), element.toString());
 //		System.out.println(" - clip_path: "+clip_path_attribute);
 
 		// attribute value is something like: url(#the_id)
-		String clip_id = clip_path_attribute.getValue().substring(5, clip_path_attribute.getValue().length()-1);
+		String clip_id = clip_path_attribute.substring(5, clip_path_attribute.length()-1);
 //		System.out.println(" - clip_id: "+clip_id);
 		
-		ClipPath clip_path = clip_path_map.get(clip_id);
+		ClipPath clip_path = getClipPath(clip_id);
 //		System.out.println(" - clip_path: "+clip_path);
 		if ( clip_path == null ) return;
 		
@@ -1318,27 +1302,30 @@ public class SVGContentBuilder
 	 * to easily access nodes lateron. 
 	 * 
 	 * @param node Node the node to set the id of
-	 * @param element StartElement the xml element with id infos
+	 * @param element SVGElement the xml element with id infos
 	 */
-	private void setNodeId(Node node, StartElement element)
+	private void setNodeId(Node node, SVGElement element)
 	{
-		Attribute idAttribute = element.getAttributeByName(new QName(Attributes.ID));
+		// nodes of a template are not part of the content
+		if ( template_depth > 0 ) return;
+
+		String idAttribute = element.getAttribute(SVGAttribute.ID);
 		String id = null;
 		if ( idAttribute == null )
 		{
 			StringBuilder sb = new StringBuilder();
-			sb.append("SVGNode.#").append(root.getNodes().size());
+			sb.append(ANONYMOUS_ID_PREFIX).append(root.getNodeCount());
 			id = sb.toString();
 		}
 		else
 		{
-			id = idAttribute.getValue();
+			id = idAttribute;
 		}
 		
 		if ( !id.isEmpty() )
 		{
 			root.putNode(id, node);
-//			node.setId(idAttribute.getValue());
+//			node.setId(idAttribute);
 		}
 	}
 
@@ -1349,17 +1336,4 @@ public class SVGContentBuilder
 	{
 		return root;
 	}
-	
-	public void stop()
-	{
-		try
-		{
-			reader.close();
-			reader = null;
-		}
-		catch ( XMLStreamException e )
-		{
-			e.printStackTrace();
-		}
-	}
 }
@@ -0,0 +1,136 @@
+package net.javainthebox.caraibe.svg;
+
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * A parsed svg document.<br>
+ * The result of the parse stage: an immutable tree of {@link SVGElement}s without any JavaFX nodes.<br>
+ * A document may be parsed on a worker thread, kept for later use and turned into
+ * any number of {@link SVGContent}s by {@link SVGLoader#load(SVGDocument)}.
+ */
+public final class SVGDocument
+{
+	private final URL url;
+	private final SVGElement root;
+	private final StyleSheet style_sheet;
+	private final long estimated_size;
+
+	// built on first use
+	private Map<String, SVGElement> ids;
+	private GradientRegistry gradients;
+
+	/**
+	 * A parsed svg document.
+	 *
+	 * @param	url URL the url the document has been read from
+	 * @param	root SVGElement the document element, usually {@code <svg>}
+	 * @param	style_sheet StyleSheet the rules of the {@code <style>} elements
+	 */
+	SVGDocument(URL url, SVGElement root, StyleSheet style_sheet)
+	{
+		this.url = url;
+		this.root = root;
+		this.style_sheet = style_sheet;
+		this.estimated_size = root.estimateSize();
+	}
+
+	/**
+	 * Get the url the document has been read from.<br>
+	 * Used to resolve relative references like image files.
+	 *
+	 * @return	URL
+	 */
+	public URL getUrl()
+	{
+		return this.url;
+	}
+
+	/**
+	 * Get the document element.
+	 *
+	 * @return	SVGElement
+	 */
+	public SVGElement getRoot()
+	{
+		return this.root;
+	}
+
+	/**
+	 * Get an element by its id.<br>
+	 * The ids are indexed on the first call, if an id is used twice, the first element in document order is returned.
+	 *
+	 * @param	id String the id
+	 * @return	SVGElement the element or null, if no element has the id
+	 */
+	public synchronized SVGElement getElementById(String id)
+	{
+		if ( ids == null )
+		{
+			ids = new HashMap<>();
+			putIds(root);
+		}
+
+		return ids.get(id);
+	}
+
+	private void putIds(SVGElement element)
+	{
+		String id = element.getAttribute(SVGAttribute.ID);
+		if ( id != null ) ids.putIfAbsent(id, element);
+
+		int ln = element.getChildCount();
+		for ( int i = 0; i < ln; i++ )
+		{
+			putIds(element.getChild(i));
+		}
+	}
+
+	/**
+	 * Get the gradients of the document, shared by all contents built from it.
+	 *
+	 * @return	GradientRegistry
+	 */
+	synchronized GradientRegistry getGradients()
+	{
+		if ( gradients == null ) gradients = new GradientRegistry(this);
+
+		return gradients;
+	}
+
+	/**
+	 * Get the rules of the {@code <style>} elements, parsed with the document.
+	 *
+	 * @return	StyleSheet
+	 */
+	StyleSheet getStyleSheet()
+	{
+		return this.style_sheet;
+	}
+
+	/**
+	 * Get the estimated memory size of the document in bytes.
+	 *
+	 * @return	long
+	 */
+	long getEstimatedSize()
+	{
+		return this.estimated_size;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ url: ")
+			.append(url)
+			.append(", root: ")
+			.append(root)
+			.append(" }");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,344 @@
+package net.javainthebox.caraibe.svg;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * A cache of parsed (not materialized) svg documents.<br>
+ * Documents are keyed by their url and validated by a modification stamp:
+ * the last modified time of the file or, if the url doesn't tell one, a hash of the content.<br>
+ * The cache is bounded by the estimated memory size of the documents and evicts the least recently used ones.
+ * Optionally the documents are only softly referenced, so the garbage collector may reclaim them under memory pressure.
+ *
+ * <p>{@link SVGLoader} loads through the shared instance, so loading the same file many times parses it once:</p>
+ *
+ * <pre>
+ * SVGDocumentCache.getShared().setMaxSize(64 * 1024 * 1024);
+ * SVGDocumentCache.getShared().setSoftReferences(true);
+ * </pre>
+ */
+public class SVGDocumentCache
+{
+	public static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+
+	private static final SVGDocumentCache shared = new SVGDocumentCache(DEFAULT_MAX_SIZE);
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long max_size;
+	private long size;
+	private boolean soft_references;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * A document cache.
+	 *
+	 * @param	max_size long the maximum estimated size of all cached documents in bytes, 0 disables caching
+	 */
+	public SVGDocumentCache(long max_size)
+	{
+		this.max_size = max_size;
+	}
+
+	/**
+	 * Get the process wide cache used by {@link SVGLoader}.
+	 *
+	 * @return	SVGDocumentCache
+	 */
+	public static SVGDocumentCache getShared()
+	{
+		return shared;
+	}
+
+	/**
+	 * Get the parsed document of an url.<br>
+	 * Parses the document, if it is not cached or has been modified since.
+	 *
+	 * @param	url URL the url of the svg file
+	 * @return	SVGDocument
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	public SVGDocument get(URL url) throws IOException, XMLStreamException
+	{
+		return get(url, SVGParserBackend.DEFAULT);
+	}
+
+	/**
+	 * Get the parsed document of an url.<br>
+	 * Parses the document with the given backend, if it is not cached or has been modified since.
+	 * All backends produce the same document, so a document cached by one is returned for all.
+	 *
+	 * @param	url URL the url of the svg file
+	 * @param	backend SVGParserBackend the xml reader to parse with
+	 * @return	SVGDocument
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	public SVGDocument get(URL url, SVGParserBackend backend) throws IOException, XMLStreamException
+	{
+		String key = url.toExternalForm();
+		SVGDocumentParser parser = new SVGDocumentParser(url, backend);
+
+		File file = SVGDocumentParser.toFile(url);
+		if ( file != null )
+		{
+			// cheap stamp without opening the file
+			long stamp = file.lastModified();
+			SVGDocument document = lookup(key, stamp);
+			if ( document == null )
+			{
+				document = parser.parse();
+				store(key, stamp, document);
+			}
+
+			return document;
+		}
+
+		URLConnection connection = url.openConnection();
+		try ( InputStream stream = connection.getInputStream() )
+		{
+			long stamp = connection.getLastModified();
+			byte[] content = null;
+			if ( stamp == 0 )
+			{
+				content = SVGDocumentParser.readAll(stream);
+				stamp = hash(content);
+			}
+
+			SVGDocument document = lookup(key, stamp);
+			if ( document == null )
+			{
+				document = parser.parse( content == null ? stream : new ByteArrayInputStream(content) );
+				store(key, stamp, document);
+			}
+
+			return document;
+		}
+	}
+
+	/**
+	 * Look up a cached document.
+	 *
+	 * @param	key String the url
+	 * @param	stamp long the current modification stamp
+	 * @return	SVGDocument the document or null on a miss
+	 */
+	private synchronized SVGDocument lookup(String key, long stamp)
+	{
+		Entry entry = entries.get(key);
+		SVGDocument document = null;
+		if ( entry != null )
+		{
+			document = entry.getDocument();
+			if ( document == null || entry.stamp != stamp )
+			{
+				// reclaimed by the gc or outdated
+				remove(key, entry);
+				if ( document == null ) evictions++;
+				document = null;
+			}
+		}
+
+		if ( document == null ) misses++;
+		else hits++;
+
+		return document;
+	}
+
+	/**
+	 * Put a parsed document into the cache, evicting least recently used ones if needed.
+	 *
+	 * @param	key String the url
+	 * @param	stamp long the modification stamp
+	 * @param	document SVGDocument the parsed document
+	 */
+	private synchronized void store(String key, long stamp, SVGDocument document)
+	{
+		long document_size = document.getEstimatedSize();
+		if ( document_size > max_size ) return;
+
+		Entry old = entries.get(key);
+		if ( old != null ) remove(key, old);
+
+		entries.put(key, new Entry(document, stamp, document_size, soft_references));
+		size += document_size;
+
+		trim(max_size);
+	}
+
+	/**
+	 * Evict least recently used documents until the size fits.
+	 *
+	 * @param	target long the size to fit
+	 */
+	private void trim(long target)
+	{
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while ( size > target && it.hasNext() )
+		{
+			Entry entry = it.next().getValue();
+			it.remove();
+			size -= entry.size;
+			evictions++;
+		}
+	}
+
+	private void remove(String key, Entry entry)
+	{
+		entries.remove(key);
+		size -= entry.size;
+	}
+
+	/**
+	 * Remove all cached documents.<br>
+	 * The counters are kept.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Set the maximum estimated size of all cached documents.<br>
+	 * 0 disables caching.
+	 *
+	 * @param	max_size long the size in bytes
+	 */
+	public synchronized void setMaxSize(long max_size)
+	{
+		this.max_size = max_size;
+		trim(max_size);
+	}
+
+	/**
+	 * @return	long the maximum estimated size of all cached documents in bytes
+	 */
+	public synchronized long getMaxSize()
+	{
+		return max_size;
+	}
+
+	/**
+	 * @return	long the estimated size of all cached documents in bytes
+	 */
+	public synchronized long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Hold documents cached from now on only by soft references.
+	 *
+	 * @param	soft_references boolean true to let the gc reclaim cached documents
+	 */
+	public synchronized void setSoftReferences(boolean soft_references)
+	{
+		this.soft_references = soft_references;
+	}
+
+	/**
+	 * @return	boolean true, if documents are softly referenced
+	 */
+	public synchronized boolean isSoftReferences()
+	{
+		return soft_references;
+	}
+
+	/**
+	 * @return	long the number of lookups served from the cache
+	 */
+	public synchronized long getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return	long the number of lookups which had to parse
+	 */
+	public synchronized long getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return	long the number of documents evicted or reclaimed by the gc
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictions;
+	}
+
+	/**
+	 * Content hash used as modification stamp.
+	 *
+	 * @param	content byte[] the content
+	 * @return	long the crc combined with the length
+	 */
+	private static long hash(byte[] content)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+
+		return ( (long) content.length << 32 ) ^ crc.getValue();
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ documents: ")
+			.append(entries.size())
+			.append(", size: ")
+			.append(size)
+			.append(", max_size: ")
+			.append(max_size)
+			.append(", hits: ")
+			.append(hits)
+			.append(", misses: ")
+			.append(misses)
+			.append(", evictions: ")
+			.append(evictions)
+			.append(" }");
+
+		return sb.toString();
+	}
+
+	/**
+	 * A cached document, strongly or softly referenced.
+	 */
+	private static class Entry
+	{
+		private final SVGDocument document;
+		private final SoftReference<SVGDocument> soft_document;
+		final long stamp;
+		final long size;
+
+		Entry(SVGDocument document, long stamp, long size, boolean soft)
+		{
+			this.document = soft ? null : document;
+			this.soft_document = soft ? new SoftReference<>(document) : null;
+			this.stamp = stamp;
+			this.size = size;
+		}
+
+		SVGDocument getDocument()
+		{
+			return soft_document == null ? document : soft_document.get();
+		}
+	}
+}
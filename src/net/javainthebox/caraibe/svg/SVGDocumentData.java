@@ -68,17 +68,7 @@ public class SVGDocumentData
 	 */
 	public void setViewBox(String view_box_data)
 	{
-		String[] data = view_box_data.split(" ");
-		
-		int ln = data.length;
-		if ( ln == 5 ) for ( int i = 0; i < ln-1; i++ ) data[i] = data[i+1];
-		
-		viewBox = new BoundingBox(
-					Double.valueOf( cutPx( data[0] ) ),
-					Double.valueOf( cutPx( data[1] ) ),
-					Double.valueOf( cutPx( data[2] ) ),
-					Double.valueOf( cutPx( data[3] ) )
-				);
+		viewBox = toBounds(view_box_data);
 	}
 	
 	/**
@@ -88,16 +78,29 @@ public class SVGDocumentData
 	 */
 	public void setEnableBackground(String enable_background_data)
 	{
-		String[] data = enable_background_data.split(" ");
-		int ln = data.length;
-		if ( ln == 5 ) for ( int i = 0; i < ln-1; i++ ) data[i] = data[i+1];
+		enable_background = toBounds(enable_background_data);
+	}
+	
+	/**
+	 * Read bounds from "x y width height", optionally preceded by a keyword like "new"
+	 * and with "px" units, separated by whitespace and/or commas.
+	 * 
+	 * @param	data String
+	 * @return	Bounds
+	 */
+	private static Bounds toBounds(String data)
+	{
+		String list = data.replace("px", "").trim();
+		int start = 0;
+		while ( start < list.length() && Character.isLetter(list.charAt(start)) ) start++;
+		
+		NumberScanner scanner = new NumberScanner().reset(list, start, list.length());
+		double x = scanner.next();
+		double y = scanner.next();
+		double width = scanner.next();
+		double height = scanner.next();
 		
-		enable_background = new BoundingBox(
-					Double.valueOf( cutPx( data[0] ) ),
-					Double.valueOf( cutPx( data[1] ) ),
-					Double.valueOf( cutPx( data[2] ) ),
-					Double.valueOf( cutPx( data[3] ) )
-				);
+		return new BoundingBox(x, y, width, height);
 	}
 	
 	/**
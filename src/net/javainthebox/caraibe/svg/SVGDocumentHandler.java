@@ -0,0 +1,210 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+
+/**
+ * The element handling shared by all parser backends.<br>
+ * A backend reports the attributes of an element to {@link #getAttributeDecoder()},
+ * then calls {@link #startElement(String)}, reports character data and calls {@link #endElement()}.
+ * The handler assembles the immutable {@link SVGElement} tree.
+ */
+class SVGDocumentHandler
+{
+	private final AttributeDecoder attributes = new AttributeDecoder();
+	private final ArrayList<Frame> stack = new ArrayList<>(); // frames are reused by depth
+	private int depth;
+	private SVGElement root;
+	private StringBuilder style_sheet; // the text of the <style> elements
+
+	/**
+	 * Get the decoder to report the attributes of the next started element to.
+	 *
+	 * @return	AttributeDecoder
+	 */
+	AttributeDecoder getAttributeDecoder()
+	{
+		return attributes;
+	}
+
+	/**
+	 * Start an element, its attributes have been reported to the attribute decoder before.
+	 *
+	 * @param	name String the local name of the element
+	 */
+	void startElement(String name)
+	{
+		if ( depth == stack.size() ) stack.add(new Frame());
+
+		Frame frame = stack.get(depth++);
+		frame.name = name;
+		frame.attributes = attributes.decode();
+	}
+
+	/**
+	 * Tell, if empty elements may be started without reporting their attributes, except the id.<br>
+	 * A backend able to skip attributes asks {@link #keepsElement(String)} then, before reading them.
+	 *
+	 * @return	boolean false, all attributes are needed by default
+	 */
+	boolean skipsEmptyElements()
+	{
+		return false;
+	}
+
+	/**
+	 * Tell, if the attributes of an empty element are needed, its id has been reported to the attribute decoder.
+	 *
+	 * @param	name String the local name of the element
+	 * @return	boolean true by default
+	 */
+	boolean keepsElement(String name)
+	{
+		return true;
+	}
+
+	/**
+	 * Report character data of the current element.<br>
+	 * Whitespace only data is ignored.
+	 *
+	 * @param	text char[] the buffer
+	 * @param	start int the start index
+	 * @param	length int the length
+	 */
+	void characters(char[] text, int start, int length)
+	{
+		if ( depth == 0 || isWhiteSpace(text, start, length) ) return;
+
+		Frame frame = stack.get(depth - 1);
+		if ( frame.text == null ) frame.text = new StringBuilder();
+		frame.text.append(text, start, length);
+	}
+
+	/**
+	 * Report character data of the current element.<br>
+	 * Whitespace only data is ignored.
+	 *
+	 * @param	text String the data
+	 */
+	void characters(String text)
+	{
+		if ( depth == 0 || isWhiteSpace(text) ) return;
+
+		Frame frame = stack.get(depth - 1);
+		if ( frame.text == null ) frame.text = new StringBuilder();
+		frame.text.append(text);
+	}
+
+	/**
+	 * End the current element and add it to its parent.
+	 */
+	void endElement()
+	{
+		Frame frame = stack.get(--depth);
+		if ( frame.text != null && "style".equals(frame.name) )
+		{
+			if ( style_sheet == null ) style_sheet = new StringBuilder();
+			style_sheet.append(frame.text).append('\n');
+		}
+		SVGElement element = frame.toElement();
+
+		if ( depth == 0 ) root = element;
+		else stack.get(depth - 1).children.add(element);
+	}
+
+	/**
+	 * @return	String the local name of the current element or null, if no element is open
+	 */
+	String getElementName()
+	{
+		return depth == 0 ? null : stack.get(depth - 1).name;
+	}
+
+	/**
+	 * @return	boolean true, if the document element has been ended
+	 */
+	boolean isDone()
+	{
+		return root != null;
+	}
+
+	/**
+	 * @return	SVGElement the document element or null, if not read yet
+	 */
+	SVGElement getRoot()
+	{
+		return root;
+	}
+
+	/**
+	 * Take the ended document element and get ready for another one.<br>
+	 * Lets a subclass read several subtrees, each like a document.
+	 *
+	 * @return	SVGElement the element or null, if not ended yet
+	 */
+	SVGElement takeRoot()
+	{
+		SVGElement element = root;
+		root = null;
+
+		return element;
+	}
+
+	/**
+	 * Get the rules of all {@code <style>} elements read.
+	 *
+	 * @return	StyleSheet
+	 */
+	StyleSheet getStyleSheet()
+	{
+		return style_sheet == null ? StyleSheet.EMPTY : StyleSheet.parse(style_sheet);
+	}
+
+	private static boolean isWhiteSpace(char[] text, int start, int length)
+	{
+		for ( int i = start; i < start + length; i++ )
+		{
+			if ( !Character.isWhitespace(text[i]) ) return false;
+		}
+
+		return true;
+	}
+
+	private static boolean isWhiteSpace(String text)
+	{
+		int ln = text.length();
+		for ( int i = 0; i < ln; i++ )
+		{
+			if ( !Character.isWhitespace(text.charAt(i)) ) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * An open element.
+	 */
+	private static class Frame
+	{
+		String name;
+		AttributeTable attributes;
+		final ArrayList<SVGElement> children = new ArrayList<>();
+		StringBuilder text;
+
+		SVGElement toElement()
+		{
+			SVGElement element = new SVGElement(
+						name,
+						attributes,
+						children.isEmpty() ? null : children.toArray(new SVGElement[children.size()]),
+						text == null ? null : text.toString()
+					);
+
+			name = null;
+			attributes = null;
+			children.clear();
+			text = null;
+
+			return element;
+		}
+	}
+}
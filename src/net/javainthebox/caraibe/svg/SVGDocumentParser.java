@@ -0,0 +1,357 @@
+package net.javainthebox.caraibe.svg;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * The parse stage of the loader.<br>
+ * Reads an svg file into an {@link SVGDocument} without creating any JavaFX node,
+ * so it may run on any thread.
+ */
+class SVGDocumentParser
+{
+	/**
+	 * Files of at least this size are memory mapped by the byte tokenizer, smaller ones are read.
+	 */
+	static final long MAP_THRESHOLD = 1024 * 1024;
+
+	private URL url;
+	private SVGParserBackend backend;
+
+	/**
+	 * An svg document parser using the default backend.
+	 *
+	 * @param	url URL the url of the svg file
+	 */
+	SVGDocumentParser(URL url)
+	{
+		this(url, SVGParserBackend.DEFAULT);
+	}
+
+	/**
+	 * An svg document parser.
+	 *
+	 * @param	url URL the url of the svg file
+	 * @param	backend SVGParserBackend the xml reader to use
+	 */
+	SVGDocumentParser(URL url, SVGParserBackend backend)
+	{
+		this.url = url;
+		this.backend = backend;
+	}
+
+	/**
+	 * Parse the svg file.
+	 *
+	 * @return	SVGDocument
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	SVGDocument parse() throws IOException, XMLStreamException
+	{
+		SVGDocumentHandler handler = new SVGDocumentHandler();
+		read(handler);
+
+		return toDocument(handler);
+	}
+
+	/**
+	 * Parse the subtree of an element of the svg file, with its ancestors and the resources it references.<br>
+	 * All other elements are skipped without being created, see {@link SVGFragmentHandler}.
+	 * The file is read again, if the subtree references elements outside of resources, like a {@code <g>} it uses.
+	 *
+	 * @param	id String the id of the element
+	 * @return	SVGDocument the document holding just the subtree
+	 * @throws	IOException
+	 * @throws	XMLStreamException if the file has no element with the id
+	 */
+	SVGDocument parseFragment(String id) throws IOException, XMLStreamException
+	{
+		Set<String> wanted = new HashSet<>();
+		while ( true )
+		{
+			SVGFragmentHandler handler = new SVGFragmentHandler(id, wanted);
+			read(handler);
+			if ( handler.getRoot() == null )
+			{
+				throw new XMLStreamException("No element with id " + id + " in: " + url);
+			}
+
+			// ids found nowhere are not read for again
+			if ( !wanted.addAll(handler.getMissing()) ) return toDocument(handler);
+		}
+	}
+
+	/**
+	 * Read the svg file into a handler.
+	 *
+	 * @param	handler SVGDocumentHandler the element handling
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	private void read(SVGDocumentHandler handler) throws IOException, XMLStreamException
+	{
+		File file = toFile(url);
+		if ( file != null && backend == SVGParserBackend.BYTES )
+		{
+			read(file, handler);
+			return;
+		}
+
+		try ( InputStream stream = url.openStream() )
+		{
+			read(stream, handler);
+		}
+	}
+
+	private SVGDocument toDocument(SVGDocumentHandler handler) throws XMLStreamException
+	{
+		if ( handler.getRoot() == null )
+		{
+			throw new XMLStreamException("No root element in: " + url);
+		}
+
+		return new SVGDocument(url, handler.getRoot(), handler.getStyleSheet());
+	}
+
+	/**
+	 * Parse the svg file from an already opened stream.<br>
+	 * The stream is not closed.
+	 *
+	 * @param	stream InputStream the content of the svg file
+	 * @return	SVGDocument
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	SVGDocument parse(InputStream stream) throws IOException, XMLStreamException
+	{
+		SVGDocumentHandler handler = new SVGDocumentHandler();
+		read(stream, handler);
+
+		return toDocument(handler);
+	}
+
+	private void read(InputStream stream, SVGDocumentHandler handler) throws IOException, XMLStreamException
+	{
+		if ( backend == SVGParserBackend.BYTES )
+		{
+			new SVGByteTokenizer(handler).tokenize(ByteBuffer.wrap(readAll(stream)));
+			return;
+		}
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty("javax.xml.stream.isValidating", false);
+		factory.setProperty("javax.xml.stream.isNamespaceAware", false);
+		// the entities of the internal subset are expanded, like the namespaces of Illustrator files,
+		// external entities and the external subset are never read
+		factory.setProperty("javax.xml.stream.supportDTD", true);
+		factory.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
+		factory.setXMLResolver(( public_id, system_id, base_uri, namespace ) -> new ByteArrayInputStream(new byte[0]));
+
+		BufferedInputStream bufferedStream = new BufferedInputStream(stream);
+
+		switch ( backend )
+		{
+			case EVENT:
+				readEvents(factory.createXMLEventReader(bufferedStream), handler);
+				break;
+			case CURSOR:
+			default:
+				readCursor(factory.createXMLStreamReader(bufferedStream), handler);
+				break;
+		}
+	}
+
+	/**
+	 * Read a local file with the byte tokenizer.<br>
+	 * Large files are memory mapped and tokenized in place, so their bytes are neither copied
+	 * through stream buffers nor held on the heap.
+	 * The mapping is released, when the buffer is garbage collected.
+	 *
+	 * @param	file File the svg file
+	 * @param	handler SVGDocumentHandler the element handling
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	private void read(File file, SVGDocumentHandler handler) throws IOException, XMLStreamException
+	{
+		try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) )
+		{
+			long size = channel.size();
+			if ( size > Integer.MAX_VALUE ) throw new IOException("File too large: " + file);
+
+			ByteBuffer buffer;
+			if ( size >= MAP_THRESHOLD )
+			{
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			else
+			{
+				// mapping small files costs more than reading them
+				buffer = ByteBuffer.allocate((int) size);
+				while ( buffer.hasRemaining() )
+				{
+					if ( channel.read(buffer) == -1 ) break;
+				}
+				buffer.flip();
+			}
+
+			new SVGByteTokenizer(handler).tokenize(buffer);
+		}
+	}
+
+	/**
+	 * Parse the svg file from its bytes with the byte tokenizer, whatever backend has been chosen.
+	 *
+	 * @param	buffer ByteBuffer the content of the svg file from position to limit
+	 * @return	SVGDocument
+	 * @throws	XMLStreamException
+	 */
+	SVGDocument parse(ByteBuffer buffer) throws XMLStreamException
+	{
+		SVGDocumentHandler handler = new SVGDocumentHandler();
+		new SVGByteTokenizer(handler).tokenize(buffer);
+
+		return toDocument(handler);
+	}
+
+	/**
+	 * Get the file of a "file:" url.
+	 *
+	 * @param	url URL
+	 * @return	File the file or null, if the url is no file url
+	 */
+	static File toFile(URL url)
+	{
+		if ( url == null || !"file".equals(url.getProtocol()) ) return null;
+
+		try
+		{
+			return new File(url.toURI());
+		}
+		catch ( URISyntaxException | IllegalArgumentException e )
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Read a stream to its end.<br>
+	 * The stream is not closed.
+	 *
+	 * @param	stream InputStream
+	 * @return	byte[] the content
+	 * @throws	IOException
+	 */
+	static byte[] readAll(InputStream stream) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ( ( read = stream.read(buffer) ) != -1 )
+		{
+			out.write(buffer, 0, read);
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Feed the handler from an event reader.
+	 *
+	 * @param	reader XMLEventReader the reader
+	 * @param	handler SVGDocumentHandler the element handling
+	 * @throws	XMLStreamException
+	 */
+	private void readEvents(XMLEventReader reader, SVGDocumentHandler handler) throws XMLStreamException
+	{
+		AttributeDecoder attributes = handler.getAttributeDecoder();
+
+		while ( reader.hasNext() && !handler.isDone() )
+		{
+			XMLEvent event = reader.nextEvent();
+
+			if ( event.isStartElement() )
+			{
+				StartElement element = event.asStartElement();
+
+				@SuppressWarnings("unchecked")
+				Iterator<Attribute> it = element.getAttributes();
+				while ( it.hasNext() )
+				{
+					Attribute attribute = it.next();
+					attributes.add(attribute.getName().getLocalPart(), attribute.getValue());
+				}
+				handler.startElement(element.getName().getLocalPart());
+			}
+			else if ( event.isCharacters() )
+			{
+				handler.characters(event.asCharacters().getData());
+			}
+			else if ( event.isEndElement() )
+			{
+				handler.endElement();
+			}
+		}
+		reader.close();
+	}
+
+	/**
+	 * Feed the handler from a cursor reader.<br>
+	 * Reads names, values and text in place, without event objects.
+	 *
+	 * @param	reader XMLStreamReader the reader
+	 * @param	handler SVGDocumentHandler the element handling
+	 * @throws	XMLStreamException
+	 */
+	private void readCursor(XMLStreamReader reader, SVGDocumentHandler handler) throws XMLStreamException
+	{
+		AttributeDecoder attributes = handler.getAttributeDecoder();
+
+		while ( reader.hasNext() && !handler.isDone() )
+		{
+			switch ( reader.next() )
+			{
+				case XMLStreamConstants.START_ELEMENT:
+					int ln = reader.getAttributeCount();
+					for ( int i = 0; i < ln; i++ )
+					{
+						attributes.add(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+					}
+					handler.startElement(reader.getLocalName());
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					handler.endElement();
+					break;
+				default:
+					break;
+			}
+		}
+		reader.close();
+	}
+}
@@ -0,0 +1,203 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * An immutable element of a parsed {@link SVGDocument}.<br>
+ * Holds the element name, its attributes, its child elements and its character data.<br>
+ * No JavaFX object is referenced, so elements can be created on any thread and shared between threads.
+ */
+public final class SVGElement
+{
+	private static final SVGElement[] NO_CHILDREN = new SVGElement[0];
+
+	private final String name;
+	private final AttributeTable attributes;
+	private final SVGElement[] children;
+	private final String text;
+
+	/**
+	 * An svg element.
+	 *
+	 * @param	name String the local name of the element
+	 * @param	attributes AttributeTable the decoded attributes
+	 * @param	children SVGElement[] the child elements
+	 * @param	text String the character data of the element or null
+	 */
+	SVGElement(String name, AttributeTable attributes, SVGElement[] children, String text)
+	{
+		this.name = name;
+		this.attributes = attributes == null ? AttributeTable.EMPTY : attributes;
+		this.children = children == null ? NO_CHILDREN : children;
+		this.text = text;
+	}
+
+	/**
+	 * Get the local name of the element, like "rect" or "g".
+	 *
+	 * @return	String
+	 */
+	public String getName()
+	{
+		return this.name;
+	}
+
+	/**
+	 * Get the value of a known attribute.<br>
+	 * Doesn't scan the attributes. Values stored as number are formatted, use {@link #getNumber(SVGAttribute, double)} for them.
+	 *
+	 * @param	attribute SVGAttribute the attribute
+	 * @return	String the value or null, if the attribute is not set
+	 */
+	public String getAttribute(SVGAttribute attribute)
+	{
+		return attributes.get(attribute);
+	}
+
+	/**
+	 * Get the value of a known attribute as number.<br>
+	 * Values the parser has stored as number are returned without parsing nor allocation.
+	 *
+	 * @param	attribute SVGAttribute the attribute
+	 * @param	default_value double the number returned, if the attribute is not set
+	 * @return	double the value
+	 * @throws	NumberFormatException if the value is no number
+	 */
+	public double getNumber(SVGAttribute attribute, double default_value)
+	{
+		return attributes.getNumber(attribute, default_value);
+	}
+
+	/**
+	 * @param	attribute SVGAttribute the attribute
+	 * @return	boolean true, if the attribute is set
+	 */
+	public boolean hasAttribute(SVGAttribute attribute)
+	{
+		return attributes.contains(attribute);
+	}
+
+	/**
+	 * Get the value of an attribute.
+	 *
+	 * @param	name String the local name of the attribute
+	 * @return	String the value or null, if the attribute is not set
+	 */
+	public String getAttribute(String name)
+	{
+		return attributes.get(name);
+	}
+
+	/**
+	 * @return	int the number of attributes
+	 */
+	public int getAttributeCount()
+	{
+		return attributes.size();
+	}
+
+	/**
+	 * @param	index int the attribute index
+	 * @return	SVGAttribute the known attribute at index or null, if it is an unknown one
+	 */
+	public SVGAttribute getAttributeKey(int index)
+	{
+		return attributes.getKey(index);
+	}
+
+	/**
+	 * @param	index int the attribute index
+	 * @return	String the local name of the attribute at index
+	 */
+	public String getAttributeName(int index)
+	{
+		return attributes.getName(index);
+	}
+
+	/**
+	 * @param	index int the attribute index
+	 * @return	String the value of the attribute at index
+	 */
+	public String getAttributeValue(int index)
+	{
+		return attributes.getValue(index);
+	}
+
+	/**
+	 * Get the child elements.
+	 *
+	 * @return	List<SVGElement> an unmodifiable list
+	 */
+	public List<SVGElement> getChildren()
+	{
+		return Collections.unmodifiableList(Arrays.asList(children));
+	}
+
+	/**
+	 * @return	int the number of child elements
+	 */
+	public int getChildCount()
+	{
+		return children.length;
+	}
+
+	/**
+	 * @param	index int the child index
+	 * @return	SVGElement the child element at index
+	 */
+	public SVGElement getChild(int index)
+	{
+		return children[index];
+	}
+
+	/**
+	 * Get the character data directly contained in this element, like the content of a {@code <text>}.
+	 *
+	 * @return	String the text or null
+	 */
+	public String getText()
+	{
+		return this.text;
+	}
+
+	/**
+	 * Estimate the memory size of this element and all its descendants in bytes.<br>
+	 * Counts object headers, references and characters, good enough to bound a cache.
+	 *
+	 * @return	long
+	 */
+	long estimateSize()
+	{
+		long size = 24 + 16 + 4L * children.length + attributes.estimateSize();
+		if ( text != null ) size += 40 + 2L * text.length();
+		for ( SVGElement child : children )
+		{
+			size += child.estimateSize();
+		}
+
+		return size;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("<").append(name);
+		int ln = attributes.size();
+		for ( int i = 0; i < ln; i++ )
+		{
+			sb.append(" ")
+				.append(attributes.getName(i))
+				.append("='")
+				.append(attributes.getValue(i))
+				.append("'");
+		}
+		sb.append(">");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,426 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * The element handling of a parser reading the subtree of a single element.<br>
+ * Keeps the subtree, its ancestors without their other children and the resources it references:
+ * the children of {@code <defs>}, gradients, clip paths, symbols and styles.
+ * Elements of all other subtrees are not created, their attributes are only read to find the element by its id.
+ * Resources may be referenced before they are defined, so they are kept while reading and dropped at the end,
+ * if the subtree doesn't reference them.<br>
+ * Other elements referenced by the subtree, like a {@code <g>} it uses, are reported by {@link #getMissing()}
+ * and kept by a handler reading the document again with their ids as wanted.
+ * The document element keeps its style, but not its position, size and view box, so the content holds just the subtree.
+ * An element found inside a kept subtree, like a shape of a symbol or a group in {@code <defs>}, is shown by a use
+ * of it, the subtree holding it is kept as a resource.
+ *
+ * <pre>
+ * SVGFragmentHandler handler = new SVGFragmentHandler("icon_42", Collections.emptySet());
+ * new SVGByteTokenizer(handler).tokenize(buffer);
+ * SVGElement root = handler.getRoot();
+ * </pre>
+ */
+final class SVGFragmentHandler extends SVGDocumentHandler
+{
+	private static final SVGAttribute[] GEOMETRY = { SVGAttribute.X, SVGAttribute.Y, SVGAttribute.WIDTH, SVGAttribute.HEIGHT, SVGAttribute.VIEW_BOX };
+
+	private final String id;
+	private final Set<String> wanted;
+
+	private final ArrayList<Outer> path = new ArrayList<>(); // the open elements outside of kept subtrees
+	private int kept_depth; // > 0 inside a kept subtree
+	private boolean kept_target; // the kept subtree is the one of the element
+	private boolean kept_holder; // the kept subtree holds the element
+	private SVGElement target;
+	private SVGElement holder; // the kept subtree holding the element or null
+	private Outer[] ancestors; // of the element, from the document element on
+	private final ArrayList<SVGElement> resources = new ArrayList<>();
+	private final Set<String> missing = new LinkedHashSet<>();
+	private boolean done;
+	private SVGElement root;
+
+	/**
+	 * A handler keeping the subtree of an element.
+	 *
+	 * @param	id String the id of the element
+	 * @param	wanted Set<String> the ids of other elements to keep as resources, reported missing by a former handler
+	 */
+	SVGFragmentHandler(String id, Set<String> wanted)
+	{
+		this.id = id;
+		this.wanted = wanted;
+	}
+
+	@Override
+	void startElement(String name)
+	{
+		AttributeDecoder attributes = getAttributeDecoder();
+		if ( kept_depth > 0 )
+		{
+			if ( target == null && !kept_target && id.equals(attributes.peek(SVGAttribute.ID)) ) kept_holder = true;
+			kept_depth++;
+			super.startElement(name);
+			return;
+		}
+
+		String element_id = attributes.peek(SVGAttribute.ID);
+		if ( isKept(name, element_id) )
+		{
+			kept_depth = 1;
+			kept_target = target == null && id.equals(element_id);
+			kept_holder = false;
+			super.startElement(name);
+			return;
+		}
+
+		if ( path.isEmpty() )
+		{
+			for ( SVGAttribute attribute : GEOMETRY )
+			{
+				attributes.remove(attribute);
+			}
+		}
+		path.add(new Outer(name, attributes.decode()));
+	}
+
+	/**
+	 * Tell, if an element outside of the kept subtrees starts a kept subtree.
+	 *
+	 * @param	name String the element name
+	 * @param	element_id String the id of the element or null
+	 * @return	boolean true for the element with the id, resources, wanted elements and the children of {@code <defs>}
+	 */
+	private boolean isKept(String name, String element_id)
+	{
+		return ( target == null && id.equals(element_id) ) || isResource(name) || ( element_id != null && wanted.contains(element_id) )
+				|| ( !path.isEmpty() && path.get(path.size() - 1).name.equals("defs") );
+	}
+
+	/**
+	 * @return	boolean true outside of kept subtrees, where only the containers of elements may become ancestors
+	 */
+	@Override
+	boolean skipsEmptyElements()
+	{
+		return kept_depth == 0;
+	}
+
+	@Override
+	boolean keepsElement(String name)
+	{
+		return isKept(name, getAttributeDecoder().peek(SVGAttribute.ID));
+	}
+
+	@Override
+	void characters(char[] text, int start, int length)
+	{
+		if ( kept_depth > 0 ) super.characters(text, start, length);
+	}
+
+	@Override
+	void characters(String text)
+	{
+		if ( kept_depth > 0 ) super.characters(text);
+	}
+
+	@Override
+	void endElement()
+	{
+		if ( kept_depth > 0 )
+		{
+			super.endElement();
+			if ( --kept_depth > 0 ) return;
+
+			SVGElement element = takeRoot();
+			if ( kept_target )
+			{
+				target = element;
+				ancestors = path.toArray(new Outer[path.size()]);
+			}
+			else if ( kept_holder )
+			{
+				target = find(element, id);
+				holder = element;
+				ancestors = path.toArray(new Outer[path.size()]);
+			}
+			else
+			{
+				resources.add(element);
+			}
+		}
+		else
+		{
+			path.remove(path.size() - 1);
+		}
+
+		if ( path.isEmpty() )
+		{
+			done = true;
+			if ( target != null ) root = assemble();
+		}
+	}
+
+	@Override
+	String getElementName()
+	{
+		if ( kept_depth > 0 ) return super.getElementName();
+
+		return path.isEmpty() ? null : path.get(path.size() - 1).name;
+	}
+
+	@Override
+	boolean isDone()
+	{
+		return done;
+	}
+
+	/**
+	 * @return	SVGElement the document element holding the subtree or null, if the document has no element with the id
+	 */
+	@Override
+	SVGElement getRoot()
+	{
+		return root;
+	}
+
+	/**
+	 * Get the ids referenced by the subtree or its resources, which are neither defined in them nor in resources.
+	 *
+	 * @return	Set<String> the ids
+	 */
+	Set<String> getMissing()
+	{
+		return missing;
+	}
+
+	/**
+	 * Put the subtree with the referenced resources into its ancestors.
+	 *
+	 * @return	SVGElement the document element
+	 */
+	private SVGElement assemble()
+	{
+		// the element is the document element
+		if ( ancestors.length == 0 ) return target;
+
+		Set<SVGElement> referenced = Collections.newSetFromMap(new IdentityHashMap<>());
+		collectResources(referenced);
+
+		SVGElement content = target;
+		if ( holder != null || target.getName().equals("symbol") )
+		{
+			// a symbol and an element inside a resource are shown by a use
+			AttributeDecoder attributes = getAttributeDecoder();
+			attributes.add(SVGAttribute.HREF, "#" + id);
+			content = new SVGElement("use", attributes.decode(), null, null);
+		}
+		for ( int i = ancestors.length - 1; i > 0; i-- )
+		{
+			// an element defined in <defs> is shown
+			if ( ancestors[i].name.equals("defs") ) continue;
+
+			content = new SVGElement(ancestors[i].name, ancestors[i].attributes, new SVGElement[] { content }, null);
+		}
+
+		ArrayList<SVGElement> defs = new ArrayList<>(referenced.size());
+		for ( SVGElement resource : resources )
+		{
+			if ( referenced.contains(resource) ) defs.add(resource);
+		}
+		if ( content != target ) defs.add(holder == null ? target : holder);
+		SVGElement[] children = defs.isEmpty()
+				? new SVGElement[] { content }
+				: new SVGElement[] { new SVGElement("defs", null, defs.toArray(new SVGElement[defs.size()]), null), content };
+
+		return new SVGElement(ancestors[0].name, ancestors[0].attributes, children, null);
+	}
+
+	/**
+	 * Find the resources referenced by the subtree, its ancestors and the style sheet, also through other resources.
+	 *
+	 * @param	referenced Set<SVGElement> the set to add the resources to
+	 */
+	private void collectResources(Set<SVGElement> referenced)
+	{
+		Map<String, SVGElement> resource_ids = new HashMap<>();
+		for ( SVGElement resource : resources )
+		{
+			putIds(resource, resource, resource_ids);
+		}
+		Map<String, SVGElement> subtree_ids = new HashMap<>();
+		putIds(holder == null ? target : holder, target, subtree_ids);
+		Set<String> ancestor_ids = new HashSet<>();
+		for ( Outer ancestor : ancestors )
+		{
+			String ancestor_id = ancestor.attributes.get(SVGAttribute.ID);
+			if ( ancestor_id != null ) ancestor_ids.add(ancestor_id);
+		}
+
+		Set<String> references = new LinkedHashSet<>();
+		collectReferences(target, references);
+		for ( Outer ancestor : ancestors )
+		{
+			int ln = ancestor.attributes.size();
+			for ( int i = 0; i < ln; i++ )
+			{
+				collectUrls(ancestor.attributes.getValue(i), references);
+			}
+		}
+		for ( SVGElement resource : resources )
+		{
+			// the rules may apply to the subtree
+			if ( resource.getName().equals("style") )
+			{
+				referenced.add(resource);
+				collectUrls(resource.getText(), references);
+			}
+		}
+
+		ArrayDeque<String> pending = new ArrayDeque<>(references);
+		while ( !pending.isEmpty() )
+		{
+			String reference = pending.poll();
+			if ( subtree_ids.containsKey(reference) ) continue;
+
+			SVGElement resource = resource_ids.get(reference);
+			if ( resource == null )
+			{
+				// a reference to an ancestor is circular
+				if ( !ancestor_ids.contains(reference) ) missing.add(reference);
+			}
+			else if ( referenced.add(resource) )
+			{
+				references.clear();
+				collectReferences(resource, references);
+				pending.addAll(references);
+			}
+		}
+	}
+
+	private static void putIds(SVGElement element, SVGElement resource, Map<String, SVGElement> ids)
+	{
+		String element_id = element.getAttribute(SVGAttribute.ID);
+		if ( element_id != null ) ids.putIfAbsent(element_id, resource);
+
+		int ln = element.getChildCount();
+		for ( int i = 0; i < ln; i++ )
+		{
+			putIds(element.getChild(i), resource, ids);
+		}
+	}
+
+	private static SVGElement find(SVGElement element, String element_id)
+	{
+		if ( element_id.equals(element.getAttribute(SVGAttribute.ID)) ) return element;
+
+		int ln = element.getChildCount();
+		for ( int i = 0; i < ln; i++ )
+		{
+			SVGElement found = find(element.getChild(i), element_id);
+			if ( found != null ) return found;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Collect the ids referenced by the {@code href} and {@code url(#id)} values of a subtree.
+	 *
+	 * @param	element SVGElement the root of the subtree
+	 * @param	references Set<String> the set to add the ids to
+	 */
+	private static void collectReferences(SVGElement element, Set<String> references)
+	{
+		String href = element.getAttribute(SVGAttribute.HREF);
+		if ( href != null && href.startsWith("#") ) references.add(href.substring(1));
+
+		int ln = element.getAttributeCount();
+		for ( int i = 0; i < ln; i++ )
+		{
+			collectUrls(element.getAttributeValue(i), references);
+		}
+
+		ln = element.getChildCount();
+		for ( int i = 0; i < ln; i++ )
+		{
+			collectReferences(element.getChild(i), references);
+		}
+	}
+
+	private static void collectUrls(String value, Set<String> references)
+	{
+		if ( value == null ) return;
+
+		for ( int start = value.indexOf("url(#"); start >= 0; start = value.indexOf("url(#", start) )
+		{
+			start += 5;
+			int end = value.indexOf(')', start);
+			if ( end < 0 ) end = value.length();
+			references.add(value.substring(start, end).trim());
+		}
+	}
+
+	/**
+	 * Tell, if an element is only shown, when it is referenced.
+	 *
+	 * @param	name String the element name
+	 * @return	boolean
+	 */
+	private static boolean isResource(String name)
+	{
+		switch ( name )
+		{
+			case "linearGradient":
+			case "radialGradient":
+			case "clipPath":
+			case "symbol":
+			case "style":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ id: ")
+			.append(id)
+			.append(", found: ")
+			.append(target != null)
+			.append(", resources: ")
+			.append(resources.size())
+			.append(", missing: ")
+			.append(missing)
+			.append(" }");
+
+		return sb.toString();
+	}
+
+	/**
+	 * An open element outside of the kept subtrees, which may become an ancestor of the element.
+	 */
+	private static class Outer
+	{
+		final String name;
+		final AttributeTable attributes;
+
+		Outer(String name, AttributeTable attributes)
+		{
+			this.name = name;
+			this.attributes = attributes;
+		}
+	}
+}
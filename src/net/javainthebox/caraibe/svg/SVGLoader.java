@@ -4,11 +4,16 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.stream.XMLStreamException;
 
+import javafx.application.Platform;
+
 /**
  * SVGLoader is a class for loading SVG file.
  * 
@@ -18,6 +23,13 @@ import javax.xml.stream.XMLStreamException;
  * 
  * container.getChildren.add(content);
  * </pre>
+ * 
+ * <p>To keep the JavaFX application thread free, load asynchronously:</p>
+ * 
+ * <pre>
+ * SVGLoader.loadAsync(path, executor)
+ *     .thenAccept(content -&gt; container.getChildren().add(content));
+ * </pre>
  */
 public class SVGLoader
 {
@@ -26,7 +38,8 @@ public class SVGLoader
 	}
 
 	/**
-	 * Load SVG file and convert it to JavaFX shapes.
+	 * Load SVG file and convert it to JavaFX shapes.<br>
+	 * The parsed file is kept in {@link SVGDocumentCache#getShared()}, loading it again only creates the shapes.
 	 * 
 	 * @param	path String The location of SVG file
 	 * @return	SVGContent an object that indicates SVG content
@@ -49,7 +62,241 @@ public class SVGLoader
 		return root;
 	}
 
-	private static URL getUrl(String path) throws Exception
+	/**
+	 * Load SVG file with a chosen xml reader and convert it to JavaFX shapes.<br>
+	 * Use {@link SVGParserBackend#BYTES} to bulk load trusted files, like the icons of an application.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	backend SVGParserBackend the xml reader to parse with
+	 * @return	SVGContent an object that indicates SVG content or null, if loading failed
+	 * @see		#load(String)
+	 */
+	public static SVGContent load(String path, SVGParserBackend backend)
+	{
+		try
+		{
+			return load(parse(path, backend));
+		}
+		catch ( IOException | XMLStreamException ex )
+		{
+			Logger.getLogger(SVGLoader.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Load SVG file and convert it to JavaFX shapes in the background.<br>
+	 * Xml parsing, number parsing, image decoding and the creation of the shapes are done by the executor.
+	 * The not yet attached shapes are handed over to the JavaFX application thread in a single
+	 * {@link Platform#runLater(Runnable)} step, where the returned future is completed.
+	 * So stages depending on it, which are not async, run on the JavaFX application thread
+	 * and may attach the content to a live scene.<br>
+	 * In contrast to {@link #load(String)}, failures complete the future exceptionally.
+	 * Without a running JavaFX toolkit, like in headless tests or after {@link Platform#exit()},
+	 * there is no thread to hand over to: the future is completed exceptionally with an {@link IllegalStateException}
+	 * or the failure of loading.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	executor Executor the executor to parse and build with
+	 * @return	CompletableFuture<SVGContent> the future content
+	 */
+	public static CompletableFuture<SVGContent> loadAsync(String path, Executor executor)
+	{
+		return loadAsync(path, executor, Platform::runLater);
+	}
+
+	/**
+	 * Load SVG file in the background and complete the future on another thread.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	executor Executor the executor to parse and build with
+	 * @param	fx_executor Executor the executor handing over to the JavaFX application thread
+	 * @return	CompletableFuture<SVGContent> the future content
+	 * @see		#loadAsync(String, Executor)
+	 */
+	static CompletableFuture<SVGContent> loadAsync(String path, Executor executor, Executor fx_executor)
+	{
+		CompletableFuture<SVGContent> future = new CompletableFuture<>();
+		
+		CompletableFuture
+			.supplyAsync(() -> {
+				try
+				{
+					return new SVGContentBuilder(parse(path)).build();
+				}
+				catch ( IOException | XMLStreamException ex )
+				{
+					throw new CompletionException(ex);
+				}
+			}, executor)
+			.whenComplete((content, ex) -> {
+				Throwable failure = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+				try
+				{
+					fx_executor.execute(() -> {
+						if ( failure == null )
+						{
+							future.complete(content);
+						}
+						else
+						{
+							future.completeExceptionally(failure);
+						}
+					});
+				}
+				catch ( RuntimeException handover )
+				{
+					// the toolkit isn't running
+					if ( failure == null )
+					{
+						future.completeExceptionally(handover);
+					}
+					else
+					{
+						failure.addSuppressed(handover);
+						future.completeExceptionally(failure);
+					}
+				}
+			});
+		
+		return future;
+	}
+
+	/**
+	 * Parse SVG file into a document model, without creating any JavaFX node.<br>
+	 * May be called on any thread, the returned document is immutable.<br>
+	 * Documents are shared through {@link SVGDocumentCache#getShared()}, an unmodified file is parsed once.<br>
+	 * Use {@link #load(SVGDocument)} to convert it to JavaFX shapes.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @return	SVGDocument the parsed document
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 */
+	public static SVGDocument parse(String path) throws IOException, XMLStreamException
+	{
+		return parse(path, SVGParserBackend.DEFAULT);
+	}
+
+	/**
+	 * Parse SVG file into a document model with a chosen xml reader.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	backend SVGParserBackend the xml reader to parse with
+	 * @return	SVGDocument the parsed document
+	 * @throws	IOException
+	 * @throws	XMLStreamException
+	 * @see		#parse(String)
+	 */
+	public static SVGDocument parse(String path, SVGParserBackend backend) throws IOException, XMLStreamException
+	{
+		URL url = getUrl(path);
+		
+		return SVGDocumentCache.getShared().get(url, backend);
+	}
+
+	/**
+	 * Load a single element of SVG file, like a layer or an icon of a sprite sheet, and convert it to JavaFX shapes.<br>
+	 * The file is streamed, all other subtrees are skipped without creating elements or shapes for them.
+	 * The content holds the element with the style and transforms of its ancestors and the gradients, clip paths
+	 * and symbols it references, but not the size and view box of the file.
+	 * A {@code <symbol>} is shown like used, as well as an element inside a resource, like a shape of a symbol
+	 * or an element nested in {@code <defs>}. The file is not kept in {@link SVGDocumentCache#getShared()}.
+	 * 
+	 * <pre>
+	 * SVGContent icon = SVGLoader.loadFragment("icons.svg", "icon_42");
+	 * </pre>
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	id String the id of the element
+	 * @return	SVGContent the content or null, if loading failed or the file has no element with the id
+	 */
+	public static SVGContent loadFragment(String path, String id)
+	{
+		return loadFragment(path, id, SVGParserBackend.DEFAULT);
+	}
+
+	/**
+	 * Load a single element of SVG file with a chosen xml reader.<br>
+	 * Use {@link SVGParserBackend#BYTES} for large trusted files: it doesn't even read the attributes
+	 * of the skipped shapes, which makes loading a fragment of a local file about as fast as scanning its bytes.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	id String the id of the element
+	 * @param	backend SVGParserBackend the xml reader to parse with
+	 * @return	SVGContent the content or null, if loading failed or the file has no element with the id
+	 * @see		#loadFragment(String, String)
+	 */
+	public static SVGContent loadFragment(String path, String id, SVGParserBackend backend)
+	{
+		try
+		{
+			return load(parseFragment(path, id, backend));
+		}
+		catch ( IOException | XMLStreamException ex )
+		{
+			Logger.getLogger(SVGLoader.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Parse a single element of SVG file into a document model, without creating any JavaFX node.<br>
+	 * May be called on any thread.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	id String the id of the element
+	 * @return	SVGDocument the document holding just the element, see {@link #loadFragment(String, String)}
+	 * @throws	IOException
+	 * @throws	XMLStreamException if the file has no element with the id
+	 */
+	public static SVGDocument parseFragment(String path, String id) throws IOException, XMLStreamException
+	{
+		return parseFragment(path, id, SVGParserBackend.DEFAULT);
+	}
+
+	/**
+	 * Parse a single element of SVG file into a document model with a chosen xml reader.
+	 * 
+	 * @param	path String The location of SVG file
+	 * @param	id String the id of the element
+	 * @param	backend SVGParserBackend the xml reader to parse with
+	 * @return	SVGDocument the document holding just the element
+	 * @throws	IOException
+	 * @throws	XMLStreamException if the file has no element with the id
+	 * @see		#loadFragment(String, String, SVGParserBackend)
+	 */
+	public static SVGDocument parseFragment(String path, String id, SVGParserBackend backend) throws IOException, XMLStreamException
+	{
+		return new SVGDocumentParser(getUrl(path), backend).parseFragment(id);
+	}
+
+	/**
+	 * Convert a parsed document to JavaFX shapes.
+	 * 
+	 * @param	document SVGDocument the parsed document
+	 * @return	SVGContent an object that indicates SVG content
+	 */
+	public static SVGContent load(SVGDocument document)
+	{
+		SVGContent root = null;
+		SVGContentBuilder builder = new SVGContentBuilder(document);
+		
+		try
+		{
+			root = builder.build();
+		}
+		catch ( IOException | XMLStreamException ex )
+		{
+			Logger.getLogger(SVGLoader.class.getName()).log(Level.SEVERE, null, ex);
+		}
+		
+		return root;
+	}
+
+	private static URL getUrl(String path) throws MalformedURLException
 	{
 		URL url = null;
 		try
@@ -68,7 +315,7 @@ public class SVGLoader
 				catch ( final MalformedURLException e )
 				{
 					Logger.getLogger(SVGLoader.class.getName()).log(Level.SEVERE, null, e);
-					throw new Exception("Could not parse an URL out of: "+path);
+					throw new MalformedURLException("Could not parse an URL out of: "+path);
 				}
 			}
 		}
@@ -84,11 +331,10 @@ public class SVGLoader
 	 */
 	protected static SVGContent build(SVGContent root, URL url)
 	{
-		SVGContentBuilder builder = new SVGContentBuilder(url);
-		
 		try
 		{
-			root = builder.build();
+			SVGDocument document = SVGDocumentCache.getShared().get(url);
+			root = new SVGContentBuilder(document).build();
 		}
 		catch ( IOException | XMLStreamException ex )
 		{
@@ -0,0 +1,29 @@
+package net.javainthebox.caraibe.svg;
+
+/**
+ * The xml readers the {@link SVGDocumentParser} can be backed by.<br>
+ * All backends produce the same {@link SVGDocument}.
+ */
+public enum SVGParserBackend
+{
+	/**
+	 * StAX {@code XMLEventReader}, allocates an event object for every piece of the document.
+	 */
+	EVENT,
+	/**
+	 * StAX {@code XMLStreamReader}, reads the document in place.
+	 */
+	CURSOR,
+	/**
+	 * The built in byte tokenizer, reads UTF-8 or ISO-8859-1 bytes of the whole file without a general xml parser.<br>
+	 * Much faster for bulk loading, but only for trusted inputs: it checks little more than needed to read the document
+	 * and doesn't support entities declared in a DTD.
+	 */
+	BYTES
+	;
+
+	/**
+	 * The backend used, when none is given.
+	 */
+	public static final SVGParserBackend DEFAULT = CURSOR;
+}
@@ -0,0 +1,167 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+/**
+ * The computed presentation style of an element: fill, stroke and opacity.<br>
+ * A style is immutable and derived from the style of the parent element,
+ * the inherited properties are taken over, opacity is not inherited.
+ * Properties which are specified nowhere are null or NaN, so the JavaFX defaults of a shape are kept.
+ *
+ * <p>The same class holds the declarations of a single element, like its presentation attributes
+ * or its style attribute, which {@link #override(SVGStyle)} applies to a computed style.
+ * {@link StyleResolver} shares equal styles, so the shapes of a styled group point at one instance.</p>
+ */
+final class SVGStyle
+{
+	/**
+	 * The style without any specified property, the parent style of the root element.
+	 */
+	static final SVGStyle NONE = new SVGStyle(null, Double.NaN, null, Double.NaN, Double.NaN, null, null, Double.NaN, null, Double.NaN, Double.NaN);
+
+	// inherited properties, null or NaN if not specified
+	final String fill;
+	final double fill_opacity;
+	final String stroke;
+	final double stroke_opacity;
+	final double stroke_width;
+	final StrokeLineCap stroke_linecap;
+	final StrokeLineJoin stroke_linejoin;
+	final double stroke_miterlimit;
+	final double[] stroke_dasharray; // empty for "none"
+	final double stroke_dashoffset;
+
+	// the opacity of the element itself
+	final double opacity;
+
+	private final int hash;
+
+	SVGStyle(String fill, double fill_opacity, String stroke, double stroke_opacity, double stroke_width,
+			StrokeLineCap stroke_linecap, StrokeLineJoin stroke_linejoin, double stroke_miterlimit,
+			double[] stroke_dasharray, double stroke_dashoffset, double opacity)
+	{
+		this.fill = fill;
+		this.fill_opacity = fill_opacity;
+		this.stroke = stroke;
+		this.stroke_opacity = stroke_opacity;
+		this.stroke_width = stroke_width;
+		this.stroke_linecap = stroke_linecap;
+		this.stroke_linejoin = stroke_linejoin;
+		this.stroke_miterlimit = stroke_miterlimit;
+		this.stroke_dasharray = stroke_dasharray;
+		this.stroke_dashoffset = stroke_dashoffset;
+		this.opacity = opacity;
+
+		int h = Objects.hashCode(fill);
+		h = 31 * h + Double.hashCode(fill_opacity);
+		h = 31 * h + Objects.hashCode(stroke);
+		h = 31 * h + Double.hashCode(stroke_opacity);
+		h = 31 * h + Double.hashCode(stroke_width);
+		h = 31 * h + Objects.hashCode(stroke_linecap);
+		h = 31 * h + Objects.hashCode(stroke_linejoin);
+		h = 31 * h + Double.hashCode(stroke_miterlimit);
+		h = 31 * h + Arrays.hashCode(stroke_dasharray);
+		h = 31 * h + Double.hashCode(stroke_dashoffset);
+		h = 31 * h + Double.hashCode(opacity);
+		this.hash = h;
+	}
+
+	/**
+	 * Get the style a child element starts from.
+	 *
+	 * @return	SVGStyle this style without the properties which aren't inherited
+	 */
+	SVGStyle inherit()
+	{
+		if ( Double.isNaN(opacity) ) return this;
+
+		return new SVGStyle(fill, fill_opacity, stroke, stroke_opacity, stroke_width,
+				stroke_linecap, stroke_linejoin, stroke_miterlimit,
+				stroke_dasharray, stroke_dashoffset, Double.NaN);
+	}
+
+	/**
+	 * Apply declarations to this style.
+	 *
+	 * @param	declared SVGStyle the declarations, their specified properties replace the ones of this style
+	 * @return	SVGStyle the combined style
+	 */
+	SVGStyle override(SVGStyle declared)
+	{
+		if ( declared == NONE ) return this;
+
+		return new SVGStyle(declared.fill != null ? declared.fill : fill,
+				pick(declared.fill_opacity, fill_opacity),
+				declared.stroke != null ? declared.stroke : stroke,
+				pick(declared.stroke_opacity, stroke_opacity),
+				pick(declared.stroke_width, stroke_width),
+				declared.stroke_linecap != null ? declared.stroke_linecap : stroke_linecap,
+				declared.stroke_linejoin != null ? declared.stroke_linejoin : stroke_linejoin,
+				pick(declared.stroke_miterlimit, stroke_miterlimit),
+				declared.stroke_dasharray != null ? declared.stroke_dasharray : stroke_dasharray,
+				pick(declared.stroke_dashoffset, stroke_dashoffset),
+				pick(declared.opacity, opacity));
+	}
+
+	private static double pick(double declared, double value)
+	{
+		return Double.isNaN(declared) ? value : declared;
+	}
+
+	@Override
+	public boolean equals(Object object)
+	{
+		if ( this == object ) return true;
+		if ( !( object instanceof SVGStyle ) ) return false;
+
+		SVGStyle other = (SVGStyle) object;
+		return hash == other.hash
+				&& Objects.equals(fill, other.fill)
+				&& same(fill_opacity, other.fill_opacity)
+				&& Objects.equals(stroke, other.stroke)
+				&& same(stroke_opacity, other.stroke_opacity)
+				&& same(stroke_width, other.stroke_width)
+				&& stroke_linecap == other.stroke_linecap
+				&& stroke_linejoin == other.stroke_linejoin
+				&& same(stroke_miterlimit, other.stroke_miterlimit)
+				&& Arrays.equals(stroke_dasharray, other.stroke_dasharray)
+				&& same(stroke_dashoffset, other.stroke_dashoffset)
+				&& same(opacity, other.opacity);
+	}
+
+	private static boolean same(double a, double b)
+	{
+		// NaN, the unspecified value, equals itself
+		return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ fill: ").append(fill)
+			.append(", fill_opacity: ").append(fill_opacity)
+			.append(", stroke: ").append(stroke)
+			.append(", stroke_opacity: ").append(stroke_opacity)
+			.append(", stroke_width: ").append(stroke_width)
+			.append(", stroke_linecap: ").append(stroke_linecap)
+			.append(", stroke_linejoin: ").append(stroke_linejoin)
+			.append(", stroke_miterlimit: ").append(stroke_miterlimit)
+			.append(", stroke_dasharray: ").append(Arrays.toString(stroke_dasharray))
+			.append(", stroke_dashoffset: ").append(stroke_dashoffset)
+			.append(", opacity: ").append(opacity)
+			.append(" }");
+
+		return sb.toString();
+	}
+}
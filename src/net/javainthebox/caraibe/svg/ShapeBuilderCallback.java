@@ -1,11 +1,8 @@
 package net.javainthebox.caraibe.svg;
 
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.events.StartElement;
-
 import javafx.scene.Node;
 
 public interface ShapeBuilderCallback
 {
-	public Node build(XMLEventReader reader, StartElement element) throws Exception;
+	public Node build(SVGElement element) throws Exception;
 }
@@ -0,0 +1,105 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+
+/**
+ * Simplifies polylines with the Douglas-Peucker algorithm:
+ * a vertex is kept, if it is farther from the simplified line than a tolerance.<br>
+ * The first and the last vertex are always kept. Works on flat coordinate arrays, like the points of a polyline,
+ * without recursion, so lines with millions of vertices are fine.
+ *
+ * <pre>
+ * double[] simple = Simplifier.simplify(points, points.length, 0.5);
+ * </pre>
+ */
+final class Simplifier
+{
+	private Simplifier()
+	{
+	}
+
+	/**
+	 * Simplify a polyline.
+	 *
+	 * @param	points double[] the coordinates x0, y0, x1, y1, ...
+	 * @param	n int the number of coordinates to read, an odd last coordinate is dropped
+	 * @param	tolerance double the maximum distance of a dropped vertex from the simplified line
+	 * @return	double[] the coordinates of the kept vertices, exactly sized
+	 */
+	static double[] simplify(double[] points, int n, double tolerance)
+	{
+		int count = n / 2;
+		if ( count <= 2 || !( tolerance > 0 ) ) return Arrays.copyOf(points, count * 2);
+
+		boolean[] keep = new boolean[count];
+		keep[0] = true;
+		keep[count - 1] = true;
+		double tolerance2 = tolerance * tolerance;
+
+		// ranges of vertices to look at, first and last index
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = count - 1;
+		int kept = 2;
+		while ( top > 0 )
+		{
+			int last = stack[--top];
+			int first = stack[--top];
+
+			double x0 = points[first * 2];
+			double y0 = points[first * 2 + 1];
+			double dx = points[last * 2] - x0;
+			double dy = points[last * 2 + 1] - y0;
+			double length2 = dx * dx + dy * dy;
+
+			int farthest = -1;
+			double max2 = tolerance2;
+			for ( int i = first + 1; i < last; i++ )
+			{
+				double distance2 = distance2(points[i * 2] - x0, points[i * 2 + 1] - y0, dx, dy, length2);
+				if ( distance2 > max2 )
+				{
+					max2 = distance2;
+					farthest = i;
+				}
+			}
+			if ( farthest < 0 ) continue;
+
+			keep[farthest] = true;
+			kept++;
+			if ( top + 4 > stack.length ) stack = Arrays.copyOf(stack, stack.length * 2);
+			stack[top++] = first;
+			stack[top++] = farthest;
+			stack[top++] = farthest;
+			stack[top++] = last;
+		}
+
+		double[] simple = new double[kept * 2];
+		int j = 0;
+		for ( int i = 0; i < count; i++ )
+		{
+			if ( !keep[i] ) continue;
+			simple[j++] = points[i * 2];
+			simple[j++] = points[i * 2 + 1];
+		}
+
+		return simple;
+	}
+
+	/**
+	 * Get the squared distance of a point from a segment starting in the origin.
+	 */
+	private static double distance2(double px, double py, double dx, double dy, double length2)
+	{
+		if ( length2 == 0 ) return px * px + py * py;
+
+		double t = ( px * dx + py * dy ) / length2;
+		if ( t < 0 ) t = 0;
+		else if ( t > 1 ) t = 1;
+		double ex = px - t * dx;
+		double ey = py - t * dy;
+
+		return ex * ex + ey * ey;
+	}
+}
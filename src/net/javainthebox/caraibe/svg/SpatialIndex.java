@@ -0,0 +1,453 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.transform.Transform;
+
+/**
+ * A uniform grid over the bounds of the shapes and images of a content, in the coordinates of the content.<br>
+ * Finding the nodes at a point or in a region looks at the cells it covers instead of picking through the node tree.
+ * Nodes covering many cells, like backgrounds, are kept aside and tested on every query.
+ * Changes of the geometry or the transform of a node, or of the transform of one of its groups,
+ * mark its entries dirty; they are put into their new cells by the next query.
+ * Nodes added to or removed from the content after the index has been built are not tracked.
+ *
+ * <pre>
+ * SpatialIndex index = new SpatialIndex(content);
+ * List&lt;Node&gt; hit = index.nodesAt(120, 80);
+ * </pre>
+ */
+final class SpatialIndex
+{
+	/**
+	 * The number of cells a node may cover, before it is tested on every query instead.
+	 */
+	static final int MAX_CELLS_PER_NODE = 64;
+
+	private final SVGContent content;
+
+	// the entries in document order
+	private Node[] nodes = new Node[64];
+	private double[] bounds = new double[64 * 4]; // min x, min y, max x, max y per entry
+	private int count;
+
+	// the grid
+	private double min_x;
+	private double min_y;
+	private double cell_size;
+	private int columns;
+	private int rows;
+	private int[][] cells; // entry ids per cell, the first element is the number of ids
+	private int[] oversized = new int[1];
+
+	private final BitSet dirty = new BitSet();
+	private int[] marks; // query stamps per entry, to report an entry once
+	private int stamp;
+
+	/**
+	 * Index the shapes and images of a content.
+	 *
+	 * @param	content SVGContent the content
+	 */
+	SpatialIndex(SVGContent content)
+	{
+		this.content = content;
+
+		for ( Node child : content.getContentChildren(content) )
+		{
+			add(child, child.getLocalToParentTransform());
+		}
+		marks = new int[count];
+
+		createGrid();
+		for ( int id = 0; id < count; id++ )
+		{
+			insert(id);
+		}
+	}
+
+	/**
+	 * Add the leaves of a subtree in document order.
+	 *
+	 * @param	node Node the root of the subtree
+	 * @param	transform Transform from the node to the content
+	 */
+	private void add(Node node, Transform transform)
+	{
+		if ( node instanceof Parent )
+		{
+			int from = count;
+			for ( Node child : content.getContentChildren((Parent) node) )
+			{
+				add(child, transform.createConcatenation(child.getLocalToParentTransform()));
+			}
+			int to = count;
+			// a new transform of a group moves all its leaves
+			if ( to > from )
+			{
+				node.localToParentTransformProperty().addListener((InvalidationListener) o -> dirty.set(from, to));
+				// the listener is notified of invalidations of a valid transform only
+				node.getLocalToParentTransform();
+			}
+
+			return;
+		}
+
+		if ( count == nodes.length )
+		{
+			nodes = Arrays.copyOf(nodes, count * 2);
+			bounds = Arrays.copyOf(bounds, count * 2 * 4);
+		}
+		int id = count++;
+		nodes[id] = node;
+		setBounds(id, transform.transform(node.getBoundsInLocal()));
+		node.boundsInParentProperty().addListener((InvalidationListener) o -> dirty.set(id));
+		node.getBoundsInParent();
+	}
+
+	private void setBounds(int id, Bounds node_bounds)
+	{
+		bounds[id * 4] = node_bounds.getMinX();
+		bounds[id * 4 + 1] = node_bounds.getMinY();
+		bounds[id * 4 + 2] = node_bounds.getMaxX();
+		bounds[id * 4 + 3] = node_bounds.getMaxY();
+	}
+
+	/**
+	 * Size the grid for about one entry per cell over the bounds of all entries.
+	 */
+	private void createGrid()
+	{
+		double max_x = 0;
+		double max_y = 0;
+		if ( count > 0 )
+		{
+			min_x = Double.POSITIVE_INFINITY;
+			min_y = Double.POSITIVE_INFINITY;
+			max_x = Double.NEGATIVE_INFINITY;
+			max_y = Double.NEGATIVE_INFINITY;
+			for ( int id = 0; id < count; id++ )
+			{
+				if ( isEmpty(id) ) continue;
+				min_x = Math.min(min_x, bounds[id * 4]);
+				min_y = Math.min(min_y, bounds[id * 4 + 1]);
+				max_x = Math.max(max_x, bounds[id * 4 + 2]);
+				max_y = Math.max(max_y, bounds[id * 4 + 3]);
+			}
+			if ( min_x > max_x )
+			{
+				min_x = min_y = max_x = max_y = 0;
+			}
+		}
+
+		double width = Math.max(max_x - min_x, 1);
+		double height = Math.max(max_y - min_y, 1);
+		cell_size = Math.max(Math.sqrt(width * height / Math.max(count, 1)), Math.max(width, height) / 4096);
+		columns = (int) Math.min(Math.ceil(width / cell_size), 4096);
+		rows = (int) Math.min(Math.ceil(height / cell_size), 4096);
+		columns = Math.max(columns, 1);
+		rows = Math.max(rows, 1);
+		cells = new int[columns * rows][];
+	}
+
+	private boolean isEmpty(int id)
+	{
+		// bounds of nodes without geometry are inverted, or NaN
+		return !( bounds[id * 4] <= bounds[id * 4 + 2] && bounds[id * 4 + 1] <= bounds[id * 4 + 3] );
+	}
+
+	private int column(double x)
+	{
+		int column = (int) Math.floor(( x - min_x ) / cell_size);
+
+		return column < 0 ? 0 : column >= columns ? columns - 1 : column;
+	}
+
+	private int row(double y)
+	{
+		int row = (int) Math.floor(( y - min_y ) / cell_size);
+
+		return row < 0 ? 0 : row >= rows ? rows - 1 : row;
+	}
+
+	private void insert(int id)
+	{
+		if ( isEmpty(id) ) return;
+
+		int column0 = column(bounds[id * 4]);
+		int column1 = column(bounds[id * 4 + 2]);
+		int row0 = row(bounds[id * 4 + 1]);
+		int row1 = row(bounds[id * 4 + 3]);
+		if ( ( column1 - column0 + 1 ) * ( row1 - row0 + 1 ) > MAX_CELLS_PER_NODE )
+		{
+			oversized = append(oversized, id);
+			return;
+		}
+
+		for ( int row = row0; row <= row1; row++ )
+		{
+			for ( int column = column0; column <= column1; column++ )
+			{
+				int cell = row * columns + column;
+				cells[cell] = append(cells[cell], id);
+			}
+		}
+	}
+
+	private void remove(int id)
+	{
+		if ( isEmpty(id) ) return;
+
+		int column0 = column(bounds[id * 4]);
+		int column1 = column(bounds[id * 4 + 2]);
+		int row0 = row(bounds[id * 4 + 1]);
+		int row1 = row(bounds[id * 4 + 3]);
+		if ( ( column1 - column0 + 1 ) * ( row1 - row0 + 1 ) > MAX_CELLS_PER_NODE )
+		{
+			removeFrom(oversized, id);
+			return;
+		}
+
+		for ( int row = row0; row <= row1; row++ )
+		{
+			for ( int column = column0; column <= column1; column++ )
+			{
+				removeFrom(cells[row * columns + column], id);
+			}
+		}
+	}
+
+	private static int[] append(int[] ids, int id)
+	{
+		if ( ids == null ) ids = new int[4];
+		int n = ids[0] + 1;
+		if ( n == ids.length ) ids = Arrays.copyOf(ids, n * 2);
+		ids[n] = id;
+		ids[0] = n;
+
+		return ids;
+	}
+
+	private static void removeFrom(int[] ids, int id)
+	{
+		if ( ids == null ) return;
+
+		int n = ids[0];
+		for ( int i = 1; i <= n; i++ )
+		{
+			if ( ids[i] == id )
+			{
+				ids[i] = ids[n];
+				ids[0] = n - 1;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Put the entries of changed nodes into their new cells.
+	 */
+	private void update()
+	{
+		for ( int id = dirty.nextSetBit(0); id >= 0; id = dirty.nextSetBit(id + 1) )
+		{
+			Bounds node_bounds = toContent(nodes[id]);
+			// a detached node keeps its last bounds
+			if ( node_bounds == null ) continue;
+
+			remove(id);
+			setBounds(id, node_bounds);
+			insert(id);
+		}
+		dirty.clear();
+	}
+
+	/**
+	 * Get the bounds of a node in the coordinates of the content.
+	 *
+	 * @param	node Node the node
+	 * @return	Bounds the bounds or null, if the node is not part of the content
+	 */
+	private Bounds toContent(Node node)
+	{
+		Bounds node_bounds = node.getBoundsInParent();
+		for ( Parent parent = content.getContentParent(node); parent != content; parent = content.getContentParent(parent) )
+		{
+			if ( parent == null ) return null;
+			node_bounds = parent.getLocalToParentTransform().transform(node_bounds);
+		}
+
+		return node_bounds;
+	}
+
+	/**
+	 * Get a point in the coordinates of a node.
+	 *
+	 * @param	node Node the node
+	 * @param	x double x in the coordinates of the content
+	 * @param	y double y in the coordinates of the content
+	 * @return	Point2D the point or null, if the node is hidden or not part of the content
+	 */
+	private Point2D toLocal(Node node, double x, double y)
+	{
+		ArrayList<Node> path = new ArrayList<>(8);
+		for ( Node n = node; n != content; n = content.getContentParent(n) )
+		{
+			if ( n == null || !n.isVisible() ) return null;
+			path.add(n);
+		}
+
+		Point2D point = new Point2D(x, y);
+		for ( int i = path.size() - 1; i >= 0; i-- )
+		{
+			point = path.get(i).parentToLocal(point);
+		}
+
+		return point;
+	}
+
+	private boolean isVisible(Node node)
+	{
+		for ( Node n = node; n != content; n = content.getContentParent(n) )
+		{
+			if ( n == null || !n.isVisible() ) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Find the visible shapes and images containing a point.
+	 *
+	 * @param	x double x in the coordinates of the content
+	 * @param	y double y in the coordinates of the content
+	 * @return	List<Node> the nodes, the topmost first
+	 */
+	List<Node> nodesAt(double x, double y)
+	{
+		if ( !dirty.isEmpty() ) update();
+
+		int[] found = new int[4];
+		int[] ids = cells[row(y) * columns + column(x)];
+		if ( ids != null ) found = collectAt(ids, x, y, found);
+		found = collectAt(oversized, x, y, found);
+
+		int n = found[0];
+		Arrays.sort(found, 1, n + 1);
+		ArrayList<Node> hit = new ArrayList<>(n);
+		for ( int i = n; i >= 1; i-- )
+		{
+			hit.add(nodes[found[i]]);
+		}
+
+		return hit;
+	}
+
+	private int[] collectAt(int[] ids, double x, double y, int[] found)
+	{
+		for ( int i = 1; i <= ids[0]; i++ )
+		{
+			int id = ids[i];
+			if ( x < bounds[id * 4] || x > bounds[id * 4 + 2] || y < bounds[id * 4 + 1] || y > bounds[id * 4 + 3] ) continue;
+
+			Node node = nodes[id];
+			Point2D local = toLocal(node, x, y);
+			if ( local != null && node.contains(local) ) found = append(found, id);
+		}
+
+		return found;
+	}
+
+	/**
+	 * Find the visible shapes and images, whose bounds intersect a region.
+	 *
+	 * @param	region Bounds the region in the coordinates of the content
+	 * @return	List<Node> the nodes in document order
+	 */
+	List<Node> nodesIntersecting(Bounds region)
+	{
+		if ( !dirty.isEmpty() ) update();
+
+		if ( ++stamp == 0 )
+		{
+			Arrays.fill(marks, 0);
+			stamp = 1;
+		}
+
+		int[] found = new int[16];
+		int column0 = column(region.getMinX());
+		int column1 = column(region.getMaxX());
+		int row0 = row(region.getMinY());
+		int row1 = row(region.getMaxY());
+		for ( int row = row0; row <= row1; row++ )
+		{
+			for ( int column = column0; column <= column1; column++ )
+			{
+				int[] ids = cells[row * columns + column];
+				if ( ids != null ) found = collectIntersecting(ids, region, found);
+			}
+		}
+		found = collectIntersecting(oversized, region, found);
+
+		int n = found[0];
+		Arrays.sort(found, 1, n + 1);
+		ArrayList<Node> intersecting = new ArrayList<>(n);
+		for ( int i = 1; i <= n; i++ )
+		{
+			Node node = nodes[found[i]];
+			if ( isVisible(node) ) intersecting.add(node);
+		}
+
+		return intersecting;
+	}
+
+	private int[] collectIntersecting(int[] ids, Bounds region, int[] found)
+	{
+		for ( int i = 1; i <= ids[0]; i++ )
+		{
+			int id = ids[i];
+			if ( marks[id] == stamp ) continue;
+			marks[id] = stamp;
+
+			if ( bounds[id * 4 + 2] < region.getMinX() || bounds[id * 4] > region.getMaxX()
+					|| bounds[id * 4 + 3] < region.getMinY() || bounds[id * 4 + 1] > region.getMaxY() ) continue;
+
+			found = append(found, id);
+		}
+
+		return found;
+	}
+
+	/**
+	 * @return	int the number of indexed nodes
+	 */
+	int size()
+	{
+		return count;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ nodes: ")
+			.append(count)
+			.append(", cells: ")
+			.append(columns).append('x').append(rows)
+			.append(", cell_size: ")
+			.append(cell_size)
+			.append(", oversized: ")
+			.append(oversized[0])
+			.append(" }");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,355 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+
+/**
+ * Computes the styles of the elements of a document, each from the style of its parent.<br>
+ * The presentation attributes of an element are applied first,
+ * then the rules of the style sheet matching the element, its style attribute overrides them.
+ * Style attributes are parsed once per distinct value and equal styles are shared,
+ * so elements without own style declarations cost a lookup only.
+ * A resolver belongs to one {@link SVGContentBuilder}, so it is not thread safe.
+ */
+final class StyleResolver
+{
+	// the presentation attributes held by a style
+	private static final SVGAttribute[] PRESENTATION_ATTRIBUTES = {
+		SVGAttribute.FILL, SVGAttribute.FILL_OPACITY,
+		SVGAttribute.STROKE, SVGAttribute.STROKE_OPACITY, SVGAttribute.STROKE_WIDTH,
+		SVGAttribute.STROKE_LINECAP, SVGAttribute.STROKE_LINEJOIN, SVGAttribute.STROKE_MITERLIMIT,
+		SVGAttribute.STROKE_DASHARRAY, SVGAttribute.STROKE_DASHOFFSET,
+		SVGAttribute.OPACITY
+	};
+
+	private final Map<SVGStyle, SVGStyle> styles = new HashMap<>();
+	private final Map<String, SVGStyle> declarations = new HashMap<>();
+	private final Map<String, SVGStyle> matches = new HashMap<>();
+	private StyleSheet style_sheet = StyleSheet.EMPTY;
+	private final NumberScanner numbers = new NumberScanner();
+
+	// the declarations read so far, see declare
+	private String fill;
+	private double fill_opacity;
+	private String stroke;
+	private double stroke_opacity;
+	private double stroke_width;
+	private StrokeLineCap stroke_linecap;
+	private StrokeLineJoin stroke_linejoin;
+	private double stroke_miterlimit;
+	private double[] stroke_dasharray;
+	private double stroke_dashoffset;
+	private double opacity;
+
+	StyleResolver()
+	{
+		styles.put(SVGStyle.NONE, SVGStyle.NONE);
+	}
+
+	/**
+	 * Set the rules of the {@code <style>} elements of the document.
+	 *
+	 * @param	style_sheet StyleSheet
+	 */
+	void setStyleSheet(StyleSheet style_sheet)
+	{
+		this.style_sheet = style_sheet;
+		matches.clear();
+	}
+
+	/**
+	 * Compute the style of an element.
+	 *
+	 * @param	parent SVGStyle the computed style of the parent element
+	 * @param	element SVGElement the element
+	 * @return	SVGStyle the shared computed style
+	 */
+	SVGStyle compute(SVGStyle parent, SVGElement element)
+	{
+		SVGStyle style = parent.inherit();
+		if ( hasPresentationAttributes(element) )
+		{
+			style = style.override(getAttributeDeclarations(element));
+		}
+
+		if ( !style_sheet.isEmpty() )
+		{
+			style = style.override(getRuleDeclarations(element));
+		}
+
+		String style_attribute = element.getAttribute(SVGAttribute.STYLE);
+		if ( style_attribute != null )
+		{
+			style = style.override(getDeclarations(style_attribute));
+		}
+
+		return intern(style);
+	}
+
+	/**
+	 * Get the shared instance of a style.
+	 *
+	 * @param	style SVGStyle
+	 * @return	SVGStyle the first style equal to the given one
+	 */
+	SVGStyle intern(SVGStyle style)
+	{
+		SVGStyle shared = styles.putIfAbsent(style, style);
+
+		return shared == null ? style : shared;
+	}
+
+	/**
+	 * @return	int the number of distinct computed styles
+	 */
+	int getStyleCount()
+	{
+		return styles.size();
+	}
+
+	/**
+	 * Get the declarations of a style attribute, like {@code "fill:#FFFFFF; stroke:#000000;"}.<br>
+	 * Parsed once per distinct value.
+	 *
+	 * @param	style_attribute String the value of the style attribute
+	 * @return	SVGStyle the declarations
+	 */
+	SVGStyle getDeclarations(String style_attribute)
+	{
+		SVGStyle declared = declarations.get(style_attribute);
+		if ( declared == null )
+		{
+			declared = parseDeclarations(style_attribute);
+			declarations.put(style_attribute, declared);
+		}
+
+		return declared;
+	}
+
+	/**
+	 * Get the declarations of the style sheet rules matching an element.<br>
+	 * Matched once per distinct combination of name, classes and selected id.
+	 *
+	 * @param	element SVGElement
+	 * @return	SVGStyle the declarations
+	 */
+	private SVGStyle getRuleDeclarations(SVGElement element)
+	{
+		String name = element.getName();
+		String class_attribute = element.getAttribute(SVGAttribute.CLASS);
+		String id = element.getAttribute(SVGAttribute.ID);
+		// ids are unique, only ids selected by a rule are part of the key
+		if ( !style_sheet.hasId(id) ) id = null;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(name).append('|');
+		if ( class_attribute != null ) sb.append(class_attribute);
+		sb.append('|');
+		if ( id != null ) sb.append(id);
+		String key = sb.toString();
+
+		SVGStyle declared = matches.get(key);
+		if ( declared == null )
+		{
+			declared = style_sheet.match(name, id, class_attribute);
+			matches.put(key, declared);
+		}
+
+		return declared;
+	}
+
+	private boolean hasPresentationAttributes(SVGElement element)
+	{
+		for ( SVGAttribute attribute : PRESENTATION_ATTRIBUTES )
+		{
+			if ( element.hasAttribute(attribute) ) return true;
+		}
+
+		return false;
+	}
+
+	private SVGStyle getAttributeDeclarations(SVGElement element)
+	{
+		clear();
+		for ( SVGAttribute attribute : PRESENTATION_ATTRIBUTES )
+		{
+			if ( !element.hasAttribute(attribute) ) continue;
+
+			try
+			{
+				if ( attribute.isNumber() )
+				{
+					declare(attribute.toString(), element.getNumber(attribute, Double.NaN), null);
+				}
+				else
+				{
+					declare(attribute.toString(), Double.NaN, element.getAttribute(attribute).trim());
+				}
+			}
+			catch ( NumberFormatException ex )
+			{
+				Logger.getLogger(StyleResolver.class.getName()).log(Level.INFO, "No Support Style: {0} {1}", new Object[] { attribute, element });
+			}
+		}
+
+		return toStyle();
+	}
+
+	private SVGStyle parseDeclarations(String style_attribute)
+	{
+		clear();
+		int end = style_attribute.length();
+		int start = 0;
+		while ( start < end )
+		{
+			int semicolon = style_attribute.indexOf(';', start);
+			if ( semicolon < 0 ) semicolon = end;
+
+			int colon = style_attribute.indexOf(':', start);
+			if ( colon >= 0 && colon < semicolon )
+			{
+				String name = style_attribute.substring(start, colon).trim();
+				String value = style_attribute.substring(colon + 1, semicolon).trim();
+				// all declarations are applied in the same order
+				if ( value.endsWith("!important") ) value = value.substring(0, value.length() - 10).trim();
+				try
+				{
+					if ( !declare(name, Double.NaN, value) )
+					{
+						Logger.getLogger(StyleResolver.class.getName()).log(Level.INFO, "No Support Style: {0}:{1}", new Object[] { name, value });
+					}
+				}
+				catch ( NumberFormatException ex )
+				{
+					Logger.getLogger(StyleResolver.class.getName()).log(Level.INFO, "No Support Style: {0}:{1}", new Object[] { name, value });
+				}
+			}
+			start = semicolon + 1;
+		}
+
+		return toStyle();
+	}
+
+	/**
+	 * Read a declaration.
+	 *
+	 * @param	name String the property name
+	 * @param	number double the value, if it has already been read as number, otherwise NaN
+	 * @param	value String the value, if it has not been read as number
+	 * @return	boolean false, if the property or its value is not supported
+	 * @throws	NumberFormatException if a number is malformed
+	 */
+	private boolean declare(String name, double number, String value)
+	{
+		// "inherit" is the same as no declaration
+		if ( "inherit".equals(value) ) return true;
+		if ( value != null && value.isEmpty() ) return false;
+
+		switch ( name )
+		{
+			case "fill":
+				fill = value;
+				return true;
+			case "fill-opacity":
+				fill_opacity = toNumber(number, value);
+				return true;
+			case "stroke":
+				stroke = value;
+				return true;
+			case "stroke-opacity":
+				stroke_opacity = toNumber(number, value);
+				return true;
+			case "stroke-width":
+				stroke_width = toNumber(number, value);
+				return true;
+			case "stroke-linecap":
+				stroke_linecap = toLineCap(value);
+				return stroke_linecap != null;
+			case "stroke-linejoin":
+				stroke_linejoin = toLineJoin(value);
+				return stroke_linejoin != null;
+			case "stroke-miterlimit":
+				stroke_miterlimit = toNumber(number, value);
+				return true;
+			case "stroke-dasharray":
+				stroke_dasharray = value.equals("none") ? new double[0] : numbers.toDoubles(value);
+				return true;
+			case "stroke-dashoffset":
+				stroke_dashoffset = toNumber(number, value);
+				return true;
+			case "opacity":
+				opacity = toNumber(number, value);
+				return true;
+			case "enable-background":
+				// read by the svg element as document data
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static double toNumber(double number, String value)
+	{
+		return value == null ? number : Double.parseDouble(value);
+	}
+
+	private static StrokeLineCap toLineCap(String value)
+	{
+		switch ( value )
+		{
+			case "butt":
+				return StrokeLineCap.BUTT;
+			case "round":
+				return StrokeLineCap.ROUND;
+			case "square":
+				return StrokeLineCap.SQUARE;
+			default:
+				return null;
+		}
+	}
+
+	private static StrokeLineJoin toLineJoin(String value)
+	{
+		switch ( value )
+		{
+			case "miter":
+				return StrokeLineJoin.MITER;
+			case "round":
+				return StrokeLineJoin.ROUND;
+			case "bevel":
+				return StrokeLineJoin.BEVEL;
+			default:
+				return null;
+		}
+	}
+
+	private void clear()
+	{
+		fill = null;
+		fill_opacity = Double.NaN;
+		stroke = null;
+		stroke_opacity = Double.NaN;
+		stroke_width = Double.NaN;
+		stroke_linecap = null;
+		stroke_linejoin = null;
+		stroke_miterlimit = Double.NaN;
+		stroke_dasharray = null;
+		stroke_dashoffset = Double.NaN;
+		opacity = Double.NaN;
+	}
+
+	private SVGStyle toStyle()
+	{
+		SVGStyle declared = new SVGStyle(fill, fill_opacity, stroke, stroke_opacity, stroke_width,
+				stroke_linecap, stroke_linejoin, stroke_miterlimit,
+				stroke_dasharray, stroke_dashoffset, opacity);
+
+		return declared.equals(SVGStyle.NONE) ? SVGStyle.NONE : declared;
+	}
+}
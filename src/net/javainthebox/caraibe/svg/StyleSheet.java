@@ -0,0 +1,382 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The rules of the {@code <style>} elements of a document, indexed by the id, class or tag their selector requires.<br>
+ * Supports selector lists of simple selectors, like {@code "rect.cls-1, #logo, .a.b, *"}.
+ * Rules with other selectors, like descendant selectors or pseudo classes, and at-rules are skipped.
+ * Finding the rules of an element looks up its id, classes and tag instead of scanning all rules.
+ * A style sheet is immutable, so it is shared by all contents built from a document.
+ *
+ * <pre>
+ * StyleSheet sheet = StyleSheet.parse(".cls-1{fill:#fff} .cls-2{stroke:#000;stroke-width:2}");
+ * SVGStyle declared = sheet.match("rect", null, "cls-1 cls-2");
+ * </pre>
+ */
+final class StyleSheet
+{
+	/**
+	 * The style sheet without rules.
+	 */
+	static final StyleSheet EMPTY = new StyleSheet();
+
+	private final Map<String, List<Rule>> by_id = new HashMap<>();
+	private final Map<String, List<Rule>> by_class = new HashMap<>();
+	private final Map<String, List<Rule>> by_tag = new HashMap<>();
+	private final List<Rule> universal = new ArrayList<>();
+	private int rule_count;
+
+	private StyleSheet()
+	{
+	}
+
+	/**
+	 * Parse the content of {@code <style>} elements.
+	 *
+	 * @param	css CharSequence the style sheet
+	 * @return	StyleSheet
+	 */
+	static StyleSheet parse(CharSequence css)
+	{
+		StyleSheet sheet = new StyleSheet();
+		new Parser(sheet, css).parse();
+
+		return sheet.rule_count == 0 ? EMPTY : sheet;
+	}
+
+	/**
+	 * @return	int the number of rules, one per selector of a selector list
+	 */
+	int getRuleCount()
+	{
+		return rule_count;
+	}
+
+	/**
+	 * @return	boolean true, if there are no rules
+	 */
+	boolean isEmpty()
+	{
+		return rule_count == 0;
+	}
+
+	/**
+	 * Tell, if any rule selects an id.
+	 *
+	 * @param	id String the id
+	 * @return	boolean
+	 */
+	boolean hasId(String id)
+	{
+		return id != null && by_id.containsKey(id);
+	}
+
+	/**
+	 * Get the declarations of all rules matching an element,
+	 * combined by the specificity of their selectors and, if equal, their order.
+	 *
+	 * @param	name String the element name
+	 * @param	id String the id of the element or null
+	 * @param	class_attribute String the class attribute of the element or null
+	 * @return	SVGStyle the combined declarations, {@link SVGStyle#NONE} if no rule matches
+	 */
+	SVGStyle match(String name, String id, String class_attribute)
+	{
+		if ( rule_count == 0 ) return SVGStyle.NONE;
+
+		String[] classes = splitClasses(class_attribute);
+
+		ArrayList<Rule> matched = new ArrayList<>();
+		if ( id != null ) collect(by_id.get(id), name, id, classes, matched);
+		for ( int i = 0; i < classes.length; i++ )
+		{
+			if ( indexOf(classes, classes[i]) == i ) collect(by_class.get(classes[i]), name, id, classes, matched);
+		}
+		collect(by_tag.get(name), name, id, classes, matched);
+		collect(universal, name, id, classes, matched);
+
+		if ( matched.isEmpty() ) return SVGStyle.NONE;
+
+		matched.sort((a, b) -> a.specificity != b.specificity ? Integer.compare(a.specificity, b.specificity) : Integer.compare(a.order, b.order));
+		SVGStyle declared = SVGStyle.NONE;
+		for ( Rule rule : matched )
+		{
+			declared = declared.override(rule.declarations);
+		}
+
+		return declared;
+	}
+
+	private static void collect(List<Rule> rules, String name, String id, String[] classes, List<Rule> matched)
+	{
+		if ( rules == null ) return;
+
+		for ( Rule rule : rules )
+		{
+			// a rule is indexed once, by its most selective part
+			if ( rule.matches(name, id, classes) ) matched.add(rule);
+		}
+	}
+
+	private static int indexOf(String[] classes, String class_name)
+	{
+		for ( int i = 0; i < classes.length; i++ )
+		{
+			if ( classes[i].equals(class_name) ) return i;
+		}
+
+		return -1;
+	}
+
+	private static final String[] NO_CLASSES = new String[0];
+
+	private static String[] splitClasses(String class_attribute)
+	{
+		if ( class_attribute == null ) return NO_CLASSES;
+
+		String trimmed = class_attribute.trim();
+		if ( trimmed.isEmpty() ) return NO_CLASSES;
+
+		return trimmed.split("\\s+");
+	}
+
+	private void add(Rule rule)
+	{
+		Map<String, List<Rule>> index;
+		String key;
+		if ( rule.id != null )
+		{
+			index = by_id;
+			key = rule.id;
+		}
+		else if ( rule.classes.length > 0 )
+		{
+			index = by_class;
+			key = rule.classes[0];
+		}
+		else if ( rule.tag != null )
+		{
+			index = by_tag;
+			key = rule.tag;
+		}
+		else
+		{
+			universal.add(rule);
+			rule_count++;
+			return;
+		}
+
+		index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(rule);
+		rule_count++;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ rules: ")
+			.append(rule_count)
+			.append(", ids: ")
+			.append(by_id.size())
+			.append(", classes: ")
+			.append(by_class.size())
+			.append(", tags: ")
+			.append(by_tag.size())
+			.append(" }");
+
+		return sb.toString();
+	}
+
+	/**
+	 * A rule with a simple selector, like {@code "rect.cls-1"}.
+	 */
+	private static class Rule
+	{
+		final String tag; // null for any
+		final String id;
+		final String[] classes;
+		final SVGStyle declarations;
+		final int specificity;
+		final int order;
+
+		Rule(String tag, String id, String[] classes, SVGStyle declarations, int order)
+		{
+			this.tag = tag;
+			this.id = id;
+			this.classes = classes;
+			this.declarations = declarations;
+			this.specificity = ( id != null ? 1 << 20 : 0 ) + ( classes.length << 10 ) + ( tag != null ? 1 : 0 );
+			this.order = order;
+		}
+
+		boolean matches(String name, String element_id, String[] element_classes)
+		{
+			if ( tag != null && !tag.equals(name) ) return false;
+			if ( id != null && !id.equals(element_id) ) return false;
+
+			for ( String class_name : classes )
+			{
+				if ( indexOf(element_classes, class_name) < 0 ) return false;
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Reads rules into a style sheet.
+	 */
+	private static class Parser
+	{
+		private final StyleSheet sheet;
+		private final String css;
+		// declarations are parsed once per distinct block
+		private final StyleResolver declarations = new StyleResolver();
+		private int pos;
+		private int order;
+
+		Parser(StyleSheet sheet, CharSequence css)
+		{
+			this.sheet = sheet;
+			this.css = stripComments(css);
+		}
+
+		void parse()
+		{
+			int end = css.length();
+			while ( true )
+			{
+				skipWhiteSpace();
+				if ( pos >= end ) return;
+
+				if ( css.charAt(pos) == '@' )
+				{
+					skipAtRule();
+					continue;
+				}
+
+				int open = css.indexOf('{', pos);
+				if ( open < 0 ) return;
+				int close = css.indexOf('}', open);
+				if ( close < 0 ) close = end;
+
+				String selectors = css.substring(pos, open);
+				SVGStyle declared = declarations.getDeclarations(css.substring(open + 1, close));
+				pos = close + 1;
+
+				for ( String selector : selectors.split(",") )
+				{
+					Rule rule = toRule(selector.trim(), declared);
+					if ( rule != null ) sheet.add(rule);
+				}
+			}
+		}
+
+		/**
+		 * Read a simple selector.
+		 *
+		 * @param	selector String like "rect.a.b", "#id" or "*"
+		 * @param	declared SVGStyle the declarations of the rule
+		 * @return	Rule the rule or null, if the selector is not supported
+		 */
+		private Rule toRule(String selector, SVGStyle declared)
+		{
+			int ln = selector.length();
+			if ( ln == 0 ) return null;
+
+			String tag = null;
+			String id = null;
+			ArrayList<String> classes = new ArrayList<>(1);
+
+			int i = 0;
+			if ( i < ln && selector.charAt(i) == '*' )
+			{
+				i++;
+			}
+			else
+			{
+				int start = i;
+				i = skipName(selector, i);
+				if ( i > start ) tag = selector.substring(start, i);
+			}
+
+			while ( i < ln )
+			{
+				char c = selector.charAt(i);
+				int start = i + 1;
+				i = skipName(selector, start);
+				if ( i == start || ( c != '.' && c != '#' ) )
+				{
+					Logger.getLogger(StyleSheet.class.getName()).log(Level.INFO, "No Support Selector: {0}", selector);
+					return null;
+				}
+
+				if ( c == '.' ) classes.add(selector.substring(start, i));
+				else id = selector.substring(start, i);
+			}
+
+			return new Rule(tag, id, classes.toArray(new String[classes.size()]), declared, order++);
+		}
+
+		private static int skipName(String selector, int i)
+		{
+			int ln = selector.length();
+			while ( i < ln )
+			{
+				char c = selector.charAt(i);
+				if ( !Character.isLetterOrDigit(c) && c != '-' && c != '_' ) break;
+				i++;
+			}
+
+			return i;
+		}
+
+		/**
+		 * Skip an at-rule, like "@import url(a.css);" or "@media print { ... }", with its nested block.
+		 */
+		private void skipAtRule()
+		{
+			int end = css.length();
+			int depth = 0;
+			while ( pos < end )
+			{
+				char c = css.charAt(pos++);
+				if ( c == ';' && depth == 0 ) return;
+				if ( c == '{' ) depth++;
+				if ( c == '}' && --depth <= 0 ) return;
+			}
+		}
+
+		private void skipWhiteSpace()
+		{
+			int end = css.length();
+			while ( pos < end && Character.isWhitespace(css.charAt(pos)) ) pos++;
+		}
+
+		private static String stripComments(CharSequence css)
+		{
+			String text = css.toString();
+			int comment = text.indexOf("/*");
+			if ( comment < 0 ) return text;
+
+			StringBuilder sb = new StringBuilder(text.length());
+			int pos = 0;
+			while ( comment >= 0 )
+			{
+				sb.append(text, pos, comment);
+				int comment_end = text.indexOf("*/", comment + 2);
+				pos = comment_end < 0 ? text.length() : comment_end + 2;
+				comment = text.indexOf("/*", pos);
+			}
+			sb.append(text, pos, text.length());
+
+			return sb.toString();
+		}
+	}
+}
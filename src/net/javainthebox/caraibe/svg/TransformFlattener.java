@@ -0,0 +1,297 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.List;
+
+import javafx.collections.ObservableList;
+import javafx.geometry.Point2D;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.ArcTo;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.HLineTo;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.QuadCurveTo;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.VLineTo;
+import javafx.scene.transform.Affine;
+
+/**
+ * Bakes a static affine transform into the geometry of a shape, so the shape needs no transform of its own.<br>
+ * Supports rectangles, polygons, polylines, lines and paths. Rectangles which don't stay axis aligned become paths.
+ *
+ * <p>A transform is only flattened, if the result renders the same:
+ * shapes with gradient paints keep their transform, because the gradient lives in the transformed space,
+ * and stroked shapes are only flattened by translations, rotations, reflections and uniform scales,
+ * with their stroke scaled accordingly. Arcs are flattened by those transforms only, too.</p>
+ */
+final class TransformFlattener
+{
+	private TransformFlattener()
+	{
+	}
+
+	/**
+	 * Apply a transform to the geometry of a shape.<br>
+	 * The shape is changed in place or, if it can't hold the result, replaced by a path with the same style.
+	 *
+	 * @param	shape Shape the styled shape
+	 * @param	transform Affine the transform of the shape
+	 * @return	Shape the flattened shape or null, if the transform has to be kept, then the shape is unchanged
+	 */
+	static Shape flatten(Shape shape, Affine transform)
+	{
+		if ( !isPlain(shape.getFill()) || !isPlain(shape.getStroke()) ) return null;
+
+		boolean similarity = isSimilarity(transform);
+		if ( shape.getStroke() != null && !similarity ) return null;
+
+		Shape flat;
+		if ( shape instanceof Rectangle )
+		{
+			flat = flattenRect((Rectangle) shape, transform);
+		}
+		else if ( shape instanceof Polygon )
+		{
+			flat = flattenPoints(shape, ((Polygon) shape).getPoints(), transform);
+		}
+		else if ( shape instanceof Polyline )
+		{
+			flat = flattenPoints(shape, ((Polyline) shape).getPoints(), transform);
+		}
+		else if ( shape instanceof Line )
+		{
+			flat = flattenLine((Line) shape, transform);
+		}
+		else if ( shape instanceof Path )
+		{
+			flat = flattenPath((Path) shape, transform, similarity);
+		}
+		else
+		{
+			flat = null;
+		}
+
+		if ( flat != null && flat.getStroke() != null )
+		{
+			scaleStroke(flat, Math.sqrt(Math.abs(transform.determinant())));
+		}
+
+		return flat;
+	}
+
+	/**
+	 * @param	paint Paint
+	 * @return	boolean true, if the paint looks the same in any space
+	 */
+	private static boolean isPlain(Paint paint)
+	{
+		return paint == null || paint instanceof Color;
+	}
+
+	/**
+	 * Check for a transform which keeps angles and scales uniformly,
+	 * so circles stay circles and strokes keep their shape.
+	 *
+	 * @param	t Affine
+	 * @return	boolean
+	 */
+	static boolean isSimilarity(Affine t)
+	{
+		double tolerance = 1e-9 * ( Math.abs(t.getMxx()) + Math.abs(t.getMxy()) + Math.abs(t.getMyx()) + Math.abs(t.getMyy()) );
+
+		// a rotation with uniform scale or the same mirrored
+		return ( Math.abs(t.getMxx() - t.getMyy()) <= tolerance && Math.abs(t.getMxy() + t.getMyx()) <= tolerance )
+				|| ( Math.abs(t.getMxx() + t.getMyy()) <= tolerance && Math.abs(t.getMxy() - t.getMyx()) <= tolerance );
+	}
+
+	private static Shape flattenRect(Rectangle rect, Affine t)
+	{
+		double x = rect.getX();
+		double y = rect.getY();
+		double width = rect.getWidth();
+		double height = rect.getHeight();
+
+		if ( t.getMxy() == 0 && t.getMyx() == 0 )
+		{
+			// still axis aligned, a negative scale swaps the edges
+			double x1 = t.getMxx() * x + t.getTx();
+			double x2 = t.getMxx() * ( x + width ) + t.getTx();
+			double y1 = t.getMyy() * y + t.getTy();
+			double y2 = t.getMyy() * ( y + height ) + t.getTy();
+			rect.setX(Math.min(x1, x2));
+			rect.setY(Math.min(y1, y2));
+			rect.setWidth(Math.abs(x2 - x1));
+			rect.setHeight(Math.abs(y2 - y1));
+			rect.setArcWidth(rect.getArcWidth() * Math.abs(t.getMxx()));
+			rect.setArcHeight(rect.getArcHeight() * Math.abs(t.getMyy()));
+
+			return rect;
+		}
+
+		// rounded corners would need arcs, keep the transform
+		if ( rect.getArcWidth() != 0 || rect.getArcHeight() != 0 ) return null;
+
+		Point2D p1 = t.transform(x, y);
+		Point2D p2 = t.transform(x + width, y);
+		Point2D p3 = t.transform(x + width, y + height);
+		Point2D p4 = t.transform(x, y + height);
+		Path path = new Path(new MoveTo(p1.getX(), p1.getY()),
+							new LineTo(p2.getX(), p2.getY()),
+							new LineTo(p3.getX(), p3.getY()),
+							new LineTo(p4.getX(), p4.getY()),
+							new ClosePath());
+		copyStyle(rect, path);
+
+		return path;
+	}
+
+	private static Shape flattenPoints(Shape shape, ObservableList<Double> points, Affine t)
+	{
+		int ln = points.size() & ~1;
+		double[] flat = new double[ln];
+		for ( int i = 0; i < ln; i += 2 )
+		{
+			double x = points.get(i);
+			double y = points.get(i + 1);
+			flat[i] = t.getMxx() * x + t.getMxy() * y + t.getTx();
+			flat[i + 1] = t.getMyx() * x + t.getMyy() * y + t.getTy();
+		}
+		points.setAll(new DoubleList(flat));
+
+		return shape;
+	}
+
+	private static Shape flattenLine(Line line, Affine t)
+	{
+		Point2D start = t.transform(line.getStartX(), line.getStartY());
+		Point2D end = t.transform(line.getEndX(), line.getEndY());
+		line.setStartX(start.getX());
+		line.setStartY(start.getY());
+		line.setEndX(end.getX());
+		line.setEndY(end.getY());
+
+		return line;
+	}
+
+	private static Shape flattenPath(Path path, Affine t, boolean similarity)
+	{
+		List<PathElement> elements = path.getElements();
+		for ( PathElement element : elements )
+		{
+			// relative elements, horizontal and vertical lines and non similar arcs can't take the transform
+			if ( !element.isAbsolute()
+					|| element instanceof HLineTo || element instanceof VLineTo
+					|| ( element instanceof ArcTo && !similarity ) )
+			{
+				return null;
+			}
+		}
+
+		double scale = Math.sqrt(Math.abs(t.determinant()));
+		double angle = Math.toDegrees(Math.atan2(t.getMyx(), t.getMxx()));
+		boolean mirrored = t.determinant() < 0;
+		for ( PathElement element : elements )
+		{
+			if ( element instanceof MoveTo )
+			{
+				MoveTo move = (MoveTo) element;
+				Point2D p = t.transform(move.getX(), move.getY());
+				move.setX(p.getX());
+				move.setY(p.getY());
+			}
+			else if ( element instanceof LineTo )
+			{
+				LineTo line = (LineTo) element;
+				Point2D p = t.transform(line.getX(), line.getY());
+				line.setX(p.getX());
+				line.setY(p.getY());
+			}
+			else if ( element instanceof CubicCurveTo )
+			{
+				CubicCurveTo cubic = (CubicCurveTo) element;
+				Point2D c1 = t.transform(cubic.getControlX1(), cubic.getControlY1());
+				Point2D c2 = t.transform(cubic.getControlX2(), cubic.getControlY2());
+				Point2D p = t.transform(cubic.getX(), cubic.getY());
+				cubic.setControlX1(c1.getX());
+				cubic.setControlY1(c1.getY());
+				cubic.setControlX2(c2.getX());
+				cubic.setControlY2(c2.getY());
+				cubic.setX(p.getX());
+				cubic.setY(p.getY());
+			}
+			else if ( element instanceof QuadCurveTo )
+			{
+				QuadCurveTo quad = (QuadCurveTo) element;
+				Point2D c = t.transform(quad.getControlX(), quad.getControlY());
+				Point2D p = t.transform(quad.getX(), quad.getY());
+				quad.setControlX(c.getX());
+				quad.setControlY(c.getY());
+				quad.setX(p.getX());
+				quad.setY(p.getY());
+			}
+			else if ( element instanceof ArcTo )
+			{
+				ArcTo arc = (ArcTo) element;
+				Point2D p = t.transform(arc.getX(), arc.getY());
+				arc.setX(p.getX());
+				arc.setY(p.getY());
+				arc.setRadiusX(arc.getRadiusX() * scale);
+				arc.setRadiusY(arc.getRadiusY() * scale);
+				// a mirror reverses the direction and the rotation of the arc
+				arc.setXAxisRotation(( mirrored ? -arc.getXAxisRotation() : arc.getXAxisRotation() ) + angle);
+				if ( mirrored ) arc.setSweepFlag(!arc.isSweepFlag());
+			}
+		}
+
+		return path;
+	}
+
+	/**
+	 * Scale the stroke like a uniform scale of the transform would have.
+	 *
+	 * @param	shape Shape the stroked shape
+	 * @param	scale double the scale factor
+	 */
+	private static void scaleStroke(Shape shape, double scale)
+	{
+		if ( scale == 1 ) return;
+
+		shape.setStrokeWidth(shape.getStrokeWidth() * scale);
+		shape.setStrokeDashOffset(shape.getStrokeDashOffset() * scale);
+		List<Double> dashes = shape.getStrokeDashArray();
+		for ( int i = 0; i < dashes.size(); i++ )
+		{
+			dashes.set(i, dashes.get(i) * scale);
+		}
+	}
+
+	/**
+	 * Copy the style of a shape to the shape replacing it.
+	 *
+	 * @param	from Shape the replaced shape
+	 * @param	to Shape the replacement
+	 */
+	static void copyStyle(Shape from, Shape to)
+	{
+		// properties left at their defaults are not created
+		if ( to.getFill() != from.getFill() ) to.setFill(from.getFill());
+		if ( to.getStroke() != from.getStroke() ) to.setStroke(from.getStroke());
+		if ( to.getStrokeWidth() != from.getStrokeWidth() ) to.setStrokeWidth(from.getStrokeWidth());
+		if ( to.getStrokeType() != from.getStrokeType() ) to.setStrokeType(from.getStrokeType());
+		if ( to.getStrokeLineCap() != from.getStrokeLineCap() ) to.setStrokeLineCap(from.getStrokeLineCap());
+		if ( to.getStrokeLineJoin() != from.getStrokeLineJoin() ) to.setStrokeLineJoin(from.getStrokeLineJoin());
+		if ( to.getStrokeMiterLimit() != from.getStrokeMiterLimit() ) to.setStrokeMiterLimit(from.getStrokeMiterLimit());
+		if ( to.getStrokeDashOffset() != from.getStrokeDashOffset() ) to.setStrokeDashOffset(from.getStrokeDashOffset());
+		if ( !from.getStrokeDashArray().isEmpty() ) to.getStrokeDashArray().setAll(from.getStrokeDashArray());
+		if ( to.getOpacity() != from.getOpacity() ) to.setOpacity(from.getOpacity());
+		if ( to.isVisible() != from.isVisible() ) to.setVisible(from.isVisible());
+	}
+}
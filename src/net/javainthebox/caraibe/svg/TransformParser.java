@@ -0,0 +1,128 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.transform.Affine;
+
+/**
+ * Reads svg transform lists, like the values of transform and gradientTransform,
+ * and composes all transforms of a list into a single affine.<br>
+ * Supports matrix, translate, scale, rotate with and without center, skewX and skewY,
+ * separated by whitespace and/or commas, with the full svg number grammar for their arguments.
+ * A parser is reused for any number of lists, so it is not thread safe.
+ *
+ * <pre>
+ * Affine affine = new TransformParser().parse("translate(10,20) rotate(45 5 5) scale(2)");
+ * </pre>
+ */
+final class TransformParser
+{
+	private final NumberScanner numbers = new NumberScanner();
+	private final double[] arguments = new double[6];
+
+	/**
+	 * Parse a transform list.
+	 *
+	 * @param	list String the transform list
+	 * @return	Affine the composed transform, the identity for an empty list
+	 * @throws	IllegalArgumentException if the list is malformed
+	 */
+	Affine parse(String list)
+	{
+		Affine affine = new Affine();
+		int end = list.length();
+		int pos = skipSeparators(list, 0, end);
+		while ( pos < end )
+		{
+			int name_start = pos;
+			while ( pos < end && Character.isLetter(list.charAt(pos)) ) pos++;
+			String name = list.substring(name_start, pos);
+
+			pos = skipSeparators(list, pos, end);
+			if ( pos == end || list.charAt(pos) != '(' ) throw error(list, pos);
+
+			// the arguments up to the closing parenthesis
+			numbers.reset(list, pos + 1, end);
+			int count = 0;
+			while ( numbers.hasNext() )
+			{
+				if ( count == arguments.length ) throw error(list, numbers.getPosition());
+				arguments[count++] = numbers.next();
+			}
+			pos = numbers.getPosition();
+			if ( pos == end || list.charAt(pos) != ')' ) throw error(list, pos);
+			pos++;
+
+			append(affine, name, count, list);
+			pos = skipSeparators(list, pos, end);
+		}
+
+		return affine;
+	}
+
+	/**
+	 * Append a transform to the composed ones.
+	 *
+	 * @param	affine Affine the transforms so far
+	 * @param	name String the transform name
+	 * @param	count int the number of arguments read
+	 * @param	list String the transform list, for error messages
+	 */
+	private void append(Affine affine, String name, int count, String list)
+	{
+		double[] a = arguments;
+		switch ( name )
+		{
+			case "matrix":
+				check(count == 6, name, list);
+				affine.append(a[0], a[2], a[4], a[1], a[3], a[5]);
+				break;
+			case "translate":
+				check(count == 1 || count == 2, name, list);
+				affine.appendTranslation(a[0], count == 2 ? a[1] : 0);
+				break;
+			case "scale":
+				check(count == 1 || count == 2, name, list);
+				affine.appendScale(a[0], count == 2 ? a[1] : a[0]);
+				break;
+			case "rotate":
+				check(count == 1 || count == 3, name, list);
+				if ( count == 3 ) affine.appendRotation(a[0], a[1], a[2]);
+				else affine.appendRotation(a[0]);
+				break;
+			case "skewX":
+				check(count == 1, name, list);
+				affine.appendShear(Math.tan(Math.toRadians(a[0])), 0);
+				break;
+			case "skewY":
+				check(count == 1, name, list);
+				affine.appendShear(0, Math.tan(Math.toRadians(a[0])));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown transform " + name + " in: " + list);
+		}
+	}
+
+	private static void check(boolean valid, String name, String list)
+	{
+		if ( !valid ) throw new IllegalArgumentException("Wrong number of arguments for " + name + " in: " + list);
+	}
+
+	private static IllegalArgumentException error(String list, int pos)
+	{
+		return new IllegalArgumentException("Malformed transform at " + pos + ": " + list);
+	}
+
+	/**
+	 * Skip whitespace and commas between transforms.
+	 */
+	private static int skipSeparators(String list, int pos, int end)
+	{
+		while ( pos < end )
+		{
+			char c = list.charAt(pos);
+			if ( c != ' ' && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != ',' ) return pos;
+			pos++;
+		}
+
+		return pos;
+	}
+}
@@ -1,77 +1,62 @@
 package net.javainthebox.caraibe.svg;
 
-import javax.xml.namespace.QName;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.StartElement;
-
 import javafx.scene.Node;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Shape;
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
 
 public class Use
 {
-	public StartElement href_element; // the used element
-	public StartElement use_element; // the used element
-	public ShapeBuilderCallback shape_builder; // a callback to build the used shape
+	public SVGElement href_element; // the used element
+	public SVGElement use_element; // the used element
 	private SVGContentBuilder svg_builder;
+	private SVGStyle style; // the computed style of the use element
+	private UseTemplate template; // the compiled reference, if any
 	
 	// useless...
 	public String overflow;
 	public String href;
 	public String clip_rule;
 	public double stroke_width;
-	public Color fill;
+	public String fill;
 	public String fill_rule;
-	public Color stroke;
+	public String stroke;
 	public double stroke_miterlimit;
 	
 	public Use() {}
 	
 	/**
-	 * A {@code <use>} tag parameter holder and builder.
+	 * A {@code <use>} tag parameter holder stamping out instances of a compiled reference.
 	 * 
-	 * @param	use_element StartElement the {@code <use>} element
-	 * @param	href_element StartElement the reference
-	 * @param	shape_builder ShapeBuilderCallback a callback to build the shape
+	 * @param	use_element SVGElement the {@code <use>} element
+	 * @param	href_element SVGElement the reference
+	 * @param	template UseTemplate the compiled reference
 	 * @param	builder SVGContentBuilder reference back to the supporting content builder
+	 * @param	style SVGStyle the computed style of the {@code <use>} element
 	 */
-	public Use(StartElement use_element, StartElement href_element, ShapeBuilderCallback shape_builder, SVGContentBuilder builder)
+	Use(SVGElement use_element, SVGElement href_element, UseTemplate template, SVGContentBuilder builder, SVGStyle style)
 	{
+		this.template = template;
+		this.style = style;
 		this.use_element = use_element;
 		this.href_element = href_element;
-		this.shape_builder = shape_builder;
 		this.svg_builder = builder;
 
 //		System.out.println("Use("+use_element+")");
-		Attribute overflow_attribute = use_element.getAttributeByName(new QName("overflow"));
-		if ( overflow_attribute != null ) this.overflow = overflow_attribute.getValue();
+		this.overflow = use_element.getAttribute(SVGAttribute.OVERFLOW);
 		
-		Attribute href_attribute = use_element.getAttributeByName(new QName("href"));
-		if ( href_attribute != null ) this.href = href_attribute.getValue();
+		this.href = use_element.getAttribute(SVGAttribute.HREF);
 		
-		Attribute clip_rule_attribute = use_element.getAttributeByName(new QName("clip-rule"));
-		if ( clip_rule_attribute != null ) this.clip_rule = clip_rule_attribute.getValue();
+		this.clip_rule = use_element.getAttribute(SVGAttribute.CLIP_RULE);
 		
-		Attribute stroke_width_attribute = use_element.getAttributeByName(new QName("stroke-width"));
-		if ( stroke_width_attribute != null ) this.stroke_width = Double.valueOf( stroke_width_attribute.getValue() );
+		this.stroke_width = use_element.getNumber(SVGAttribute.STROKE_WIDTH, this.stroke_width);
 		
-		Attribute fill_attribute = use_element.getAttributeByName(new QName("fill"));
-		if ( fill_attribute != null )
-		{
-			if ( ( !fill_attribute.getValue().equals("none")) )
-			{
-				this.fill = Color.web( fill_attribute.getValue() );
-			}
-		}
+		// the paints are applied through the style, they may be "none" or a url
+		this.fill = use_element.getAttribute(SVGAttribute.FILL);
 		
-		Attribute fill_rule_attribute = use_element.getAttributeByName(new QName("fill-rule"));
-		if ( fill_rule_attribute != null ) this.fill_rule = fill_rule_attribute.getValue();
+		this.fill_rule = use_element.getAttribute(SVGAttribute.FILL_RULE);
 		
-		Attribute stroke_attribute = use_element.getAttributeByName(new QName("stroke"));
-		if ( stroke_attribute != null ) this.stroke = Color.web( stroke_attribute.getValue() );
+		this.stroke = use_element.getAttribute(SVGAttribute.STROKE);
 		
-		Attribute stroke_miterlimit_attribute = use_element.getAttributeByName(new QName("stroke-miterlimit"));
-		if ( stroke_miterlimit_attribute != null ) this.stroke_miterlimit = Double.valueOf( stroke_miterlimit_attribute.getValue() );
+		this.stroke_miterlimit = use_element.getNumber(SVGAttribute.STROKE_MITERLIMIT, this.stroke_miterlimit);
 	}
 
 	/**
@@ -81,30 +66,15 @@ public class Use
 	 */
 	public Node build()
 	{
-		Node node = null;
-		try
-		{
-			node = shape_builder.build(null, href_element);
-		}
-		catch ( Exception e )
-		{
-			e.printStackTrace();
-		};
+		if ( template == null ) return null;
 
+		Node node = template.instantiate();
 		if ( node != null )
 		{
-			if ( node instanceof Shape )
-			{
-				svg_builder.setShapeStyle((Shape) node, href_element);
-				svg_builder.setShapeStyle((Shape) node, use_element);
-			}
-
-			svg_builder.setOpacity(node, href_element);
-			svg_builder.setTransform(node, href_element);
-			svg_builder.setOpacity(node, use_element);
-			svg_builder.setTransform(node, use_element);
+			svg_builder.setOpacity(node, style);
+			svg_builder.setUseTransform(node, use_element);
 		}
-		
+
 		return node;
 	}
 	
@@ -114,7 +84,7 @@ public class Use
 		StringBuilder sb = new StringBuilder();
 		sb.append("{ ")
 			.append("href_element: ").append(href_element)
-			.append(", shape_builder: ").append(shape_builder)
+			.append(", template: ").append(template)
 			.append(", overflow: ").append(overflow)
 			.append(", href: ").append(href)
 			.append(", clip_rule: ").append(clip_rule)
@@ -0,0 +1,311 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.ArcTo;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.HLineTo;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.QuadCurveTo;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.VLineTo;
+import javafx.scene.text.Text;
+import javafx.scene.transform.Transform;
+
+/**
+ * The compiled form of an element referenced by {@code <use>}: a styled prototype node, built once,
+ * of which any number of instances are stamped out.<br>
+ * Instances share the path elements and images of the prototype, so the geometry of a {@code <symbol>} used
+ * thousands of times is read and styled only once.
+ * Their transforms, clips and points are copied, so an instance may be transformed without affecting the others.
+ *
+ * <pre>
+ * UseTemplate template = new UseTemplate(prototype);
+ * Node instance = template.instantiate();
+ * </pre>
+ */
+final class UseTemplate
+{
+	private final Node prototype;
+	private int instance_count;
+
+	/**
+	 * @param	prototype Node the styled node of the referenced element, which must not be part of a scene
+	 */
+	UseTemplate(Node prototype)
+	{
+		this.prototype = prototype;
+	}
+
+	/**
+	 * Stamp out an instance of the referenced element.
+	 *
+	 * @return	Node a new node looking like the prototype
+	 */
+	Node instantiate()
+	{
+		instance_count++;
+
+		return copy(prototype);
+	}
+
+	/**
+	 * @return	int the number of instances stamped out
+	 */
+	int getInstanceCount()
+	{
+		return instance_count;
+	}
+
+	/**
+	 * Copy a node built by the content builder.
+	 *
+	 * @param	node Node the node to copy
+	 * @return	Node the copy or null, if the node is not supported
+	 */
+	static Node copy(Node node)
+	{
+		return copy(node, null, null);
+	}
+
+	/**
+	 * Copy a node of a content with its subtree, recording the copies.<br>
+	 * Paths get their own path elements, so a copied content may be changed without affecting the original.
+	 *
+	 * @param	node Node the node to copy
+	 * @param	content SVGContent the content, whose children detached for the viewport are copied as well, or null
+	 * @param	copies Map<Node, Node> the map to put the copies of the subtree by their nodes into or null
+	 * @return	Node the copy or null, if the node is not supported
+	 */
+	static Node copy(Node node, SVGContent content, Map<Node, Node> copies)
+	{
+		Node copy;
+		if ( node instanceof Shape )
+		{
+			copy = copyShape((Shape) node, copies == null);
+		}
+		else if ( node instanceof ImageView )
+		{
+			ImageView view = (ImageView) node;
+			ImageView view_copy = new ImageView(view.getImage());
+			view_copy.setX(view.getX());
+			view_copy.setY(view.getY());
+			copy = view_copy;
+		}
+		else if ( node instanceof Pane || node instanceof Group )
+		{
+			Node[] children = copyChildren((Parent) node, content, copies);
+
+			// all children are added in one change
+			if ( node instanceof Pane )
+			{
+				copy = new Pane(children);
+			}
+			else
+			{
+				copy = new Group(children);
+			}
+		}
+		else
+		{
+			return null;
+		}
+
+		if ( copy.getOpacity() != node.getOpacity() ) copy.setOpacity(node.getOpacity());
+		if ( copy.isVisible() != node.isVisible() ) copy.setVisible(node.isVisible());
+		List<Transform> transforms = node.getTransforms();
+		if ( !transforms.isEmpty() )
+		{
+			Transform[] transform_copies = new Transform[transforms.size()];
+			for ( int i = 0; i < transform_copies.length; i++ )
+			{
+				transform_copies[i] = transforms.get(i).clone();
+			}
+			copy.getTransforms().addAll(transform_copies);
+		}
+		if ( node.getClip() != null ) copy.setClip(copy(node.getClip()));
+		if ( copies != null ) copies.put(node, copy);
+
+		return copy;
+	}
+
+	/**
+	 * Copy the children of a group.
+	 *
+	 * @param	parent Parent the group
+	 * @param	content SVGContent the content, whose children detached for the viewport are copied as well, or null
+	 * @param	copies Map<Node, Node> the map to put the copies of the subtrees by their nodes into or null
+	 * @return	Node[] the copies of the supported children
+	 */
+	static Node[] copyChildren(Parent parent, SVGContent content, Map<Node, Node> copies)
+	{
+		List<Node> children = content == null ? parent.getChildrenUnmodifiable() : content.getContentChildren(parent);
+		Node[] child_copies = new Node[children.size()];
+		int count = 0;
+		for ( int i = 0; i < child_copies.length; i++ )
+		{
+			Node child_copy = copy(children.get(i), content, copies);
+			if ( child_copy != null ) child_copies[count++] = child_copy;
+		}
+
+		return count == child_copies.length ? child_copies : Arrays.copyOf(child_copies, count);
+	}
+
+	/**
+	 * Copy a shape with its style.
+	 *
+	 * @param	shape Shape the shape to copy
+	 * @param	share_elements boolean true to share the path elements of a path, false to copy them
+	 * @return	Shape the copy or null, if the shape is not supported
+	 */
+	private static Shape copyShape(Shape shape, boolean share_elements)
+	{
+		Shape copy;
+		if ( shape instanceof Rectangle )
+		{
+			Rectangle rect = (Rectangle) shape;
+			Rectangle rect_copy = new Rectangle(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight());
+			rect_copy.setArcWidth(rect.getArcWidth());
+			rect_copy.setArcHeight(rect.getArcHeight());
+			copy = rect_copy;
+		}
+		else if ( shape instanceof Circle )
+		{
+			Circle circle = (Circle) shape;
+			copy = new Circle(circle.getCenterX(), circle.getCenterY(), circle.getRadius());
+		}
+		else if ( shape instanceof Ellipse )
+		{
+			Ellipse ellipse = (Ellipse) shape;
+			copy = new Ellipse(ellipse.getCenterX(), ellipse.getCenterY(), ellipse.getRadiusX(), ellipse.getRadiusY());
+		}
+		else if ( shape instanceof Line )
+		{
+			Line line = (Line) shape;
+			copy = new Line(line.getStartX(), line.getStartY(), line.getEndX(), line.getEndY());
+		}
+		else if ( shape instanceof Path )
+		{
+			Path path = (Path) shape;
+			// a path element may belong to any number of paths
+			Path path_copy = share_elements ? new Path(path.getElements()) : new Path(copyElements(path.getElements()));
+			path_copy.setFillRule(path.getFillRule());
+			copy = path_copy;
+		}
+		else if ( shape instanceof Polygon )
+		{
+			Polygon polygon = new Polygon();
+			polygon.getPoints().setAll(((Polygon) shape).getPoints());
+			copy = polygon;
+		}
+		else if ( shape instanceof Polyline )
+		{
+			Polyline polyline = new Polyline();
+			polyline.getPoints().setAll(((Polyline) shape).getPoints());
+			copy = polyline;
+		}
+		else if ( shape instanceof Text )
+		{
+			Text text = (Text) shape;
+			Text text_copy = new Text(text.getX(), text.getY(), text.getText());
+			text_copy.setFont(text.getFont());
+			copy = text_copy;
+		}
+		else
+		{
+			return null;
+		}
+
+		TransformFlattener.copyStyle(shape, copy);
+
+		return copy;
+	}
+
+	/**
+	 * Copy path elements.
+	 *
+	 * @param	elements List<PathElement> the elements
+	 * @return	PathElement[] the copies
+	 */
+	static PathElement[] copyElements(List<PathElement> elements)
+	{
+		PathElement[] copies = elements.toArray(new PathElement[elements.size()]);
+		for ( int i = 0; i < copies.length; i++ )
+		{
+			PathElement element = copies[i];
+			PathElement copy;
+			if ( element instanceof MoveTo )
+			{
+				MoveTo move = (MoveTo) element;
+				copy = new MoveTo(move.getX(), move.getY());
+			}
+			else if ( element instanceof LineTo )
+			{
+				LineTo line = (LineTo) element;
+				copy = new LineTo(line.getX(), line.getY());
+			}
+			else if ( element instanceof CubicCurveTo )
+			{
+				CubicCurveTo curve = (CubicCurveTo) element;
+				copy = new CubicCurveTo(curve.getControlX1(), curve.getControlY1(), curve.getControlX2(), curve.getControlY2(),
+						curve.getX(), curve.getY());
+			}
+			else if ( element instanceof QuadCurveTo )
+			{
+				QuadCurveTo curve = (QuadCurveTo) element;
+				copy = new QuadCurveTo(curve.getControlX(), curve.getControlY(), curve.getX(), curve.getY());
+			}
+			else if ( element instanceof ArcTo )
+			{
+				ArcTo arc = (ArcTo) element;
+				copy = new ArcTo(arc.getRadiusX(), arc.getRadiusY(), arc.getXAxisRotation(), arc.getX(), arc.getY(),
+						arc.isLargeArcFlag(), arc.isSweepFlag());
+			}
+			else if ( element instanceof HLineTo )
+			{
+				copy = new HLineTo(((HLineTo) element).getX());
+			}
+			else if ( element instanceof VLineTo )
+			{
+				copy = new VLineTo(((VLineTo) element).getY());
+			}
+			else
+			{
+				copy = new ClosePath();
+			}
+			if ( !element.isAbsolute() ) copy.setAbsolute(false);
+			copies[i] = copy;
+		}
+
+		return copies;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ ")
+			.append("prototype: ").append(prototype)
+			.append(", instances: ").append(instance_count)
+			.append(" }");
+
+		return sb.toString();
+	}
+}
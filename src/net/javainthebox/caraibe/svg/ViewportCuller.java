@@ -0,0 +1,237 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.collections.ObservableList;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.layout.Pane;
+import javafx.scene.transform.Transform;
+import javafx.scene.transform.Translate;
+
+/**
+ * Keeps only the subtrees of a content in the scene graph, whose bounds intersect a viewport.<br>
+ * The children and their bounds in the coordinates of the content are recorded once per group,
+ * moving the viewport attaches and detaches whole subtrees, each group changed in one change of its children.
+ * A detached subtree is not visited, so the cost of an update and of a pulse depends on what is visible.
+ * To avoid thrashing while panning, a subtree is attached within a margin of a quarter of the viewport
+ * and detached outside a margin of half of it.
+ * Changes of the geometry or of the children after recording are not followed.
+ *
+ * <pre>
+ * ViewportCuller culler = new ViewportCuller(content);
+ * culler.update(new BoundingBox(0, 0, 800, 600));
+ * </pre>
+ */
+final class ViewportCuller
+{
+	/**
+	 * The margin around the viewport, relative to its size, within which subtrees are attached.
+	 */
+	static final double ATTACH_MARGIN = 0.25;
+
+	/**
+	 * The margin around the viewport, relative to its size, outside of which subtrees are detached.
+	 */
+	static final double DETACH_MARGIN = 0.5;
+
+	private final Record root;
+	private final Map<Parent, Record> records = new IdentityHashMap<>();
+	private final Map<Node, Parent> detached = new IdentityHashMap<>(); // the roots of detached subtrees with their group
+	private int attached_count;
+
+	/**
+	 * Record the groups of a content, with all nodes attached.
+	 *
+	 * @param	content SVGContent the content
+	 */
+	ViewportCuller(SVGContent content)
+	{
+		root = record(content, new Translate());
+	}
+
+	private Record record(Parent parent, Transform transform)
+	{
+		List<Node> children = getChildren(parent);
+		Record record = new Record(parent, children.toArray(new Node[children.size()]));
+		records.put(parent, record);
+
+		for ( int i = 0; i < record.children.length; i++ )
+		{
+			Node child = record.children[i];
+			Bounds bounds = transform.transform(child.getBoundsInParent());
+			record.bounds[i * 4] = bounds.getMinX();
+			record.bounds[i * 4 + 1] = bounds.getMinY();
+			record.bounds[i * 4 + 2] = bounds.getMaxX();
+			record.bounds[i * 4 + 3] = bounds.getMaxY();
+			record.attached[i] = true;
+
+			if ( ( child instanceof Pane || child instanceof Group ) && !getChildren((Parent) child).isEmpty() )
+			{
+				record.records[i] = record((Parent) child, transform.createConcatenation(child.getLocalToParentTransform()));
+			}
+		}
+
+		return record;
+	}
+
+	private static ObservableList<Node> getChildren(Parent parent)
+	{
+		return parent instanceof Pane ? ((Pane) parent).getChildren() : ((Group) parent).getChildren();
+	}
+
+	/**
+	 * Attach the subtrees near a viewport and detach the others.
+	 *
+	 * @param	viewport Bounds the visible region in the coordinates of the content
+	 */
+	void update(Bounds viewport)
+	{
+		double w = viewport.getWidth();
+		double h = viewport.getHeight();
+		double[] attach = { viewport.getMinX() - w * ATTACH_MARGIN, viewport.getMinY() - h * ATTACH_MARGIN,
+				viewport.getMaxX() + w * ATTACH_MARGIN, viewport.getMaxY() + h * ATTACH_MARGIN };
+		double[] detach = { viewport.getMinX() - w * DETACH_MARGIN, viewport.getMinY() - h * DETACH_MARGIN,
+				viewport.getMaxX() + w * DETACH_MARGIN, viewport.getMaxY() + h * DETACH_MARGIN };
+
+		attached_count = 0;
+		update(root, attach, detach);
+	}
+
+	private void update(Record record, double[] attach, double[] detach)
+	{
+		boolean changed = false;
+		int attached = 0;
+		for ( int i = 0; i < record.children.length; i++ )
+		{
+			boolean was_attached = record.attached[i];
+			// hysteresis: a subtree stays attached until it leaves the wider margin
+			boolean is_attached = record.intersects(i, was_attached ? detach : attach);
+			if ( is_attached ) attached++;
+			if ( is_attached == was_attached ) continue;
+
+			record.attached[i] = is_attached;
+			if ( is_attached ) detached.remove(record.children[i]);
+			else detached.put(record.children[i], record.parent);
+			changed = true;
+		}
+		attached_count += attached;
+
+		if ( changed )
+		{
+			ArrayList<Node> children = new ArrayList<>(attached);
+			for ( int i = 0; i < record.children.length; i++ )
+			{
+				if ( record.attached[i] ) children.add(record.children[i]);
+			}
+			getChildren(record.parent).setAll(children);
+		}
+
+		for ( int i = 0; i < record.children.length; i++ )
+		{
+			if ( record.attached[i] && record.records[i] != null ) update(record.records[i], attach, detach);
+		}
+	}
+
+	/**
+	 * Attach all subtrees again.
+	 */
+	void restore()
+	{
+		restore(root);
+		detached.clear();
+	}
+
+	private void restore(Record record)
+	{
+		boolean changed = false;
+		for ( int i = 0; i < record.children.length; i++ )
+		{
+			if ( !record.attached[i] ) changed = true;
+			record.attached[i] = true;
+			if ( record.records[i] != null ) restore(record.records[i]);
+		}
+
+		if ( changed ) getChildren(record.parent).setAll(record.children);
+	}
+
+	/**
+	 * Get all children of a recorded group, attached or not.
+	 *
+	 * @param	parent Parent the group
+	 * @return	List<Node> the children or null, if the group has not been recorded
+	 */
+	List<Node> getAllChildren(Parent parent)
+	{
+		Record record = records.get(parent);
+
+		return record == null ? null : Arrays.asList(record.children);
+	}
+
+	/**
+	 * Get the group of a detached subtree.
+	 *
+	 * @param	node Node the root of the subtree
+	 * @return	Parent the group or null, if the node has not been detached
+	 */
+	Parent getDetachedParent(Node node)
+	{
+		return detached.get(node);
+	}
+
+	/**
+	 * @return	int the number of nodes attached by the last update, in attached groups
+	 */
+	int getAttachedCount()
+	{
+		return attached_count;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("{ groups: ")
+			.append(records.size())
+			.append(", attached: ")
+			.append(attached_count)
+			.append(", detached subtrees: ")
+			.append(detached.size())
+			.append(" }");
+
+		return sb.toString();
+	}
+
+	/**
+	 * The children of a group with their bounds in the coordinates of the content.
+	 */
+	private static class Record
+	{
+		final Parent parent;
+		final Node[] children;
+		final double[] bounds; // min x, min y, max x, max y per child
+		final boolean[] attached;
+		final Record[] records; // the records of child groups
+
+		Record(Parent parent, Node[] children)
+		{
+			this.parent = parent;
+			this.children = children;
+			this.bounds = new double[children.length * 4];
+			this.attached = new boolean[children.length];
+			this.records = new Record[children.length];
+		}
+
+		boolean intersects(int i, double[] box)
+		{
+			return bounds[i * 4 + 2] >= box[0] && bounds[i * 4] <= box[2]
+					&& bounds[i * 4 + 3] >= box[1] && bounds[i * 4 + 1] <= box[3];
+		}
+	}
+}
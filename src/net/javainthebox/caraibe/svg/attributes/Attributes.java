@@ -1,16 +0,0 @@
-package net.javainthebox.caraibe.svg.attributes;
-
-public class Attributes 
-{
-	public static final String CLIP_PATH = "clip-path";
-	public static final String DISPPLAY = Display.TAG;
-	public static final String ID = "id";
-	public static final String FILL = "fill";
-	public static final String FILL_OPACITY = "fill-opacity";
-	public static final String OPACITY = "opacity";
-	public static final String STROKE = "stroke";
-	public static final String STROKE_WIDTH = "stroke-width";
-	public static final String STYLE = "style";
-	public static final String TRANSFORM = "transform";
-	
-}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package net.javainthebox.caraibe.svg.attributes;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The attributes known by the loader.<br>
+ * Parsed elements hold their known attributes in a table indexed by these constants,
+ * so looking up an attribute neither allocates nor scans.
+ */
+public enum SVGAttribute
+{
+	ID					("id"),
+	CLASS				("class"),
+	STYLE				("style"),
+	TRANSFORM			("transform"),
+	X					("x", true),
+	Y					("y", true),
+	WIDTH				("width", true),
+	HEIGHT				("height", true),
+	RX					("rx", true),
+	RY					("ry", true),
+	CX					("cx", true),
+	CY					("cy", true),
+	R					("r", true),
+	FX					("fx", true),
+	FY					("fy", true),
+	X1					("x1", true),
+	Y1					("y1", true),
+	X2					("x2", true),
+	Y2					("y2", true),
+	D					("d"),
+	POINTS				("points"),
+	HREF				("href"),
+	VIEW_BOX			("viewBox"),
+	VERSION				("version"),
+	XMLNS				("xmlns"),
+	XLINK				("xlink"),
+	SPACE				("space"),
+	ENABLE_BACKGROUND	("enable-background"),
+	FILL				("fill"),
+	FILL_OPACITY		("fill-opacity", true),
+	FILL_RULE			("fill-rule"),
+	STROKE				("stroke"),
+	STROKE_WIDTH		("stroke-width", true),
+	STROKE_OPACITY		("stroke-opacity", true),
+	STROKE_LINECAP		("stroke-linecap"),
+	STROKE_LINEJOIN		("stroke-linejoin"),
+	STROKE_MITERLIMIT	("stroke-miterlimit", true),
+	STROKE_DASHARRAY	("stroke-dasharray"),
+	STROKE_DASHOFFSET	("stroke-dashoffset", true),
+	OPACITY				("opacity", true),
+	DISPLAY				(Display.TAG),
+	VISIBILITY			("visibility"),
+	CLIP_PATH			("clip-path"),
+	CLIP_RULE			("clip-rule"),
+	CLIP_PATH_UNITS		("clipPathUnits"),
+	OVERFLOW			("overflow"),
+	FONT_FAMILY			("font-family"),
+	FONT_SIZE			("font-size", true),
+	OFFSET				("offset", true),
+	STOP_COLOR			("stop-color"),
+	STOP_OPACITY		("stop-opacity", true),
+	GRADIENT_UNITS		("gradientUnits"),
+	GRADIENT_TRANSFORM	("gradientTransform"),
+	SPREAD_METHOD		("spreadMethod")
+	;
+	
+	private final String name;
+	private final boolean number;
+	
+	/**
+	 * Known attributes.
+	 * 
+	 * @param	string String the attribute name
+	 */
+	private SVGAttribute(final String string)
+	{
+		this(string, false);
+	}
+	
+	/**
+	 * Known attributes.
+	 * 
+	 * @param	string String the attribute name
+	 * @param	number boolean true, if the value is a single number
+	 */
+	private SVGAttribute(final String string, final boolean number)
+	{
+		this.name = string;
+		this.number = number;
+	}
+	
+	/**
+	 * Tell, if the value of the attribute is a single number, like "x" or "opacity".<br>
+	 * Such values may be stored as numbers by the parser, see {@code SVGElement.getNumber}.
+	 * 
+	 * @return	boolean
+	 */
+	public boolean isNumber()
+	{
+		return this.number;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.name;
+	}
+	
+	// map names to type
+	private static final Map<String, SVGAttribute> nameToTypeMap = new HashMap<String, SVGAttribute>();
+	static
+	{
+		for ( SVGAttribute type : EnumSet.allOf(SVGAttribute.class) )
+		{
+			nameToTypeMap.put(type.name, type);
+		}
+	}
+	
+	/**
+	 * Get the known attribute of a name.
+	 * 
+	 * @param	s String the local attribute name
+	 * @return	SVGAttribute the attribute or null, if unknown
+	 */
+	public static SVGAttribute forString(String s)
+	{
+		return nameToTypeMap.get(s);
+	}
+}
@@ -0,0 +1,106 @@
+package net.javainthebox.caraibe.svg;
+
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class AttributeTableTest {
+
+    public AttributeTableTest() {
+    }
+
+    @Test
+    public void indexesKnownAttributesByOrdinal() {
+        AttributeDecoder decoder = new AttributeDecoder();
+        decoder.add("width", "10px");
+        decoder.add("data-name", "icon");
+        decoder.add(SVGAttribute.X, 1.5);
+        decoder.add("id", "r");
+        AttributeTable table = decoder.decode();
+
+        assertEquals(4, table.size());
+        assertTrue(table.contains(SVGAttribute.WIDTH));
+        assertFalse(table.contains(SVGAttribute.HEIGHT));
+        assertNull(table.get(SVGAttribute.HEIGHT));
+        assertEquals("r", table.get(SVGAttribute.ID));
+        assertEquals("10px", table.get("width"));
+        assertEquals("icon", table.get("data-name"));
+        assertNull(table.get("data-other"));
+
+        // known attributes ordered by ordinal, then the unknown ones as read
+        assertEquals(SVGAttribute.ID, table.getKey(0));
+        assertEquals(SVGAttribute.X, table.getKey(1));
+        assertEquals(SVGAttribute.WIDTH, table.getKey(2));
+        assertNull(table.getKey(3));
+        assertEquals("x", table.getName(1));
+        assertEquals("data-name", table.getName(3));
+        assertEquals("1.5", table.getValue(1));
+        assertEquals("icon", table.getValue(3));
+    }
+
+    @Test
+    public void storesNumbers() {
+        AttributeDecoder decoder = new AttributeDecoder();
+        decoder.add(SVGAttribute.X, 10.0);
+        decoder.add(SVGAttribute.Y, "20");
+        decoder.add(SVGAttribute.OPACITY, 0.25);
+        AttributeTable table = decoder.decode();
+
+        assertEquals(10.0, table.getNumber(SVGAttribute.X, 0), 0);
+        // integers are rendered without fraction
+        assertEquals("10", table.get(SVGAttribute.X));
+        assertEquals(20.0, table.getNumber(SVGAttribute.Y, 0), 0);
+        assertEquals("0.25", table.get(SVGAttribute.OPACITY));
+        assertEquals(7.0, table.getNumber(SVGAttribute.WIDTH, 7), 0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void failsForStringsWhichAreNoNumbers() {
+        AttributeDecoder decoder = new AttributeDecoder();
+        decoder.add(SVGAttribute.WIDTH, "10px");
+        decoder.decode().getNumber(SVGAttribute.WIDTH, 0);
+    }
+
+    @Test
+    public void replacesAndRemovesBeforeDecoding() {
+        AttributeDecoder decoder = new AttributeDecoder();
+        decoder.add(SVGAttribute.X, 1.0);
+        decoder.add(SVGAttribute.X, "2");
+        decoder.add(SVGAttribute.Y, "3");
+        decoder.add(SVGAttribute.Y, 4.0);
+        decoder.add(SVGAttribute.ID, "a");
+        decoder.add(SVGAttribute.WIDTH, "5");
+
+        assertEquals("2", decoder.peek(SVGAttribute.X));
+        // numbers are not rendered for peeking
+        assertNull(decoder.peek(SVGAttribute.Y));
+        assertEquals("a", decoder.peek(SVGAttribute.ID));
+
+        decoder.remove(SVGAttribute.WIDTH);
+        decoder.remove(SVGAttribute.HEIGHT);
+        assertNull(decoder.peek(SVGAttribute.WIDTH));
+
+        AttributeTable table = decoder.decode();
+        assertEquals(3, table.size());
+        assertEquals("2", table.get(SVGAttribute.X));
+        assertEquals(4.0, table.getNumber(SVGAttribute.Y, 0), 0);
+        assertFalse(table.contains(SVGAttribute.WIDTH));
+    }
+
+    @Test
+    public void resetsForTheNextElement() {
+        AttributeDecoder decoder = new AttributeDecoder();
+        decoder.add(SVGAttribute.X, 1.0);
+        decoder.add("data-name", "icon");
+        decoder.decode();
+
+        assertNull(decoder.peek(SVGAttribute.X));
+        assertSame(AttributeTable.EMPTY, decoder.decode());
+
+        decoder.add(SVGAttribute.Y, "2");
+        AttributeTable table = decoder.decode();
+        assertEquals(1, table.size());
+        assertNull(table.get(SVGAttribute.X));
+        assertNull(table.get("data-name"));
+    }
+}
@@ -0,0 +1,75 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Rectangle;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class ClipPathTest {
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>\n"
+            + "  <defs>\n"
+            + "    <rect id='r' x='10' y='20' width='30' height='40'/>\n"
+            + "    <path id='p' d='M0 0 L10 0 L5 10 Z'/>\n"
+            + "    <circle id='c' cx='50' cy='50' r='5'/>\n"
+            + "    <clipPath id='rect-clip'><use xlink:href='#r' transform='translate(5,0) scale(2)'/></clipPath>\n"
+            + "    <clipPath id='path-clip'><use xlink:href='#p'/></clipPath>\n"
+            + "    <clipPath id='union-clip'><use xlink:href='#r'/><use xlink:href='#c'/></clipPath>\n"
+            + "    <clipPath id='empty-clip'><use xlink:href='#missing'/></clipPath>\n"
+            + "  </defs>\n"
+            + "  <rect id='a' width='100' height='100' clip-path='url(#rect-clip)'/>\n"
+            + "  <rect id='b' width='100' height='100' clip-path='url(#rect-clip)'/>\n"
+            + "  <rect id='c1' width='100' height='100' clip-path='url(#path-clip)'/>\n"
+            + "  <rect id='c2' width='100' height='100' clip-path='url(#path-clip)'/>\n"
+            + "  <rect id='d' width='100' height='100' clip-path='url(#union-clip)'/>\n"
+            + "  <rect id='e' width='100' height='100' clip-path='url(#empty-clip)'/>\n"
+            + "</svg>\n";
+
+    private SVGContent content;
+
+    public ClipPathTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        content = TestDocuments.load(SVG);
+    }
+
+    @Test
+    public void clipsByRectangles() {
+        Rectangle a = (Rectangle) content.getNode("a").getClip();
+        assertEquals(25.0, a.getX(), 0.0001);
+        assertEquals(40.0, a.getY(), 0.0001);
+        assertEquals(60.0, a.getWidth(), 0.0001);
+        assertEquals(80.0, a.getHeight(), 0.0001);
+        assertTrue(a.getTransforms().isEmpty());
+        assertNotSame(a, content.getNode("b").getClip());
+    }
+
+    @Test
+    public void sharesPathGeometry() {
+        Path c1 = (Path) content.getNode("c1").getClip();
+        Path c2 = (Path) content.getNode("c2").getClip();
+        assertNotSame(c1, c2);
+        assertSame(c1.getElements().get(0), c2.getElements().get(0));
+        assertEquals(10.0, c1.getBoundsInLocal().getWidth(), 0.0001);
+    }
+
+    @Test
+    public void unitesShapes() {
+        Node d = content.getNode("d").getClip();
+        assertTrue(d instanceof Path);
+        Bounds bounds = d.getBoundsInLocal();
+        assertEquals(10.0, bounds.getMinX(), 0.0001);
+        assertEquals(55.0, bounds.getMaxX(), 0.0001);
+        assertEquals(60.0, bounds.getMaxY(), 0.0001);
+    }
+
+    @Test
+    public void hidesByEmptyClips() {
+        Rectangle e = (Rectangle) content.getNode("e").getClip();
+        assertEquals(0.0, e.getWidth(), 0);
+    }
+}
@@ -0,0 +1,46 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.paint.Color;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class ColorCacheTest {
+
+    private final ColorCache cache = new ColorCache(2);
+
+    public ColorCacheTest() {
+    }
+
+    @Test
+    public void internsColors() {
+        Color color = cache.get("#336699");
+        assertEquals(Color.web("#336699"), color);
+        assertSame(color, cache.get(new String("#336699")));
+        assertSame(cache.get("red", 0.5), cache.get("red", 0.5));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void combinesOpacity() {
+        assertEquals(0.5, cache.get("#336699", 0.5).getOpacity(), 1.0 / 255);
+        assertEquals(0.25, cache.get("rgba(0,0,0,0.5)", 0.5).getOpacity(), 1.0 / 255);
+        // short and named colors take an opacity, too
+        assertEquals(Color.web("#fff", 0.2), cache.get("#fff", 0.2));
+        assertEquals(0, cache.get("blue", -1).getOpacity(), 0);
+    }
+
+    @Test
+    public void isBounded() {
+        cache.get("red");
+        cache.get("green");
+        cache.get("blue");
+        assertEquals(2, cache.size());
+        assertEquals(Color.BLUE, cache.get("blue"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoColor() {
+        cache.get("no color");
+    }
+}
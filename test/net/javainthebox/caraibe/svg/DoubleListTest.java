@@ -0,0 +1,52 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+import javafx.collections.ListChangeListener;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class DoubleListTest {
+
+    public DoubleListTest() {
+    }
+
+    @Test
+    public void viewsTheFirstValues() {
+        DoubleList list = new DoubleList(new double[] { 1, 2, 3, 4, 5 }, 4);
+
+        assertEquals(4, list.size());
+        assertEquals(Double.valueOf(4), list.get(3));
+        assertArrayEquals(new Object[] { 1.0, 2.0, 3.0, 4.0 }, list.toArray());
+        assertEquals(Arrays.asList(1.0, 2.0, 3.0, 4.0), list);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void failsBehindTheView() {
+        new DoubleList(new double[] { 1, 2, 3 }, 2).get(2);
+    }
+
+    @Test
+    public void setsPointsInOneChange() {
+        Polygon polygon = new Polygon();
+        int[] changes = new int[1];
+        polygon.getPoints().addListener((ListChangeListener<Double>) change -> changes[0]++);
+
+        polygon.getPoints().setAll(new DoubleList(new double[] { 0, 0, 10, 0, 10, 10 }));
+
+        assertEquals(1, changes[0]);
+        assertEquals(Arrays.asList(0.0, 0.0, 10.0, 0.0, 10.0, 10.0), polygon.getPoints());
+    }
+
+    @Test
+    public void dropsAnOddCoordinate() throws Exception {
+        SVGContent content = TestDocuments.load("<svg xmlns='http://www.w3.org/2000/svg'>"
+                + "<polygon id='polygon' points='0,0 10,0 10,10 5'/>"
+                + "<polyline id='polyline' points='1 2 3 4 5'/>"
+                + "</svg>");
+
+        assertEquals(Arrays.asList(0.0, 0.0, 10.0, 0.0, 10.0, 10.0), ((Polygon) content.getNode("polygon")).getPoints());
+        assertEquals(Arrays.asList(1.0, 2.0, 3.0, 4.0), ((Polyline) content.getNode("polyline")).getPoints());
+    }
+}
@@ -0,0 +1,118 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.shape.Rectangle;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class GradientRegistryTest {
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>\n"
+            + "  <rect id='early' width='10' height='10' fill='url(#blue)'/>\n"
+            + "  <rect id='copy' width='10' height='10' fill='url(#blue2)'/>\n"
+            + "  <rect id='missing' width='10' height='10' fill='url(#nothing) #FF0000'/>\n"
+            + "  <rect id='wide' width='10' height='10' fill='url(#stretched)'/>\n"
+            + "  <defs>\n"
+            + "    <linearGradient id='stops'>\n"
+            + "      <stop offset='0%' stop-color='#FFFFFF'/>\n"
+            + "      <stop offset='50%' style='stop-color:#0000FF; stop-opacity:0.5'/>\n"
+            + "      <stop offset='0.25' stop-color='#000000'/>\n"
+            + "    </linearGradient>\n"
+            + "    <linearGradient id='blue' xlink:href='#stops' x2='0' y2='1' spreadMethod='reflect'/>\n"
+            + "    <linearGradient id='blue2' xlink:href='#blue'/>\n"
+            + "    <linearGradient id='user' xlink:href='#stops' gradientUnits='userSpaceOnUse' x1='10' x2='20'"
+            + " gradientTransform='translate(5)'/>\n"
+            + "    <linearGradient id='rotated' xlink:href='#stops' gradientTransform='rotate(90) scale(2)'/>\n"
+            + "    <linearGradient id='skewed' xlink:href='#stops' gradientTransform='skewX(45)'/>\n"
+            + "    <linearGradient id='stretched' xlink:href='#stops' gradientTransform='matrix(2,0,0,1,0,0)'/>\n"
+            + "    <radialGradient id='radial' xlink:href='#stops' fx='0.75'/>\n"
+            + "    <radialGradient id='single'><stop offset='1' stop-color='#00FF00'/></radialGradient>\n"
+            + "    <linearGradient id='a' xlink:href='#b'/>\n"
+            + "    <linearGradient id='b' xlink:href='#a'/>\n"
+            + "  </defs>\n"
+            + "</svg>\n";
+
+    public GradientRegistryTest() {
+    }
+
+    private static SVGDocument parse() throws Exception {
+        return TestDocuments.parse(SVG);
+    }
+
+    @Test
+    public void resolvesHrefChainsInBoundingBoxUnits() throws Exception {
+        GradientRegistry gradients = parse().getGradients();
+
+        LinearGradient blue = (LinearGradient) gradients.get("blue");
+        assertTrue(blue.isProportional());
+        assertEquals(0, blue.getEndX(), 0);
+        assertEquals(1, blue.getEndY(), 0);
+        assertEquals(CycleMethod.REFLECT, blue.getCycleMethod());
+        // JavaFX adds a stop at 100%
+        assertEquals(4, blue.getStops().size());
+        assertEquals(0.5, blue.getStops().get(1).getOffset(), 0);
+        assertEquals(0.5, blue.getStops().get(1).getColor().getOpacity(), 0.01);
+        // a decreasing offset is raised to the previous one
+        assertEquals(0.5, blue.getStops().get(2).getOffset(), 0);
+
+        LinearGradient user = (LinearGradient) gradients.get("user");
+        assertFalse(user.isProportional());
+        assertEquals(15, user.getStartX(), 0);
+        assertEquals(25, user.getEndX(), 0);
+
+        RadialGradient radial = (RadialGradient) gradients.get("radial");
+        assertTrue(radial.isProportional());
+        assertEquals(0.5, radial.getRadius(), 0);
+        assertEquals(0.5, radial.getFocusDistance(), 1e-9);
+        assertEquals(0, radial.getFocusAngle(), 1e-9);
+    }
+
+    @Test
+    public void transformsLinearGradientsAffinely() throws Exception {
+        GradientRegistry gradients = parse().getGradients();
+
+        LinearGradient rotated = (LinearGradient) gradients.get("rotated");
+        assertEquals(0, rotated.getStartX(), 1e-9);
+        assertEquals(0, rotated.getStartY(), 1e-9);
+        assertEquals(0, rotated.getEndX(), 1e-9);
+        assertEquals(2, rotated.getEndY(), 1e-9);
+
+        LinearGradient stretched = (LinearGradient) gradients.get("stretched");
+        assertEquals(0, stretched.getStartX(), 1e-9);
+        assertEquals(2, stretched.getEndX(), 1e-9);
+        assertEquals(0, stretched.getEndY(), 1e-9);
+
+        // the stripes x = 1 become x - y = 1, the end is where the normal through the start crosses it
+        LinearGradient skewed = (LinearGradient) gradients.get("skewed");
+        assertEquals(0.5, skewed.getEndX(), 1e-9);
+        assertEquals(-0.5, skewed.getEndY(), 1e-9);
+    }
+
+    @Test
+    public void sharesEqualPaints() throws Exception {
+        GradientRegistry gradients = parse().getGradients();
+
+        assertSame(gradients.get("blue"), gradients.get("blue2"));
+        assertEquals(1, gradients.getPaintCount());
+        assertEquals(Color.web("#00FF00"), gradients.get("single"));
+        assertNull(gradients.get("nothing"));
+        // a reference cycle has no stops
+        assertNull(gradients.get("a"));
+    }
+
+    @Test
+    public void appliesGradientsDefinedLater() throws Exception {
+        SVGDocument document = parse();
+        SVGContent content = SVGLoader.load(document);
+
+        assertSame(document.getGradients().get("blue"), ((Rectangle) content.getNode("early")).getFill());
+        assertSame(((Rectangle) content.getNode("early")).getFill(), ((Rectangle) content.getNode("copy")).getFill());
+        assertEquals(Color.web("#FF0000"), ((Rectangle) content.getNode("missing")).getFill());
+        assertTrue(((Rectangle) content.getNode("wide")).getFill() instanceof LinearGradient);
+        assertSame(((Rectangle) content.getNode("early")).getFill(),
+                ((Rectangle) content.copy().getNode("early")).getFill());
+    }
+}
@@ -0,0 +1,80 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Polyline;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class LevelOfDetailTest {
+
+    public LevelOfDetailTest() {
+    }
+
+    @Test
+    public void simplifiesPolylines() {
+        double[] points = { 0, 0, 1, 0.1, 2, -0.1, 3, 5, 4, 6, 5, 7, 6, 0, 7 };
+
+        assertArrayEquals(new double[] { 0, 0, 2, -0.1, 3, 5, 5, 7, 6, 0 }, Simplifier.simplify(points, points.length, 0.5), 0);
+        assertArrayEquals(new double[] { 0, 0, 6, 0 }, Simplifier.simplify(points, points.length, 10), 0);
+        assertEquals(14, Simplifier.simplify(points, points.length, 0).length);
+    }
+
+    @Test
+    public void choosesLevelsByScale() {
+        LevelOfDetail level_of_detail = new LevelOfDetail(0.1);
+
+        assertEquals(0, level_of_detail.getLevel());
+        assertEquals(1, level_of_detail.levelOf(0.125));
+        assertEquals(3, level_of_detail.levelOf(0.9));
+        assertEquals(4, level_of_detail.levelOf(1.0));
+    }
+
+    @Test
+    public void swapsVersionsOfContents() throws Exception {
+        // a wavy line of 1000 vertices and a path of 200 lines
+        StringBuilder points = new StringBuilder();
+        StringBuilder d = new StringBuilder("M0 0");
+        for (int i = 0; i < 1000; i++) {
+            points.append(i).append(',').append(Math.sin(i / 10.0) * 100).append(' ');
+            if (i < 200) {
+                d.append(" L").append(i).append(' ').append(i % 2 == 0 ? 0 : 0.2);
+            }
+        }
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg'>"
+                + "<polyline id='line' points='" + points + "'/>"
+                + "<path id='path' d='" + d + "'/>"
+                + "<polyline id='small' points='0,0 1,1 2,0'/>"
+                + "</svg>";
+        SVGContentBuilder builder = new SVGContentBuilder(TestDocuments.parse(svg));
+        builder.setDetailScale(0.05);
+        SVGContent content = builder.build();
+
+        Polyline line = (Polyline) content.getNode("line");
+        Path path = (Path) content.getNode("path");
+        int coarse = line.getPoints().size();
+        assertTrue(coarse < 200);
+        assertEquals(2, path.getElements().size());
+        assertEquals(6, ((Polyline) content.getNode("small")).getPoints().size());
+
+        content.setDetailScale(0.3);
+        int finer = line.getPoints().size();
+        assertTrue(finer > coarse && finer < 2000);
+        assertEquals(2, path.getElements().size());
+
+        content.setDetailScale(4);
+        assertEquals(2000, line.getPoints().size());
+        assertEquals(201, path.getElements().size());
+
+        // below the new threshold a version for 8 is shown, only the repeated first point is dropped
+        content.setDetailThresholds(8);
+        assertEquals(200, path.getElements().size());
+
+        // a copy swaps the versions of its own shapes
+        SVGContent copy = content.copy();
+        assertEquals(4.0, copy.getDetailScale(), 0);
+        copy.setDetailThresholds(0.125, 0.25, 0.5, 1);
+        copy.setDetailScale(0.05);
+        assertEquals(2, ((Path) copy.getNode("path")).getElements().size());
+        assertEquals(200, path.getElements().size());
+    }
+}
@@ -0,0 +1,63 @@
+package net.javainthebox.caraibe.svg;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class NumberScannerTest {
+
+    private final NumberScanner scanner = new NumberScanner();
+
+    public NumberScannerTest() {
+    }
+
+    @Test
+    public void separators() {
+        assertArrayEquals(new double[] { 10, 20, 30, 40 }, scanner.toDoubles("10,20,30,40"), 0);
+        assertArrayEquals(new double[] { 10, 20, 30, 40 }, scanner.toDoubles(" 10 20\n\t30 , 40 "), 0);
+        assertArrayEquals(new double[] { 10, 20, 30, 40 }, scanner.toDoubles("10,20 30,40"), 0);
+        assertArrayEquals(new double[0], scanner.toDoubles("  "), 0);
+    }
+
+    @Test
+    public void implicitSeparators() {
+        assertArrayEquals(new double[] { 1e-3, -2 }, scanner.toDoubles("1e-3-2"), 0);
+        assertArrayEquals(new double[] { 0.5, 0.5, -0.25 }, scanner.toDoubles("0.5.5-.25"), 0);
+        assertArrayEquals(new double[] { 1, -1, 2 }, scanner.toDoubles("+1-1+2"), 0);
+    }
+
+    @Test
+    public void grammar() {
+        assertArrayEquals(new double[] { 5769.207, -8209.6445, 1.5e10, 2E-5, 3., .75 },
+                scanner.toDoubles("5769.207 -8209.6445 1.5e+10 2E-5 3. .75"), 0);
+    }
+
+    @Test
+    public void roundsLikeTheJdk() {
+        String[] values = { "0.1", "161.33599999999998", "1234567890123456789", "9007199254740993",
+            "1e23", "4.9e-324", "0.000000000000000000000000001", "-73.9805", "0.4675" };
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), scanner.toDoubles(value)[0], 0);
+        }
+    }
+
+    @Test
+    public void floats() {
+        assertArrayEquals(new float[] { 0.1f, 2f }, scanner.toFloats("0.1,2"), 0);
+    }
+
+    @Test
+    public void cursor() {
+        scanner.reset("matrix(1 0,0 1 5 6)", 7, 18);
+        double sum = 0;
+        while (scanner.hasNext()) {
+            sum += scanner.next();
+        }
+        assertEquals(13, sum, 0);
+        assertEquals(18, scanner.getPosition());
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsGarbage() {
+        scanner.toDoubles("10 20 abc");
+    }
+}
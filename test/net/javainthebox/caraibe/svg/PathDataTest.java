@@ -0,0 +1,85 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcTo;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class PathDataTest {
+
+    public PathDataTest() {
+    }
+
+    @Test
+    public void resolvesRelativeCommands() {
+        assertEquals("M10 10 L90 10 L90 90 L10 90 Z",
+                PathData.compile("M10 10 h80 v80 h-80 z").toString());
+        assertEquals("M10 20 L30 40 L40 60",
+                PathData.compile("m10,20 20,20 l10 20").toString());
+        assertEquals("M0 0 L5 5 Z L1 1",
+                PathData.compile("M0 0 5 5z l1 1").toString());
+    }
+
+    @Test
+    public void reflectsControlPoints() {
+        assertEquals("M0 0 C0 10 10 10 10 0 C10 -10 20 -10 20 0",
+                PathData.compile("M0 0 C0 10 10 10 10 0 s10 -10 10 0").toString());
+        assertEquals("M0 0 Q5 10 10 0 Q15 -10 20 0",
+                PathData.compile("M0 0 Q5 10 10 0 T20 0").toString());
+        // without a previous curve the current point is the control point
+        assertEquals("M0 0 Q0 0 10 0", PathData.compile("M0 0 T10 0").toString());
+    }
+
+    @Test
+    public void arcs() {
+        // flags need no separator
+        PathData data = PathData.compile("M0 0 a5 5 0 015 5 A0 5 0 0 1 20 20 L20 20 A5 5 0 0 0 20 20");
+        assertEquals("M0 0 A5 5 0 0 1 5 5 L20 20 L20 20", data.toString());
+
+        Path path = data.toPath();
+        assertTrue(path.getElements().get(1) instanceof ArcTo);
+        ArcTo arc = (ArcTo) path.getElements().get(1);
+        assertTrue(arc.isSweepFlag());
+        assertFalse(arc.isLargeArcFlag());
+        assertEquals(5, arc.getX(), 0);
+    }
+
+    @Test
+    public void keepsDataBeforeAnError() {
+        assertEquals("M1 2 L3 4", PathData.compile("M1 2 L3 4 L5 x 7 8").toString());
+        assertEquals("M1 2 L3 4", PathData.compile("M1 2 L3 4 X 5 6").toString());
+        assertEquals("", PathData.compile("L1 2").toString());
+        assertEquals("", PathData.compile(null).toString());
+    }
+
+    @Test
+    public void toPath() {
+        Path path = PathData.compile("M10 10 h80 v80 h-80 z").toPath();
+        path.setFill(Color.BLACK);
+        path.setStroke(null);
+        assertEquals(5, path.getElements().size());
+        assertTrue(path.getElements().get(0) instanceof MoveTo);
+        assertTrue(path.getElements().get(4) instanceof ClosePath);
+        assertEquals(80, path.getLayoutBounds().getWidth(), 0);
+    }
+
+    @Test
+    public void cachesEqualData() {
+        PathData first = PathData.get(new String("M0 0 L1 1"));
+        long hits = PathData.getCacheHitCount();
+        assertSame(first, PathData.get(new String("M0 0 L1 1")));
+        assertEquals(hits + 1, PathData.getCacheHitCount());
+        assertNotSame(first.toPath(), first.toPath());
+    }
+
+    @Test
+    public void simplifiesLines() {
+        PathData data = PathData.compile("M0 0 L10 0.1 L20 0 L30 5 C30 10 40 10 40 5 L50 5.1 L60 5 Z");
+
+        assertEquals("M0 0 L20 0 L30 5 C30 10 40 10 40 5 L60 5 Z", data.simplify(0.5).toString());
+        assertSame(data, data.simplify(0.01));
+    }
+}
@@ -0,0 +1,91 @@
+package net.javainthebox.caraibe.svg;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class SVGDocumentCacheTest {
+
+    private static final String SVG_1 = "<svg><rect id='rect' width='10' height='10'/></svg>";
+    private static final String SVG_2 = "<svg><circle id='circle' cx='5' cy='5' r='5'/></svg>";
+
+    public SVGDocumentCacheTest() {
+    }
+
+    @Test
+    public void parseOnce() throws Exception {
+        SVGDocumentCache cache = new SVGDocumentCache(SVGDocumentCache.DEFAULT_MAX_SIZE);
+        URL url = getClass().getResource("rectangle.svg");
+
+        SVGDocument first = cache.get(url);
+        SVGDocument second = cache.get(url);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(first.getEstimatedSize(), cache.getSize());
+    }
+
+    @Test
+    public void modifiedFileIsParsedAgain() throws Exception {
+        SVGDocumentCache cache = new SVGDocumentCache(SVGDocumentCache.DEFAULT_MAX_SIZE);
+        File file = File.createTempFile("cache", ".svg");
+        file.deleteOnExit();
+        URL url = file.toURI().toURL();
+
+        write(file, SVG_1);
+        SVGDocument first = cache.get(url);
+        assertEquals("rect", first.getRoot().getChild(0).getName());
+
+        write(file, SVG_2);
+        file.setLastModified(file.lastModified() + 2000);
+        SVGDocument second = cache.get(url);
+        assertEquals("circle", second.getRoot().getChild(0).getName());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(second.getEstimatedSize(), cache.getSize());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        URL rectangle = getClass().getResource("rectangle.svg");
+        URL group = getClass().getResource("group.svg");
+        URL lines = getClass().getResource("lines.svg");
+
+        SVGDocumentCache unbounded = new SVGDocumentCache(SVGDocumentCache.DEFAULT_MAX_SIZE);
+        long size = unbounded.get(rectangle).getEstimatedSize()
+                + unbounded.get(group).getEstimatedSize()
+                + unbounded.get(lines).getEstimatedSize() - 1;
+
+        SVGDocumentCache cache = new SVGDocumentCache(size);
+        cache.get(rectangle);
+        cache.get(group);
+        cache.get(rectangle);
+        cache.get(lines);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getSize() <= size);
+
+        // rectangle was used more recently than group
+        long misses = cache.getMissCount();
+        cache.get(rectangle);
+        assertEquals(misses, cache.getMissCount());
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        SVGDocumentCache cache = new SVGDocumentCache(0);
+        URL url = getClass().getResource("rectangle.svg");
+
+        assertNotSame(cache.get(url), cache.get(url));
+        assertEquals(0, cache.getSize());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes("UTF-8"));
+        }
+    }
+}
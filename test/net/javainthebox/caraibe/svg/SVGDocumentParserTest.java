@@ -0,0 +1,247 @@
+package net.javainthebox.caraibe.svg;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.shape.Shape;
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class SVGDocumentParserTest {
+
+    public SVGDocumentParserTest() {
+    }
+
+    @Test
+    public void backendsAgree() throws Exception {
+        for (String name : new String[] { "rectangle.svg", "group.svg", "lines.svg", "/duke.svg" }) {
+            URL url = getClass().getResource(name);
+            SVGElement expected = new SVGDocumentParser(url, SVGParserBackend.EVENT).parse().getRoot();
+
+            for (SVGParserBackend backend : SVGParserBackend.values()) {
+                SVGElement actual = new SVGDocumentParser(url, backend).parse().getRoot();
+                assertSameTree(name + " " + backend, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void backendsAgreeOnMarkup() throws Exception {
+        String svg = "<?xml version='1.0' encoding='UTF-8'?>\r\n"
+                + "<!-- comment <g> -->\n"
+                + "<!DOCTYPE svg PUBLIC '-//W3C//DTD SVG 1.1//EN' 'svg11.dtd' [ <!ENTITY ns 'x'> ]>\n"
+                + "<svg xmlns:xlink='http://www.w3.org/1999/xlink' xml:space='preserve'>\r\n"
+                + "  <g id='g&#x30EC;\u00e9' style='fill:red;\r\n\tstroke:blue'>\n"
+                + "    <text x = \"1\" >a &lt; b &amp;&#65;&#x1F600; \u65e5\u672c<!-- c --> c</text>\n"
+                + "    <text><![CDATA[x < y]]></text>\n"
+                + "    <use xlink:href=\"#g\" title='&quot;&apos;&gt;'/>\n"
+                + "  </g>\n"
+                + "</svg>\n";
+        byte[] bytes = svg.getBytes("UTF-8");
+
+        SVGElement expected = new SVGDocumentParser(null, SVGParserBackend.EVENT)
+                .parse(new ByteArrayInputStream(bytes)).getRoot();
+        SVGElement actual = new SVGDocumentParser(null, SVGParserBackend.BYTES)
+                .parse(new ByteArrayInputStream(bytes)).getRoot();
+
+        assertSameTree("markup", expected, actual);
+        assertEquals("#g", actual.getChild(0).getChild(2).getAttribute("href"));
+
+        // the namespace entities of Illustrator files
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            many.append("&ns_xlink;");
+        }
+        svg = "<?xml version='1.0' encoding='utf-8'?>\n"
+                + "<!-- Generator: Adobe Illustrator 15.0.0, SVG Export Plug-In  -->\n"
+                + "<!DOCTYPE svg PUBLIC '-//W3C//DTD SVG 1.1//EN' 'svg11.dtd' [\n"
+                + "\t<!ENTITY ns_ai \"http://ns.adobe.com/AdobeIllustrator/10.0/\">\n"
+                + "\t<!ENTITY ns_svg \"http://www.w3.org/2000/svg\">\n"
+                + "\t<!ENTITY ns_xlink 'http://www.w3.org/1999/xlink'>\n"
+                + "\t<!ENTITY ns_svg 'ignored'>\n"
+                + "\t<!ENTITY % parameter 'skipped'>\n"
+                + "]>\n"
+                + "<svg version='1.1' xmlns:i='&ns_ai;' xmlns='&ns_svg;' xmlns:xlink='&ns_xlink;'>\n"
+                + "  <switch><foreignObject requiredExtensions='&ns_ai;' width='1' height='1'/>\n"
+                + "    <g data-many='" + many + "'><text>text</text></g>\n"
+                + "  </switch>\n"
+                + "</svg>\n";
+        bytes = svg.getBytes("UTF-8");
+
+        expected = new SVGDocumentParser(null, SVGParserBackend.EVENT).parse(new ByteArrayInputStream(bytes)).getRoot();
+        for (SVGParserBackend backend : SVGParserBackend.values()) {
+            actual = new SVGDocumentParser(null, backend).parse(new ByteArrayInputStream(bytes)).getRoot();
+            assertSameTree("entities " + backend, expected, actual);
+        }
+        assertEquals("http://ns.adobe.com/AdobeIllustrator/10.0/", actual.getChild(0).getChild(0).getAttribute("requiredExtensions"));
+        assertEquals(20 * 28, actual.getChild(0).getChild(1).getAttribute("data-many").length());
+
+        // a buffer without array is read through copies of its bytes
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        SVGDocumentHandler handler = new SVGDocumentHandler();
+        new SVGByteTokenizer(handler).tokenize(direct);
+        assertSameTree("entities direct", expected, handler.getRoot());
+    }
+
+    @Test
+    public void readersExpandDeclaredEntities() throws Exception {
+        byte[] bytes = ("<!DOCTYPE svg PUBLIC '-//W3C//DTD SVG 1.1//EN' 'http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd' [\n"
+                + "\t<!ENTITY ns_svg \"http://www.w3.org/2000/svg\">\n"
+                + "\t<!ENTITY outside SYSTEM 'file:///etc/hostname'>\n"
+                + "]>\n"
+                + "<svg xmlns='&ns_svg;'><text>&ns_svg;</text></svg>").getBytes("UTF-8");
+
+        for (SVGParserBackend backend : new SVGParserBackend[] { SVGParserBackend.EVENT, SVGParserBackend.CURSOR }) {
+            SVGElement root = new SVGDocumentParser(null, backend).parse(new ByteArrayInputStream(bytes)).getRoot();
+            assertEquals(backend.name(), "http://www.w3.org/2000/svg", root.getAttribute("xmlns"));
+            assertEquals(backend.name(), "http://www.w3.org/2000/svg", root.getChild(0).getText());
+        }
+    }
+
+    @Test(expected = javax.xml.stream.XMLStreamException.class)
+    public void tokenizerRejectsUnbalancedTags() throws Exception {
+        byte[] bytes = "<svg><g></svg>".getBytes("UTF-8");
+        new SVGDocumentParser(null, SVGParserBackend.BYTES).parse(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void tokenizerStoresNumbers() throws Exception {
+        byte[] bytes = "<svg><rect x='-1.5' y='2e2' width='10' height='10px' opacity='.25'/></svg>".getBytes("UTF-8");
+        SVGElement rect = new SVGDocumentParser(null, SVGParserBackend.BYTES)
+                .parse(new ByteArrayInputStream(bytes)).getRoot().getChild(0);
+
+        assertEquals(-1.5, rect.getNumber(SVGAttribute.X, 0), 0);
+        assertEquals(200, rect.getNumber(SVGAttribute.Y, 0), 0);
+        assertEquals("10", rect.getAttribute(SVGAttribute.WIDTH));
+        assertEquals("10px", rect.getAttribute(SVGAttribute.HEIGHT));
+        assertEquals(0.25, rect.getNumber(SVGAttribute.OPACITY, 1), 0);
+        assertEquals(7, rect.getNumber(SVGAttribute.RX, 7), 0);
+    }
+
+    @Test
+    public void mappedFile() throws Exception {
+        File file = File.createTempFile("mapped", ".svg");
+        file.deleteOnExit();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            out.write("<svg>");
+            for (long size = 0; size < SVGDocumentParser.MAP_THRESHOLD; size += 40) {
+                out.write("<rect x='1' y='2' width='3' height='4'/>");
+            }
+            out.write("</svg>");
+        }
+        URL url = file.toURI().toURL();
+
+        SVGElement expected = new SVGDocumentParser(url, SVGParserBackend.CURSOR).parse().getRoot();
+        SVGElement actual = new SVGDocumentParser(url, SVGParserBackend.BYTES).parse().getRoot();
+        assertSameTree("mapped", expected, actual);
+    }
+
+    @Test
+    public void buildsIndependentTreesFromOneDocument() throws Exception {
+        URL url = getClass().getResource("/duke.svg");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        SVGDocument document;
+        try {
+            document = executor.submit(() -> {
+                assertFalse(Platform.isFxApplicationThread());
+                return new SVGDocumentParser(url).parse();
+            }).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        SVGContent first = new SVGContentBuilder(document).build();
+        SVGContent second = new SVGContentBuilder(document).build();
+        assertSame(document, first.getDocument());
+        assertSame(document, second.getDocument());
+        assertEquals(first.getNodes().keySet(), second.getNodes().keySet());
+        assertSameNodes("duke", first, second);
+
+        // changing one tree leaves the other as built
+        List<Shape> shapes = new ArrayList<>();
+        collectShapes(first, shapes);
+        List<Shape> copied = new ArrayList<>();
+        collectShapes(second, copied);
+        assertFalse(shapes.isEmpty());
+        shapes.get(0).setFill(null);
+        assertNotNull(copied.get(0).getFill());
+    }
+
+    /**
+     * Compares two built trees, which are equal but don't share nodes.
+     */
+    static void assertSameNodes(String message, Node expected, Node actual) {
+        assertNotSame(message, expected, actual);
+        assertEquals(message, expected.getClass(), actual.getClass());
+        assertEquals(message, expected.getId(), actual.getId());
+        assertEquals(message, expected.getBoundsInParent(), actual.getBoundsInParent());
+        if (expected instanceof Shape) {
+            assertEquals(message, ((Shape) expected).getFill(), ((Shape) actual).getFill());
+            assertEquals(message, ((Shape) expected).getStroke(), ((Shape) actual).getStroke());
+        }
+        if (expected instanceof Parent) {
+            List<Node> children = ((Parent) expected).getChildrenUnmodifiable();
+            List<Node> actualChildren = ((Parent) actual).getChildrenUnmodifiable();
+            assertEquals(message, children.size(), actualChildren.size());
+            for (int i = 0; i < children.size(); i++) {
+                assertSameNodes(message + " " + expected.getId(), children.get(i), actualChildren.get(i));
+            }
+        }
+    }
+
+    private static void collectShapes(Node node, List<Shape> shapes) {
+        if (node instanceof Shape && ((Shape) node).getFill() != null) {
+            shapes.add((Shape) node);
+        }
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                collectShapes(child, shapes);
+            }
+        }
+    }
+
+    /**
+     * Compares attribute by attribute, numbers may be stored as number by one backend and as string by the other.
+     */
+    static void assertSameTree(String message, SVGElement expected, SVGElement actual) {
+        assertEquals(message, expected.getName(), actual.getName());
+        assertEquals(message, expected.getAttributeCount(), actual.getAttributeCount());
+        for (int i = 0; i < expected.getAttributeCount(); i++) {
+            SVGAttribute key = expected.getAttributeKey(i);
+            assertEquals(message, expected.getAttributeName(i), actual.getAttributeName(i));
+            if (key != null && key.isNumber() && isNumber(expected.getAttributeValue(i))) {
+                assertEquals(message, expected.getNumber(key, 0), actual.getNumber(key, 0), 0);
+            } else {
+                assertEquals(message, expected.getAttributeValue(i), actual.getAttributeValue(i));
+            }
+        }
+        assertEquals(message, expected.getText(), actual.getText());
+        assertEquals(message, expected.getChildCount(), actual.getChildCount());
+        for (int i = 0; i < expected.getChildCount(); i++) {
+            assertSameTree(message, expected.getChild(i), actual.getChild(i));
+        }
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package net.javainthebox.caraibe.svg;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.shape.Rectangle;
+import javax.xml.stream.XMLStreamException;
+import net.javainthebox.caraibe.svg.attributes.SVGAttribute;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class SVGFragmentHandlerTest {
+
+    private static final String SHEET = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'"
+            + " width='100' height='100' viewBox='0 0 100 100'>\n"
+            + "  <defs>\n"
+            + "    <linearGradient id='g2' xlink:href='#g3'/>\n"
+            + "    <linearGradient id='g3'><stop offset='0' stop-color='#FF0000'/><stop offset='1' stop-color='#0000FF'/></linearGradient>\n"
+            + "    <linearGradient id='unused'/>\n"
+            + "    <clipPath id='clip'><use xlink:href='#c'/></clipPath>\n"
+            + "    <g id='set' transform='translate(50,0)'><path id='p' d='M0,0 L4,0 L4,4 Z' fill='url(#g3)'/></g>\n"
+            + "  </defs>\n"
+            + "  <g id='icon_0'><rect id='r0' width='10' height='10'/></g>\n"
+            + "  <g id='layer' transform='translate(10,0)' fill='#00FF00'>\n"
+            + "    <rect id='sibling' width='10' height='10'/>\n"
+            + "    <g id='icon_1' clip-path='url(#clip)'><rect id='r1' width='10' height='10'/>"
+            + "<rect id='r2' width='5' height='5' fill='url(#g2)'/><use id='u' xlink:href='#shared'/></g>\n"
+            + "  </g>\n"
+            + "  <circle id='c' r='3'/>\n"
+            + "  <g id='shared'><rect id='s' width='2' height='2'/></g>\n"
+            + "  <symbol id='sym'><circle r='4'/><rect id='sr' width='3' height='2'/></symbol>\n"
+            + "</svg>\n";
+
+    private static File file;
+
+    public SVGFragmentHandlerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        file = File.createTempFile("fragment", ".svg");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(SHEET.getBytes("UTF-8"));
+        }
+    }
+
+    @Test
+    public void keepsSubtreeWithReferences() throws Exception {
+        for (SVGParserBackend backend : SVGParserBackend.values()) {
+            SVGDocument document = new SVGDocumentParser(file.toURI().toURL(), backend).parseFragment("icon_1");
+            String message = backend.name();
+
+            assertNotNull(message, document.getElementById("icon_1"));
+            assertNotNull(message, document.getElementById("layer"));
+            // other subtrees and unreferenced resources are skipped
+            assertNull(message, document.getElementById("icon_0"));
+            assertNull(message, document.getElementById("sibling"));
+            assertNull(message, document.getElementById("unused"));
+            assertNull(message, document.getElementById("sym"));
+            // resources, also through other resources, and elements used outside of them
+            for (String id : new String[] { "g2", "g3", "clip", "c", "shared" }) {
+                assertNotNull(message + " " + id, document.getElementById(id));
+            }
+            assertFalse(message, document.getRoot().hasAttribute(SVGAttribute.VIEW_BOX));
+            assertFalse(message, document.getRoot().hasAttribute(SVGAttribute.WIDTH));
+        }
+    }
+
+    @Test
+    public void keepsEmptyElement() throws Exception {
+        for (SVGParserBackend backend : SVGParserBackend.values()) {
+            SVGDocument document = new SVGDocumentParser(file.toURI().toURL(), backend).parseFragment("sibling");
+
+            // the byte tokenizer reads the attributes of the element, not of the others
+            assertEquals(backend.name(), 10.0, document.getElementById("sibling").getNumber(SVGAttribute.WIDTH, 0.0), 0.0001);
+            assertNull(backend.name(), document.getElementById("r1"));
+            assertNotNull(backend.name(), document.getElementById("layer"));
+        }
+    }
+
+    @Test
+    public void loadsFragment() throws Exception {
+        SVGContent content = SVGLoader.loadFragment(file.getPath(), "icon_1");
+
+        assertEquals(Color.web("#00FF00"), ((Rectangle) content.getNode("r1")).getFill());
+        assertTrue(((Rectangle) content.getNode("r2")).getFill() instanceof LinearGradient);
+        assertEquals(10.0, content.getGroup("layer").getLocalToParentTransform().getTx(), 0.0001);
+        assertEquals(6.0, content.getGroup("icon_1").getClip().getBoundsInLocal().getWidth(), 0.0001);
+        Node used = content.getNode("u");
+        assertEquals(1, ((Parent) used).getChildrenUnmodifiable().size());
+        assertNull(content.getNode("r0"));
+        // no stage of the size of the file
+        assertEquals(1, content.getChildren().size());
+    }
+
+    @Test
+    public void showsSymbol() throws Exception {
+        SVGContent content = SVGLoader.loadFragment(file.getPath(), "sym");
+
+        assertNotNull(content);
+        assertEquals(8.0, content.getBoundsInLocal().getWidth(), 0.0001);
+    }
+
+    @Test
+    public void findsElementInsideResources() throws Exception {
+        for (SVGParserBackend backend : SVGParserBackend.values()) {
+            SVGDocument document = new SVGDocumentParser(file.toURI().toURL(), backend).parseFragment("p");
+            String message = backend.name();
+
+            assertNotNull(message, document.getElementById("p"));
+            assertNotNull(message, document.getElementById("set"));
+            assertNotNull(message, document.getElementById("g3"));
+            assertNull(message, document.getElementById("icon_1"));
+            assertNull(message, document.getElementById("g2"));
+        }
+
+        // shown by a use, without the transform of the group holding it
+        SVGContent content = SVGLoader.loadFragment(file.getPath(), "p");
+        assertEquals(0.0, content.getBoundsInLocal().getMinX(), 0.0001);
+        assertEquals(4.0, content.getBoundsInLocal().getWidth(), 0.0001);
+
+        content = SVGLoader.loadFragment(file.getPath(), "sr");
+        assertEquals(3.0, content.getBoundsInLocal().getWidth(), 0.0001);
+        assertEquals(2.0, content.getBoundsInLocal().getHeight(), 0.0001);
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void failsForUnknownId() throws Exception {
+        SVGLoader.parseFragment(file.getPath(), "nothing");
+    }
+}
@@ -1,8 +1,18 @@
 package net.javainthebox.caraibe.svg;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import javafx.collections.ObservableList;
-import javafx.scene.Group;
+import javafx.geometry.BoundingBox;
 import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
@@ -53,13 +63,59 @@ public class SVGLoaderTest {
         assertEquals(Color.web("#000000").getOpacity(), ((Color)rect.getStroke()).getOpacity(), 0.0001);
     }
     
+    @Test
+    public void copyRectangle() {
+        SVGContent content = SVGLoader.load("rectangle.svg");
+        SVGContent copy = content.copy();
+
+        assertNotNull(copy);
+        assertNotSame(content, copy);
+        assertSame(content.getDocument(), copy.getDocument());
+        assertEquals(content.getNodes().keySet(), copy.getNodes().keySet());
+
+        Rectangle rect = (Rectangle) content.getNode("rect");
+        Rectangle copiedRect = (Rectangle) copy.getNode("rect");
+        assertNotSame(rect, copiedRect);
+        assertEquals(rect.getX(), copiedRect.getX(), 0.0001);
+        assertEquals(rect.getY(), copiedRect.getY(), 0.0001);
+        assertEquals(rect.getWidth(), copiedRect.getWidth(), 0.0001);
+        assertEquals(rect.getHeight(), copiedRect.getHeight(), 0.0001);
+        assertEquals(rect.getFill(), copiedRect.getFill());
+    }
+    
+    @Test
+    public void copyClonesNodes() throws Exception {
+        SVGContent content = SVGLoader.load("/duke.svg");
+        content.setViewport(new BoundingBox(0, 0, 10, 10));
+        SVGContent copy = content.copy();
+        content.setViewport(null);
+
+        // all nodes are copied, also the ones detached for the viewport
+        SVGDocumentParserTest.assertSameNodes("duke", content, copy);
+        assertEquals(content.getNodes().keySet(), copy.getNodes().keySet());
+        for (String id : content.getNodes().keySet()) {
+            Node node = copy.getNode(id);
+            assertNotSame(id, content.getNode(id), node);
+            assertEquals(id, content.getNode(id).getClass(), node.getClass());
+            while (node.getParent() != null) {
+                node = node.getParent();
+            }
+            assertSame(id, copy, node);
+        }
+
+        // the copy looks like the content does now
+        SVGContent rectangle = SVGLoader.load("rectangle.svg");
+        rectangle.setFill("rect", Color.BLUE);
+        assertEquals(Color.BLUE, ((Rectangle) rectangle.copy().getNode("rect")).getFill());
+    }
+
     @Test
     public void loadGroup() {
         SVGContent content = SVGLoader.load("group.svg");
 
         assertNotNull(content);
 
-        Group group = content.getGroup("group");
+        Pane group = content.getGroup("group");
         assertNotNull(group);
 
         Node node = group.getChildren().get(0);
@@ -139,4 +195,154 @@ public class SVGLoaderTest {
         assertEquals(4.0, dasharray.get(0), 0.0001);
         assertEquals(8.0, dasharray.get(1), 0.0001);
     }
+
+    @Test
+    public void loadsAsync() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Executor worker = task -> new Thread(() -> {
+            try {
+                started.await();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            task.run();
+        }, "worker").start();
+        ExecutorService fx = Executors.newSingleThreadExecutor(task -> new Thread(task, "fx"));
+        try {
+            CompletableFuture<SVGContent> future = SVGLoader.loadAsync("rectangle.svg", worker, fx);
+            // registered before the content is built, so it runs where the future is completed
+            CompletableFuture<String> thread = future.thenApply(content -> Thread.currentThread().getName());
+            started.countDown();
+
+            // waiting for the future itself may run the dependent on the waiting thread
+            assertEquals("fx", thread.get(5, TimeUnit.SECONDS));
+            SVGContent content = future.get(5, TimeUnit.SECONDS);
+            assertEquals(100.0, ((Rectangle) content.getNode("rect")).getWidth(), 0.0001);
+        } finally {
+            fx.shutdown();
+        }
+    }
+
+    @Test
+    public void loadsAsyncFailing() throws Exception {
+        CompletableFuture<SVGContent> future = SVGLoader.loadAsync("nothing.svg", Runnable::run, Runnable::run);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void loadsAsyncWithoutToolkit() throws Exception {
+        Executor stopped = task -> {
+            throw new IllegalStateException("Toolkit not initialized");
+        };
+
+        CompletableFuture<SVGContent> future = SVGLoader.loadAsync("rectangle.svg", Runnable::run, stopped);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+
+        // the failure of loading is kept
+        future = SVGLoader.loadAsync("nothing.svg", Runnable::run, stopped);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+            assertTrue(ex.getCause().getSuppressed()[0] instanceof IllegalStateException);
+        }
+
+        // the toolkit isn't started by the tests, the future completes anyway
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SVGLoader.loadAsync("rectangle.svg", executor).handle((content, ex) -> null).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void resolvesForwardReferences() throws Exception {
+        String uses = "  <use id='u1' xlink:href='#r' x='5'/>\n"
+                + "  <use id='u2' xlink:href='#c'/>\n"
+                + "  <rect id='clipped' width='100' height='100' clip-path='url(#clip)'/>\n";
+        String defs = "  <defs>\n"
+                + "    <rect id='r' width='10' height='20' fill='#FF0000'/>\n"
+                + "    <clipPath id='clip'><use xlink:href='#c'/></clipPath>\n"
+                + "  </defs>\n"
+                + "  <circle id='c' r='3' fill='#00FF00'/>\n";
+        String header = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>\n";
+
+        SVGContent forward = TestDocuments.load(header + uses + defs + "</svg>\n");
+        SVGContent backward = TestDocuments.load(header + defs + uses + "</svg>\n");
+
+        for (SVGContent content : new SVGContent[] { forward, backward }) {
+            Rectangle used = (Rectangle) content.getNode("u1");
+            assertEquals(20.0, used.getHeight(), 0.0001);
+            assertEquals(Color.web("#FF0000"), used.getFill());
+            // shapes outside of defs can be used too
+            assertEquals(Color.web("#00FF00"), ((Circle) content.getNode("u2")).getFill());
+            // the clip path uses the circle, which is defined after it
+            assertEquals(6.0, content.getNode("clipped").getClip().getBoundsInLocal().getWidth(), 0.0001);
+        }
+    }
+
+    @Test
+    public void buildsLazily() throws Exception {
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>\n"
+                + "  <use id='u' xlink:href='#layer1'/>\n"
+                + "  <g id='layer1' fill='#FF0000'><rect id='r1' width='10' height='10'/></g>\n"
+                + "  <g id='layer2' stroke='#0000FF' transform='translate(5,0)'>\n"
+                + "    <g id='inner'><circle id='c' r='3'/><circle r='4'/></g>\n"
+                + "  </g>\n"
+                + "  <defs><rect id='hidden' width='1' height='1'/></defs>\n"
+                + "</svg>\n";
+        SVGDocument document = TestDocuments.parse(svg);
+        SVGContentBuilder builder = new SVGContentBuilder(document);
+        builder.setLazy(true);
+        SVGContent content = builder.build();
+
+        assertFalse(content.isMaterialized());
+        assertTrue(content.getChildrenUnmodifiable().isEmpty());
+
+        // the subtree is built with the style inherited from its ancestors
+        Circle circle = (Circle) content.getNode("c");
+        assertEquals(Color.web("#0000FF"), circle.getStroke());
+        Node inner = content.getGroup("inner");
+        assertSame(inner, circle.getParent());
+        assertEquals(2, ((Parent) inner).getChildrenUnmodifiable().size());
+        assertNull(content.getNode("hidden"));
+        assertEquals(Color.web("#FF0000"), ((Rectangle) content.getNode("r1")).getFill());
+        assertFalse(content.isMaterialized());
+        // a lazy content is copied lazy
+        assertTrue(content.copy().getChildrenUnmodifiable().isEmpty());
+
+        // attaching builds the rest around the nodes built so far
+        Pane container = new Pane(content);
+        assertTrue(content.isMaterialized());
+        assertSame(inner, content.getGroup("inner"));
+        Node layer2 = content.getGroup("layer2");
+        assertSame(layer2, inner.getParent());
+        assertEquals(5.0, layer2.getLocalToParentTransform().getTx(), 0.0001);
+        assertSame(content.getNode("r1").getParent(), content.getGroup("layer1"));
+        // the use before the layer gets its own copy
+        assertNotSame(content.getNode("r1"), ((Parent) content.getNode("u")).getChildrenUnmodifiable().get(0));
+        assertSame(container, content.getParent());
+
+        SVGContent eager = SVGLoader.load(document);
+        // nodes without id are numbered in the order they are built
+        assertEquals(eager.getNodes().size(), content.getNodes().size());
+        for (String id : new String[] { "u", "layer1", "r1", "layer2", "inner", "c" }) {
+            assertNotNull(id, eager.getNode(id));
+            assertSame(id, eager.getNode(id).getClass(), content.getNode(id).getClass());
+        }
+        assertEquals(content.getChildrenUnmodifiable().size(), content.copy().getChildrenUnmodifiable().size());
+    }
 }
@@ -0,0 +1,74 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.List;
+import javafx.geometry.BoundingBox;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Rectangle;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class SpatialIndexTest {
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg'>\n"
+            + "  <rect id='background' width='1000' height='1000'/>\n"
+            + "  <g id='rooms' transform='translate(100,100)'>\n"
+            + "    <rect id='a' width='10' height='10'/>\n"
+            + "    <rect id='b' x='20' width='10' height='10'/>\n"
+            + "    <circle id='c' cx='55' cy='5' r='5'/>\n"
+            + "  </g>\n"
+            + "  <rect id='hidden' x='100' y='100' width='10' height='10' display='none'/>\n"
+            + "  <rect id='d' x='500' y='500' width='10' height='10'/>\n"
+            + "</svg>\n";
+
+    private SVGContent content;
+
+    public SpatialIndexTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        content = TestDocuments.load(SVG);
+    }
+
+    @Test
+    public void findsNodesAtPoints() {
+        List<Node> hit = content.nodesAt(105, 105);
+        assertEquals(2, hit.size());
+        assertSame(content.getNode("a"), hit.get(0));
+        assertSame(content.getNode("background"), hit.get(1));
+
+        // inside the bounds, outside of the circle
+        assertEquals(1, content.nodesAt(151, 101).size());
+        assertSame(content.getNode("c"), content.nodesAt(155, 105).get(0));
+        assertTrue(content.nodesAt(2000, 2000).isEmpty());
+    }
+
+    @Test
+    public void findsNodesInRegions() {
+        List<Node> found = content.nodesIntersecting(new BoundingBox(95, 95, 30, 10));
+        assertEquals(3, found.size());
+        assertSame(content.getNode("background"), found.get(0));
+        assertSame(content.getNode("a"), found.get(1));
+        assertSame(content.getNode("b"), found.get(2));
+    }
+
+    @Test
+    public void followsChanges() {
+        assertSame(content.getNode("d"), content.nodesAt(505, 505).get(0));
+
+        ((Rectangle) content.getNode("d")).setX(700);
+        assertSame(content.getNode("background"), content.nodesAt(505, 505).get(0));
+        assertSame(content.getNode("d"), content.nodesAt(705, 505).get(0));
+
+        Pane rooms = content.getGroup("rooms");
+        rooms.getTransforms().clear();
+        assertSame(content.getNode("a"), content.nodesAt(5, 5).get(0));
+        assertSame(content.getNode("background"), content.nodesAt(105, 105).get(0));
+
+        ((Circle) content.getNode("c")).setRadius(50);
+        rooms.setTranslateX(300);
+        assertSame(content.getNode("c"), content.nodesAt(355, 45).get(0));
+    }
+}
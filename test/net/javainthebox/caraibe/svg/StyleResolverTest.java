@@ -0,0 +1,80 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.StrokeLineJoin;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class StyleResolverTest {
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg'>\n"
+            + "  <g id='outer' fill='#FF0000' stroke='#0000FF' opacity='0.5'>\n"
+            + "    <g id='inner' style=' stroke-width : 3 ; stroke-linejoin:round'>\n"
+            + "      <rect id='a' width='1' height='1'/>\n"
+            + "      <rect id='b' width='2' height='2'/>\n"
+            + "      <rect id='c' width='3' height='3' fill='#00FF00' style='fill:#FFFFFF'/>\n"
+            + "      <rect id='d' width='4' height='4' stroke='none' stroke-dasharray='4,8'/>\n"
+            + "    </g>\n"
+            + "  </g>\n"
+            + "</svg>\n";
+
+    public StyleResolverTest() {
+    }
+
+    private static SVGDocument parse() throws Exception {
+        return TestDocuments.parse(SVG);
+    }
+
+    @Test
+    public void groupsPassTheirStyleOn() throws Exception {
+        SVGContent content = SVGLoader.load(parse());
+
+        Rectangle a = (Rectangle) content.getNode("a");
+        assertEquals(Color.web("#FF0000"), a.getFill());
+        assertEquals(Color.web("#0000FF"), a.getStroke());
+        assertEquals(3.0, a.getStrokeWidth(), 0);
+        assertEquals(StrokeLineJoin.ROUND, a.getStrokeLineJoin());
+        // opacity is applied to the group, not inherited
+        assertEquals(1.0, a.getOpacity(), 0);
+        assertEquals(0.5, content.getGroup("outer").getOpacity(), 0);
+
+        Rectangle c = (Rectangle) content.getNode("c");
+        assertEquals(Color.web("#FFFFFF"), c.getFill());
+
+        Rectangle d = (Rectangle) content.getNode("d");
+        assertNull(d.getStroke());
+        assertEquals(2, d.getStrokeDashArray().size());
+    }
+
+    @Test
+    public void sharesEqualStyles() throws Exception {
+        SVGElement outer = parse().getRoot().getChild(0);
+        SVGElement inner = outer.getChild(0);
+        StyleResolver resolver = new StyleResolver();
+
+        SVGStyle outer_style = resolver.compute(SVGStyle.NONE, outer);
+        SVGStyle inner_style = resolver.compute(outer_style, inner);
+        SVGStyle a = resolver.compute(inner_style, inner.getChild(0));
+        SVGStyle b = resolver.compute(inner_style, inner.getChild(1));
+
+        assertSame(inner_style, a);
+        assertSame(a, b);
+        assertNotSame(a, resolver.compute(inner_style, inner.getChild(2)));
+        assertEquals(0.5, outer_style.opacity, 0);
+        assertTrue(Double.isNaN(inner_style.opacity));
+    }
+
+    @Test
+    public void parsesStyleAttributesOnce() {
+        StyleResolver resolver = new StyleResolver();
+        SVGStyle declared = resolver.getDeclarations(" fill:#FFFFFF; stroke:#000000;;unknown:1;stroke-width:2px");
+
+        assertEquals("#FFFFFF", declared.fill);
+        assertEquals("#000000", declared.stroke);
+        // malformed values are ignored
+        assertTrue(Double.isNaN(declared.stroke_width));
+        assertSame(declared, resolver.getDeclarations(" fill:#FFFFFF; stroke:#000000;;unknown:1;stroke-width:2px"));
+        assertSame(SVGStyle.NONE, resolver.getDeclarations("fill:inherit"));
+    }
+}
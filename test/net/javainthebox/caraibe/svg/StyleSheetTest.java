@@ -0,0 +1,85 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class StyleSheetTest {
+
+    public StyleSheetTest() {
+    }
+
+    @Test
+    public void matchesByIdClassAndTag() {
+        StyleSheet sheet = StyleSheet.parse(
+                "rect { fill: #000000 }\n"
+                + ".cls-1, .cls-2 { fill: #111111; stroke: #222222 }\n"
+                + "#logo { fill: #333333 }\n"
+                + "rect.cls-1 { stroke-width: 2 }\n"
+                + "* { stroke-linecap: round }");
+
+        assertEquals(6, sheet.getRuleCount());
+        assertEquals("#000000", sheet.match("rect", null, null).fill);
+        assertNull(sheet.match("circle", null, null).fill);
+
+        SVGStyle cls = sheet.match("rect", null, " cls-1  other ");
+        assertEquals("#111111", cls.fill);
+        assertEquals("#222222", cls.stroke);
+        assertEquals(2.0, cls.stroke_width, 0);
+        assertNotNull(cls.stroke_linecap);
+        assertTrue(Double.isNaN(sheet.match("circle", null, "cls-1").stroke_width));
+
+        // an id is more specific than classes and tags
+        assertEquals("#333333", sheet.match("rect", "logo", "cls-2").fill);
+        assertTrue(sheet.hasId("logo"));
+        assertFalse(sheet.hasId("other"));
+    }
+
+    @Test
+    public void laterRulesWinOnEqualSpecificity() {
+        StyleSheet sheet = StyleSheet.parse(".a { fill: #FF0000 } .b { fill: #00FF00 } .a { stroke: #0000FF }");
+
+        assertEquals("#00FF00", sheet.match("path", null, "b a").fill);
+        assertEquals("#0000FF", sheet.match("path", null, "b a").stroke);
+    }
+
+    @Test
+    public void skipsUnsupportedRules() {
+        StyleSheet sheet = StyleSheet.parse(
+                "/* exported */ @import url(a.css);\n"
+                + "@media print { .a { fill: #FF0000 } }\n"
+                + "g .a, .a:hover, .a > .b { fill: #00FF00 }\n"
+                + ".a { fill: #0000FF !important }");
+
+        assertEquals(1, sheet.getRuleCount());
+        assertEquals("#0000FF", sheet.match("rect", null, "a").fill);
+        assertSame(StyleSheet.EMPTY, StyleSheet.parse(" /* nothing */ "));
+    }
+
+    @Test
+    public void appliesStyleElements() throws Exception {
+        String svg = "<svg xmlns='http://www.w3.org/2000/svg'>\n"
+                + "  <defs><style><![CDATA[ .cls-1 { fill: #FFFFFF; stroke: #000000 } ]]></style></defs>\n"
+                + "  <style>.cls-2 { fill: #00FF00 }</style>\n"
+                + "  <g class='cls-1'>\n"
+                + "    <rect id='a' width='1' height='1'/>\n"
+                + "    <rect id='b' class='cls-2' width='1' height='1' fill='#FF0000'/>\n"
+                + "    <rect id='c' class='cls-2' width='1' height='1' style='fill:#0000FF'/>\n"
+                + "  </g>\n"
+                + "</svg>\n";
+
+        for (SVGParserBackend backend : SVGParserBackend.values()) {
+            SVGDocument document = TestDocuments.parse(svg, backend);
+            assertEquals(backend.toString(), 2, document.getStyleSheet().getRuleCount());
+
+            SVGContent content = SVGLoader.load(document);
+            Rectangle a = (Rectangle) content.getNode("a");
+            assertEquals(Color.web("#FFFFFF"), a.getFill());
+            assertEquals(Color.web("#000000"), a.getStroke());
+            // rules override presentation attributes, style attributes override rules
+            assertEquals(Color.web("#00FF00"), ((Rectangle) content.getNode("b")).getFill());
+            assertEquals(Color.web("#0000FF"), ((Rectangle) content.getNode("c")).getFill());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package net.javainthebox.caraibe.svg;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Parses and loads the svg documents the tests write inline.
+ */
+final class TestDocuments {
+
+    private TestDocuments() {
+    }
+
+    static SVGDocument parse(String svg) throws Exception {
+        return parse(svg, SVGParserBackend.CURSOR);
+    }
+
+    static SVGDocument parse(String svg, SVGParserBackend backend) throws Exception {
+        return new SVGDocumentParser(null, backend).parse(new ByteArrayInputStream(svg.getBytes("UTF-8")));
+    }
+
+    static SVGContent load(String svg) throws Exception {
+        return SVGLoader.load(parse(svg));
+    }
+}
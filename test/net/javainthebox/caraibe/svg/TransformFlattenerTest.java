@@ -0,0 +1,137 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.Arrays;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import javafx.scene.transform.Affine;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class TransformFlattenerTest {
+
+    private final TransformParser parser = new TransformParser();
+
+    public TransformFlattenerTest() {
+    }
+
+    private static Rectangle rect() {
+        Rectangle rect = new Rectangle(10, 20, 30, 40);
+        rect.setFill(Color.RED);
+        rect.setStroke(null);
+        return rect;
+    }
+
+    /**
+     * The flattened shape has the bounds the transformed one had.
+     */
+    private void assertFlattens(Shape shape, String transform) {
+        Affine affine = parser.parse(transform);
+        shape.getTransforms().add(affine);
+        Bounds expected = shape.getBoundsInParent();
+        shape.getTransforms().clear();
+
+        Shape flat = TransformFlattener.flatten(shape, affine);
+        assertNotNull(transform, flat);
+        Bounds bounds = flat.getBoundsInParent();
+        assertEquals(transform, expected.getMinX(), bounds.getMinX(), 1e-4);
+        assertEquals(transform, expected.getMinY(), bounds.getMinY(), 1e-4);
+        assertEquals(transform, expected.getWidth(), bounds.getWidth(), 1e-4);
+        assertEquals(transform, expected.getHeight(), bounds.getHeight(), 1e-4);
+    }
+
+    @Test
+    public void axisAlignedRectStaysRect() {
+        Rectangle rect = rect();
+        assertFlattens(rect, "translate(5 5) scale(2 -1)");
+        assertEquals(60, rect.getWidth(), 0);
+        assertEquals(-55, rect.getY(), 0);
+    }
+
+    @Test
+    public void rotatedRectBecomesPath() {
+        Rectangle rect = rect();
+        rect.setOpacity(0.5);
+        assertFlattens(rect, "rotate(30 10 10)");
+
+        Shape flat = TransformFlattener.flatten(rect(), parser.parse("rotate(30)"));
+        assertTrue(flat instanceof Path);
+        assertEquals(Color.RED, flat.getFill());
+    }
+
+    @Test
+    public void flattensPointsAndPaths() {
+        Polyline polyline = new Polyline(0, 0, 10, 5, 20, 0);
+        polyline.setStrokeWidth(2);
+        assertSame(polyline, TransformFlattener.flatten(polyline, parser.parse("matrix(0 2 -2 0 5 5)")));
+        assertEquals(Arrays.asList(5.0, 5.0, -5.0, 25.0, 5.0, 45.0), polyline.getPoints());
+        // the stroke is scaled with the geometry
+        assertEquals(4, polyline.getStrokeWidth(), 1e-9);
+
+        Path path = PathData.compile("M0 0 C10 10 20 10 30 0 A10 5 0 0 1 50 0 Z").toPath();
+        path.setFill(Color.BLACK);
+        path.setStroke(null);
+        assertFlattens(path, "translate(10 20) rotate(45) scale(-1 1)");
+    }
+
+    @Test
+    public void keepsTransformsWhichWouldDistort() {
+        // a stroke would be scaled unevenly
+        Polyline polyline = new Polyline(0, 0, 10, 5);
+        assertNull(TransformFlattener.flatten(polyline, parser.parse("scale(2 1)")));
+
+        // arcs can't be skewed
+        Path path = PathData.compile("M0 0 A10 5 0 0 1 50 0").toPath();
+        path.setStroke(null);
+        assertNull(TransformFlattener.flatten(path, parser.parse("skewX(20)")));
+
+        // the gradient lives in the transformed space
+        Rectangle rect = rect();
+        rect.setFill(new LinearGradient(0, 0, 1, 0, true, CycleMethod.NO_CYCLE));
+        assertNull(TransformFlattener.flatten(rect, parser.parse("translate(1 1)")));
+        assertEquals(10, rect.getX(), 0);
+    }
+
+    @Test
+    public void flattensDocumentsWithUsesAndClips() throws Exception {
+        SVGDocument document = TestDocuments.parse("<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>"
+                + "<defs><rect id='c' width='5' height='5' transform='translate(20,0)'/>"
+                + "<clipPath id='clip'><use xlink:href='#c'/></clipPath></defs>"
+                + "<rect id='r' width='10' height='10' fill='#FF0000' transform='translate(10,0)'/>"
+                + "<use id='u1' xlink:href='#r' transform='translate(0,50)'/>"
+                + "<use id='u2' xlink:href='#r'/>"
+                + "<rect id='clipped' width='10' height='10' fill='#FF0000' transform='translate(15,0)' clip-path='url(#clip)'/>"
+                + "</svg>");
+        SVGContentBuilder builder = new SVGContentBuilder(document);
+        builder.setFlattenTransforms(true);
+        SVGContent content = builder.build();
+
+        Node r = content.getNode("r");
+        assertTrue(r.getTransforms().isEmpty());
+        assertEquals(10, r.getBoundsInParent().getMinX(), 1e-9);
+
+        // instances keep the transform of the use, the geometry of the reference is not changed by them
+        Node u1 = content.getNode("u1");
+        assertEquals(10, u1.getBoundsInParent().getMinX(), 1e-9);
+        assertEquals(50, u1.getBoundsInParent().getMinY(), 1e-9);
+        Node u2 = content.getNode("u2");
+        assertEquals(10, u2.getBoundsInParent().getMinX(), 1e-9);
+        assertEquals(0, u2.getBoundsInParent().getMinY(), 1e-9);
+        assertEquals(10, r.getBoundsInParent().getMinX(), 1e-9);
+        assertEquals(0, r.getBoundsInParent().getMinY(), 1e-9);
+
+        // the clip lives in the transformed space of the clipped shape, which keeps its transform
+        Node clipped = content.getNode("clipped");
+        assertEquals(15, clipped.getLocalToParentTransform().getTx(), 1e-9);
+        Bounds clip = clipped.getClip().getBoundsInParent();
+        assertEquals(20, clip.getMinX(), 1e-9);
+        assertEquals(5, clip.getWidth(), 1e-9);
+    }
+}
@@ -0,0 +1,61 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.geometry.Point2D;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class TransformParserTest {
+
+    private final TransformParser parser = new TransformParser();
+
+    public TransformParserTest() {
+    }
+
+    private void assertMaps(String list, double x, double y, double expectedX, double expectedY) {
+        Point2D point = parser.parse(list).transform(x, y);
+        assertEquals(list, expectedX, point.getX(), 1e-9);
+        assertEquals(list, expectedY, point.getY(), 1e-9);
+    }
+
+    @Test
+    public void transforms() {
+        assertMaps("matrix(1,0,0,1,5,6)", 1, 1, 6, 7);
+        assertMaps("translate(10)", 1, 1, 11, 1);
+        assertMaps("translate(10 20)", 1, 1, 11, 21);
+        assertMaps("scale(2)", 1, 3, 2, 6);
+        assertMaps("scale(2,-1)", 1, 3, 2, -3);
+        assertMaps("rotate(90)", 1, 0, 0, 1);
+        assertMaps("rotate(180 5 5)", 0, 0, 10, 10);
+        assertMaps("skewX(45)", 0, 1, 1, 1);
+        assertMaps("skewY(45)", 1, 0, 1, 1);
+    }
+
+    @Test
+    public void composesLeftToRight() {
+        // the rightmost transform is applied first
+        assertMaps("translate(10,0) scale(2)", 1, 1, 12, 2);
+        assertMaps("scale(2),translate(10,0)", 1, 1, 22, 2);
+        assertMaps(" translate(1e1-5)rotate(-90) ", 1, 0, 10, -6);
+    }
+
+    @Test
+    public void emptyListIsIdentity() {
+        assertTrue(parser.parse("").isIdentity());
+        assertTrue(parser.parse(" , ").isIdentity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownTransforms() {
+        parser.parse("translate(1 2) perspective(3)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongArgumentCounts() {
+        parser.parse("rotate(1 2)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnclosedLists() {
+        parser.parse("scale(1 2");
+    }
+}
@@ -0,0 +1,153 @@
+package net.javainthebox.caraibe.svg;
+
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.transform.Transform;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class UseTemplateTest {
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>\n"
+            + "  <symbol id='pin'>\n"
+            + "    <path id='pin-body' d='M0 0 L10 0 L5 10 Z'/>\n"
+            + "    <circle r='2' fill='#FFFFFF'/>\n"
+            + "  </symbol>\n"
+            + "  <g id='pair' transform='translate(100,0)'><use xlink:href='#pin'/><use xlink:href='#pin' x='20'/></g>\n"
+            + "  <use id='a' xlink:href='#pin' x='10' y='20' fill='#FF0000'/>\n"
+            + "  <use id='b' xlink:href='#pin' x='30' y='40' fill='#FF0000'/>\n"
+            + "  <use id='c' xlink:href='#pin' fill='#0000FF' opacity='0.5'/>\n"
+            + "  <use id='d' xlink:href='#pair'/>\n"
+            + "  <g id='loop'><use xlink:href='#loop'/></g>\n"
+            + "</svg>\n";
+
+    public UseTemplateTest() {
+    }
+
+    @Test
+    public void stampsOutSymbols() throws Exception {
+        SVGContent content = TestDocuments.load(SVG);
+
+        Pane a = (Pane) content.getNode("a");
+        Pane b = (Pane) content.getNode("b");
+        assertNotSame(a, b);
+        assertEquals(2, a.getChildren().size());
+        assertEquals(10.0, a.getLocalToParentTransform().getTx(), 0.0001);
+        assertEquals(40.0, b.getLocalToParentTransform().getTy(), 0.0001);
+
+        // the geometry is shared, the style inherited from each use
+        Path path_a = (Path) a.getChildren().get(0);
+        Path path_b = (Path) b.getChildren().get(0);
+        assertSame(path_a.getElements().get(1), path_b.getElements().get(1));
+        assertEquals(Color.web("#FF0000"), path_a.getFill());
+        assertEquals(Color.web("#FFFFFF"), ((Circle) a.getChildren().get(1)).getFill());
+
+        Pane c = (Pane) content.getNode("c");
+        assertEquals(Color.web("#0000FF"), ((Path) c.getChildren().get(0)).getFill());
+        assertEquals(0.5, c.getOpacity(), 0.0001);
+        assertEquals(1.0, a.getOpacity(), 0.0001);
+
+        // nodes of templates are not part of the content
+        assertNull(content.getNode("pin-body"));
+    }
+
+    @Test
+    public void nestsGroups() throws Exception {
+        SVGContent content = TestDocuments.load(SVG);
+
+        Pane d = (Pane) content.getNode("d");
+        assertEquals(100.0, d.getLocalToParentTransform().getTx(), 0.0001);
+        Node second = d.getChildren().get(1);
+        assertEquals(20.0, second.getLocalToParentTransform().getTx(), 0.0001);
+
+        // transforms of instances are independent
+        Pane pair = content.getGroup("pair");
+        Transform transform = pair.getTransforms().get(0);
+        assertNotSame(transform, d.getTransforms().get(0));
+    }
+
+    @Test
+    public void appliesTheUseTransformOnce() throws Exception {
+        SVGContent content = TestDocuments.load("<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>"
+                + "<path id='p' d='M0 0 L10 0 L10 10 Z'/>"
+                + "<use id='u' xlink:href='#p' transform='translate(100,0)' x='5' opacity='0.5'/>"
+                + "</svg>");
+
+        Node used = content.getNode("u");
+        assertEquals(105.0, used.getLocalToParentTransform().getTx(), 0.0001);
+        assertEquals(105.0, used.getBoundsInParent().getMinX(), 0.0001);
+        assertEquals(0.5, used.getOpacity(), 0.0001);
+    }
+
+    @Test
+    public void keepsInstancesApartWhenFlattening() throws Exception {
+        SVGDocument document = TestDocuments.parse("<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>"
+                + "<path id='p' d='M0 0 L10 0 L10 10 Z'/>"
+                + "<use id='a' xlink:href='#p' transform='translate(100,0)'/>"
+                + "<use id='b' xlink:href='#p' transform='translate(0,100)'/>"
+                + "<use id='c' xlink:href='#p'/>"
+                + "</svg>");
+        SVGContentBuilder builder = new SVGContentBuilder(document);
+        builder.setFlattenTransforms(true);
+        SVGContent content = builder.build();
+
+        assertEquals(0.0, content.getNode("p").getBoundsInParent().getMinX(), 0.0001);
+        assertEquals(100.0, content.getNode("a").getBoundsInParent().getMinX(), 0.0001);
+        assertEquals(0.0, content.getNode("a").getBoundsInParent().getMinY(), 0.0001);
+        assertEquals(0.0, content.getNode("b").getBoundsInParent().getMinX(), 0.0001);
+        assertEquals(100.0, content.getNode("b").getBoundsInParent().getMinY(), 0.0001);
+        Path c = (Path) content.getNode("c");
+        assertEquals(0.0, c.getBoundsInParent().getMinX(), 0.0001);
+        assertEquals(0.0, c.getBoundsInParent().getMinY(), 0.0001);
+        assertEquals(0.0, ((MoveTo) c.getElements().get(0)).getX(), 0);
+    }
+
+    @Test
+    public void inheritsPaintsWhichAreNoColors() throws Exception {
+        SVGContent content = TestDocuments.load("<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>"
+                + "<linearGradient id='g'><stop offset='0' stop-color='#FF0000'/><stop offset='1' stop-color='#0000FF'/></linearGradient>"
+                + "<rect id='r' width='10' height='10'/>"
+                + "<use id='gradient' xlink:href='#r' fill='url(#g)'/>"
+                + "<use id='unstroked' xlink:href='#r' stroke='none'/>"
+                + "</svg>");
+
+        assertNotNull(content);
+        assertTrue(((Rectangle) content.getNode("gradient")).getFill() instanceof LinearGradient);
+        Rectangle unstroked = (Rectangle) content.getNode("unstroked");
+        assertNull(unstroked.getStroke());
+        assertEquals(Color.BLACK, unstroked.getFill());
+    }
+
+    @Test
+    public void breaksCircularReferences() throws Exception {
+        SVGContent content = TestDocuments.load(SVG);
+
+        // the inner use of the loop is dropped
+        Pane loop = content.getGroup("loop");
+        assertEquals(1, loop.getChildren().size());
+        assertEquals(0, ((Pane) loop.getChildren().get(0)).getChildren().size());
+    }
+
+    @Test
+    public void copiesNodes() {
+        Circle circle = new Circle(1, 2, 3);
+        circle.setFill(Color.RED);
+        circle.setStrokeWidth(4);
+        circle.setVisible(false);
+        circle.getTransforms().add(Transform.translate(5, 6));
+
+        Circle copy = (Circle) UseTemplate.copy(circle);
+        assertEquals(3.0, copy.getRadius(), 0);
+        assertEquals(Color.RED, copy.getFill());
+        assertEquals(4.0, copy.getStrokeWidth(), 0);
+        assertFalse(copy.isVisible());
+        assertEquals(5.0, copy.getTransforms().get(0).getTx(), 0);
+        assertNotSame(circle.getTransforms().get(0), copy.getTransforms().get(0));
+    }
+}
@@ -0,0 +1,79 @@
+package net.javainthebox.caraibe.svg;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.geometry.BoundingBox;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public class ViewportCullerTest {
+
+    private SVGContent content;
+    private Pane map;
+
+    public ViewportCullerTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        // 10 x 10 tiles of 100 x 100 with 4 shapes each
+        StringBuilder svg = new StringBuilder("<svg xmlns='http://www.w3.org/2000/svg'><g id='map'>\n");
+        for (int t = 0; t < 100; t++) {
+            svg.append("<g id='tile").append(t).append("' transform='translate(")
+                    .append(t % 10 * 100).append(',').append(t / 10 * 100).append(")'>");
+            for (int s = 0; s < 4; s++) {
+                svg.append("<rect id='r").append(t).append('_').append(s)
+                        .append("' x='").append(s * 25).append("' width='20' height='100'/>");
+            }
+            svg.append("</g>\n");
+        }
+        svg.append("</g></svg>\n");
+        content = TestDocuments.load(svg.toString());
+        map = content.getGroup("map");
+    }
+
+    @Test
+    public void attachesVisibleSubtrees() {
+        List<Node> tiles = new ArrayList<>(map.getChildren());
+
+        content.setViewport(new BoundingBox(410, 410, 80, 80));
+        // the tile in view and the ones within a quarter of the viewport
+        assertEquals(9, map.getChildren().size());
+        assertTrue(map.getChildren().contains(content.getGroup("tile44")));
+        assertTrue(map.getChildren().contains(content.getGroup("tile33")));
+        assertFalse(map.getChildren().contains(content.getGroup("tile0")));
+        // detached nodes are still known
+        assertNotNull(content.getNode("r0_0"));
+
+        content.setViewport(null);
+        assertEquals(tiles, map.getChildren());
+    }
+
+    @Test
+    public void keepsSubtreesWithHysteresis() {
+        content.setViewport(new BoundingBox(410, 410, 80, 80));
+        Pane tile33 = content.getGroup("tile33");
+        Pane tile55 = content.getGroup("tile55");
+
+        // moving away keeps the tile, until it leaves the wider margin
+        content.setViewport(new BoundingBox(430, 430, 80, 80));
+        assertTrue(map.getChildren().contains(tile33));
+        content.setViewport(new BoundingBox(450, 450, 80, 80));
+        assertFalse(map.getChildren().contains(tile33));
+        assertTrue(map.getChildren().contains(tile55));
+
+        // the shapes of a tile are culled too
+        content.setViewport(new BoundingBox(505, 505, 10, 10));
+        assertEquals(1, tile55.getChildren().size());
+    }
+
+    @Test
+    public void findsDetachedNodes() {
+        content.setViewport(new BoundingBox(410, 410, 80, 80));
+
+        assertSame(content.getNode("r0_0"), content.nodesAt(5, 5).get(0));
+        assertEquals(4, content.nodesIntersecting(new BoundingBox(0, 0, 99, 99)).size());
+    }
+}
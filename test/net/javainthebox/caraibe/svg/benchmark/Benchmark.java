@@ -0,0 +1,56 @@
+package net.javainthebox.caraibe.svg.benchmark;
+
+/**
+ * A minimal timing harness for the benchmarks in this package.
+ * Each benchmark is a plain main class, run it with the test classpath.
+ */
+public final class Benchmark {
+
+    public interface Task {
+        Object run() throws Exception;
+    }
+
+    private static volatile Object sink;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+
+    private Benchmark() {
+    }
+
+    /**
+     * Runs the task for warm up, then measures it.
+     * Prints the time and the bytes allocated per run.
+     *
+     * @param name the name printed with the result
+     * @param warmup the number of not measured runs
+     * @param iterations the number of measured runs
+     * @param task the task to measure
+     * @return the average time per run in nanoseconds
+     */
+    public static double measure(String name, int warmup, int iterations, Task task) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            sink = task.run();
+        }
+
+        System.gc();
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = task.run();
+        }
+        double nanos = (double) (System.nanoTime() - start) / iterations;
+        long bytes = (THREADS.getThreadAllocatedBytes(thread) - allocated) / iterations;
+
+        System.out.printf("%-40s %12.1f us/op %12d B/op%n", name, nanos / 1000.0, bytes);
+        return nanos;
+    }
+
+    /**
+     * Prints the ratio of two measured times.
+     */
+    public static void compare(String name, double baseline, double candidate) {
+        System.out.printf("%-40s %12.1f x%n", name, baseline / candidate);
+    }
+}
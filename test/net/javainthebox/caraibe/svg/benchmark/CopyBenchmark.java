@@ -0,0 +1,28 @@
+package net.javainthebox.caraibe.svg.benchmark;
+
+import net.javainthebox.caraibe.svg.SVGContent;
+import net.javainthebox.caraibe.svg.SVGDocumentCache;
+import net.javainthebox.caraibe.svg.SVGLoader;
+
+/**
+ * Compares a full load of duke.svg, reading and parsing the file,
+ * with copying an already loaded content.
+ */
+public class CopyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : CopyBenchmark.class.getResource("/duke.svg").toString();
+        SVGDocumentCache cache = SVGDocumentCache.getShared();
+
+        double load = Benchmark.measure("load (parse + build)", 200, 1000, () -> {
+            cache.clear();
+            return SVGLoader.load(path);
+        });
+
+        SVGContent content = SVGLoader.load(path);
+        // a copy is cheap, it needs more runs to be compiled
+        double copy = Benchmark.measure("copy", 2000, 1000, content::copy);
+
+        Benchmark.compare("copy speed up", load, copy);
+    }
+}
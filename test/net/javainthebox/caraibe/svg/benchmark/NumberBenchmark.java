@@ -0,0 +1,41 @@
+package net.javainthebox.caraibe.svg.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringTokenizer;
+
+import net.javainthebox.caraibe.svg.NumberScanner;
+
+/**
+ * Compares reading a points list of 10000 points with StringTokenizer and Double.valueOf,
+ * the way the builder did, with the NumberScanner.
+ */
+public class NumberBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append(String.format(Locale.ROOT, "%.3f,%.3f ", i * 0.731, i * -1.25e-1));
+        }
+        String points = sb.toString();
+        NumberScanner scanner = new NumberScanner();
+
+        double tokenizer = Benchmark.measure("StringTokenizer + Double.valueOf", 200, 1000, () -> {
+            List<Double> list = new ArrayList<>();
+            StringTokenizer tokenizer1 = new StringTokenizer(points, " ");
+            while (tokenizer1.hasMoreTokens()) {
+                StringTokenizer tokenizer2 = new StringTokenizer(tokenizer1.nextToken(), ",");
+                list.add(Double.valueOf(tokenizer2.nextToken()));
+                list.add(Double.valueOf(tokenizer2.nextToken()));
+            }
+            return list;
+        });
+
+        double doubles = Benchmark.measure("NumberScanner.toDoubles", 200, 1000, () -> scanner.toDoubles(points));
+        double floats = Benchmark.measure("NumberScanner.toFloats", 200, 1000, () -> scanner.toFloats(points));
+
+        Benchmark.compare("toDoubles speed up", tokenizer, doubles);
+        Benchmark.compare("toFloats speed up", tokenizer, floats);
+    }
+}
@@ -0,0 +1,49 @@
+package net.javainthebox.caraibe.svg.benchmark;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import net.javainthebox.caraibe.svg.SVGDocumentCache;
+import net.javainthebox.caraibe.svg.SVGLoader;
+import net.javainthebox.caraibe.svg.SVGParserBackend;
+
+/**
+ * Compares the parse stage with each xml reader backend,
+ * on duke.svg and on a generated file with many small elements.
+ */
+public class ParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String duke = ParserBenchmark.class.getResource("/duke.svg").toString();
+        run("duke.svg", duke, 500, 2000);
+
+        File large = File.createTempFile("parser-benchmark", ".svg");
+        large.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(large, "UTF-8")) {
+            out.println("<svg xmlns='http://www.w3.org/2000/svg' width='1000' height='1000'>");
+            for (int i = 0; i < 20000; i++) {
+                out.printf("<rect id='r%d' x='%d' y='%d' width='10' height='10' style='fill:#ff0000;stroke:#000000'/>%n",
+                        i, i % 100 * 10, i / 100 * 10);
+            }
+            out.println("</svg>");
+        }
+        run("20000 rects", large.toURI().toString(), 10, 50);
+    }
+
+    private static void run(String name, String path, int warmup, int iterations) throws Exception {
+        SVGDocumentCache cache = SVGDocumentCache.getShared();
+        double baseline = 0;
+
+        for (SVGParserBackend backend : SVGParserBackend.values()) {
+            double time = Benchmark.measure(name + " " + backend, warmup, iterations, () -> {
+                cache.clear();
+                return SVGLoader.parse(path, backend);
+            });
+            if (backend == SVGParserBackend.EVENT) {
+                baseline = time;
+            } else {
+                Benchmark.compare(backend + " speed up", baseline, time);
+            }
+        }
+    }
+}
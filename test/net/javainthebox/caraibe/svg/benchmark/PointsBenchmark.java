@@ -0,0 +1,70 @@
+package net.javainthebox.caraibe.svg.benchmark;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Locale;
+
+import javafx.scene.shape.Polyline;
+import net.javainthebox.caraibe.svg.NumberScanner;
+import net.javainthebox.caraibe.svg.SVGDocument;
+import net.javainthebox.caraibe.svg.SVGLoader;
+
+/**
+ * Fills a polyline of 1M points one add per coordinate, like the builder did, and with one bulk setAll.
+ * Then builds a document holding such a polyline.
+ */
+public class PointsBenchmark {
+
+    private static final int POINTS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        double[] points = new double[2 * POINTS];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = i * 0.5;
+        }
+        // what the builder hands to setAll: a view boxing on access
+        List<Double> view = new AbstractList<Double>() {
+            @Override
+            public Double get(int index) {
+                return points[index];
+            }
+
+            @Override
+            public int size() {
+                return points.length;
+            }
+        };
+
+        double add = Benchmark.measure("add per coordinate", 3, 10, () -> {
+            Polyline polyline = new Polyline();
+            for (double point : points) {
+                polyline.getPoints().add(point);
+            }
+            return polyline;
+        });
+
+        double setAll = Benchmark.measure("setAll", 3, 10, () -> {
+            Polyline polyline = new Polyline();
+            polyline.getPoints().setAll(view);
+            return polyline;
+        });
+
+        Benchmark.compare("setAll speed up", add, setAll);
+
+        File file = File.createTempFile("points-benchmark", ".svg");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+            out.print("<svg xmlns='http://www.w3.org/2000/svg'><polyline points='");
+            for (int i = 0; i < POINTS; i++) {
+                out.printf(Locale.ROOT, "%.2f,%.2f ", i * 0.01, Math.sin(i * 0.01));
+            }
+            out.println("' stroke='#000000'/></svg>");
+        }
+        SVGDocument document = SVGLoader.parse(file.toURI().toString());
+
+        Benchmark.measure("scan points", 3, 10, () -> new NumberScanner().toDoubles(document.getRoot().getChild(0).getAttribute("points")));
+        Benchmark.measure("build 1M point polyline", 3, 10, () -> SVGLoader.load(document));
+    }
+}